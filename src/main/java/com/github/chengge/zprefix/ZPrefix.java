@@ -1,6 +1,7 @@
 package com.github.chengge.zprefix;
 
 import com.github.chengge.zprefix.command.TitleCommand;
+import com.github.chengge.zprefix.data.TitleIndex;
 import com.github.chengge.zprefix.gui.TitleGUI;
 import com.github.chengge.zprefix.gui.UnlockedTitleGUI;
 import com.github.chengge.zprefix.integration.EconomyIntegration;
@@ -12,6 +13,10 @@ import com.github.chengge.zprefix.listener.VanillaStatsListener;
 import com.github.chengge.zprefix.manager.BuffManager;
 import com.github.chengge.zprefix.manager.ConfigManager;
 import com.github.chengge.zprefix.manager.TitleManager;
+import com.github.chengge.zprefix.manager.OfflineUnlockJob;
+import com.github.chengge.zprefix.manager.StorageMigrationJob;
+import com.github.chengge.zprefix.manager.UnlockCheckScheduler;
+import com.github.chengge.zprefix.manager.UnlockSweeper;
 import com.github.chengge.zprefix.manager.VanillaStatsManager;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -30,6 +35,10 @@ public final class ZPrefix extends JavaPlugin {
     private BuffManager buffManager;
     private TitleManager titleManager;
     private VanillaStatsManager vanillaStatsManager;
+    private UnlockCheckScheduler unlockCheckScheduler;
+    private UnlockSweeper unlockSweeper;
+    private OfflineUnlockJob offlineUnlockJob;
+    private StorageMigrationJob storageMigrationJob;
     private TitleGUI titleGUI;
     private UnlockedTitleGUI unlockedTitleGUI;
     private EconomyIntegration economyIntegration;
@@ -101,7 +110,18 @@ public final class ZPrefix extends JavaPlugin {
             // 第二步：停止统计监听器的定期检查
             if (vanillaStatsListener != null) {
                 try {
-                    vanillaStatsListener.stopPeriodicCheck();
+                    if (unlockSweeper != null) {
+                        unlockSweeper.stop();
+                    }
+                    if (offlineUnlockJob != null) {
+                        offlineUnlockJob.stop();
+                    }
+                    if (storageMigrationJob != null) {
+                        storageMigrationJob.stop();
+                    }
+                    if (unlockCheckScheduler != null) {
+                        unlockCheckScheduler.stop();
+                    }
                     getLogger().info("✓ 统计监听器已停止");
                 } catch (Exception e) {
                     getLogger().warning("停止统计监听器时出错: " + e.getMessage());
@@ -186,6 +206,10 @@ public final class ZPrefix extends JavaPlugin {
             // 第五步：统计管理器
             getLogger().info("初始化统计管理器...");
             vanillaStatsManager = new VanillaStatsManager(this, configManager, titleManager);
+            unlockCheckScheduler = new UnlockCheckScheduler(this, vanillaStatsManager);
+            unlockSweeper = new UnlockSweeper(this, vanillaStatsManager);
+            offlineUnlockJob = new OfflineUnlockJob(this, configManager, titleManager);
+            storageMigrationJob = new StorageMigrationJob(this, configManager, titleManager);
             getLogger().info("✓ 统计管理器初始化完成 (使用Minecraft原版统计数据系统)");
 
             // 第六步：经济系统集成（可选，失败不影响主要功能）
@@ -275,7 +299,9 @@ public final class ZPrefix extends JavaPlugin {
             // 创建监听器实例
             playerListener = new PlayerListener(this, titleManager);
             guiListener = new GUIListener(this, titleGUI);
-            vanillaStatsListener = new VanillaStatsListener(this, vanillaStatsManager);
+            vanillaStatsListener = new VanillaStatsListener(this, vanillaStatsManager, unlockCheckScheduler);
+            unlockCheckScheduler.start();
+            unlockSweeper.start();
 
             // 注册监听器
             getServer().getPluginManager().registerEvents(playerListener, this);
@@ -340,17 +366,28 @@ public final class ZPrefix extends JavaPlugin {
                 saveInterval = 60;
             }
 
-            getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            // 快照在主线程创建，写盘由存储线程完成
+            getServer().getScheduler().runTaskTimer(this, () -> {
                 try {
                     if (titleManager != null) {
                         titleManager.savePlayerData();
-                        getLogger().info("自动保存玩家数据完成");
                     }
                 } catch (Exception e) {
                     getLogger().warning("自动保存时出错: " + e.getMessage());
                 }
             }, saveInterval * 20L, saveInterval * 20L);
 
+            // 定期移除已下线且数据已保存的玩家
+            getServer().getScheduler().runTaskTimer(this, () -> {
+                try {
+                    if (titleManager != null) {
+                        titleManager.evictOfflinePlayers();
+                    }
+                } catch (Exception e) {
+                    getLogger().warning("清理离线玩家缓存时出错: " + e.getMessage());
+                }
+            }, 1200L, 1200L);
+
             getLogger().info("自动保存任务已启动，间隔: " + saveInterval + " 秒");
             return true;
 
@@ -371,6 +408,9 @@ public final class ZPrefix extends JavaPlugin {
 
         // 取消所有任务
         getServer().getScheduler().cancelTasks(this);
+
+        // 释放称号索引，插件重新加载时从空索引开始
+        TitleIndex.reset();
     }
 
     // Getter 方法，供其他类访问管理器实例
@@ -391,6 +431,22 @@ public final class ZPrefix extends JavaPlugin {
         return vanillaStatsManager;
     }
 
+    public UnlockCheckScheduler getUnlockCheckScheduler() {
+        return unlockCheckScheduler;
+    }
+
+    public UnlockSweeper getUnlockSweeper() {
+        return unlockSweeper;
+    }
+
+    public OfflineUnlockJob getOfflineUnlockJob() {
+        return offlineUnlockJob;
+    }
+
+    public StorageMigrationJob getStorageMigrationJob() {
+        return storageMigrationJob;
+    }
+
     public TitleGUI getTitleGUI() {
         return titleGUI;
     }
@@ -6,7 +6,14 @@ import com.github.chengge.zprefix.data.TitleInfo;
 import com.github.chengge.zprefix.gui.TitleGUI;
 import com.github.chengge.zprefix.manager.BuffManager;
 import com.github.chengge.zprefix.manager.ConfigManager;
+import com.github.chengge.zprefix.manager.OfflineUnlockJob;
+import com.github.chengge.zprefix.manager.StorageMigrationJob;
 import com.github.chengge.zprefix.manager.TitleManager;
+import com.github.chengge.zprefix.manager.UnlockCheckScheduler;
+import com.github.chengge.zprefix.manager.UnlockSweeper;
+import com.github.chengge.zprefix.manager.VanillaStatsManager;
+import com.github.chengge.zprefix.storage.PlayerDataConverter;
+import com.github.chengge.zprefix.storage.PlayerDataSaver;
 import com.github.chengge.zprefix.util.MessageUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
@@ -15,7 +22,10 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 /**
@@ -72,6 +82,14 @@ public class TitleCommand implements CommandExecutor, TabCompleter {
                 return handleReloadCommand(sender);
             case "cleanup":
                 return handleCleanupCommand(sender, args);
+            case "stats":
+                return handleStatsCommand(sender, args);
+            case "backfill":
+                return handleBackfillCommand(sender, args);
+            case "convert":
+                return handleConvertCommand(sender, args);
+            case "migrate":
+                return handleMigrateCommand(sender, args);
             case "help":
             default:
                 showHelp(sender);
@@ -258,6 +276,13 @@ public class TitleCommand implements CommandExecutor, TabCompleter {
             for (Map.Entry<String, Object> condition : unlockConditions.entrySet()) {
                 String conditionType = condition.getKey();
                 Object conditionValue = condition.getValue();
+
+                if (TitleInfo.isNestedCondition(conditionType)) {
+                    for (String nestedText : titleInfo.getNestedConditionTexts(conditionType, conditionValue)) {
+                        sender.sendMessage("  " + nestedText);
+                    }
+                    continue;
+                }
                 
                 // 使用统一的格式化方法
                 String conditionText = formatUnlockConditionForInfo(conditionType, conditionValue);
@@ -504,9 +529,20 @@ public class TitleCommand implements CommandExecutor, TabCompleter {
                 return handleCleanupAllCommand(sender);
             case "player":
                 return handleCleanupPlayerCommand(sender, args);
+            case "empty":
+                MessageUtil.sendPrefixedMessage(sender, "title.cleanup-empty-started");
+                titleManager.purgeEmptyRecords().whenComplete((purged, error) ->
+                    Bukkit.getScheduler().runTask(plugin, () -> {
+                        if (error != null) {
+                            MessageUtil.sendPrefixedMessage(sender, "title.cleanup-empty-failed", "error", String.valueOf(error.getMessage()));
+                        } else {
+                            MessageUtil.sendPrefixedMessage(sender, "title.cleanup-empty-success", "count", String.valueOf(purged));
+                        }
+                    }));
+                return true;
             default:
                 MessageUtil.sendPrefixedMessage(sender, "common.invalid-args",
-                    "usage", "/title cleanup [all|player <玩家名>]");
+                    "usage", "/title cleanup [all|player <玩家名>|empty]");
                 return true;
         }
     }
@@ -547,6 +583,193 @@ public class TitleCommand implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    /**
+     * 处理运行统计命令
+     */
+    private boolean handleStatsCommand(CommandSender sender, String[] args) {
+        if (!MessageUtil.checkPermission(sender, "zprefix.admin")) {
+            return true;
+        }
+
+        UnlockCheckScheduler scheduler = plugin.getUnlockCheckScheduler();
+        if (scheduler == null) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.stats.scheduler-disabled");
+            return true;
+        }
+
+        if (args.length >= 2 && "reset".equalsIgnoreCase(args[1])) {
+            scheduler.resetCounters();
+            plugin.getVanillaStatsManager().resetSkipCounters();
+            MessageUtil.sendPrefixedMessage(sender, "admin.stats.reset");
+            return true;
+        }
+
+        VanillaStatsManager vanillaStatsManager = plugin.getVanillaStatsManager();
+        MessageUtil.sendMessage(sender, "admin.stats.header");
+        MessageUtil.sendMessage(sender, "admin.stats.drain-interval", "ticks", String.valueOf(scheduler.getDrainInterval()));
+        MessageUtil.sendMessage(sender, "admin.stats.watermark-skips", "count", String.valueOf(vanillaStatsManager.getWatermarkSkips()));
+        MessageUtil.sendMessage(sender, "admin.stats.completed-skips", "count", String.valueOf(vanillaStatsManager.getCompletedSkips()));
+        MessageUtil.sendMessage(sender, "admin.stats.requested-checks", "count", String.valueOf(scheduler.getRequestedChecks()));
+        MessageUtil.sendMessage(sender, "admin.stats.executed-checks", "count", String.valueOf(scheduler.getExecutedChecks()));
+        MessageUtil.sendMessage(sender, "admin.stats.coalesced-checks", "count", String.valueOf(scheduler.getCoalescedChecks()));
+        MessageUtil.sendMessage(sender, "admin.stats.drain-cycles", "count", String.valueOf(scheduler.getDrainCycles()));
+        MessageUtil.sendMessage(sender, "admin.stats.pending-players", "count", String.valueOf(scheduler.getPendingPlayerCount()));
+
+        UnlockSweeper sweeper = plugin.getUnlockSweeper();
+        if (sweeper != null) {
+            MessageUtil.sendMessage(sender, "admin.stats.sweep-budget", "micros", String.valueOf(sweeper.getBudgetMicros()));
+            MessageUtil.sendMessage(sender, "admin.stats.sweeps-completed", "count", String.valueOf(sweeper.getCompletedSweeps()));
+            if (sweeper.getLastSweepMillis() >= 0) {
+                MessageUtil.sendMessage(sender, "admin.stats.last-sweep",
+                        "players", String.valueOf(sweeper.getLastSweepPlayers()),
+                        "millis", String.valueOf(sweeper.getLastSweepMillis()),
+                        "ticks", String.valueOf(sweeper.getLastSweepTicks()),
+                        "micros", String.valueOf(sweeper.getLastSweepWorkMicros()));
+            }
+            MessageUtil.sendMessage(sender, "admin.stats.sweep-pending", "count", String.valueOf(sweeper.getPendingPlayerCount()));
+        }
+
+        MessageUtil.sendMessage(sender, "admin.stats.cached-players",
+                "count", String.valueOf(titleManager.getCachedPlayerCount()),
+                "offline", String.valueOf(titleManager.getOfflineCachedPlayerCount()));
+        PlayerDataSaver saver = titleManager.getSaver();
+        if (saver.getLastSaveMillis() >= 0) {
+            MessageUtil.sendMessage(sender, "admin.stats.last-save",
+                    "records", String.valueOf(saver.getLastSaveRecords()),
+                    "bytes", String.valueOf(saver.getLastSaveBytes()),
+                    "millis", String.valueOf(saver.getLastSaveMillis()));
+        }
+        MessageUtil.sendMessage(sender, "admin.stats.total-saved",
+                "records", String.valueOf(saver.getTotalSavedRecords()),
+                "bytes", String.valueOf(saver.getTotalSavedBytes()),
+                "skipped", String.valueOf(saver.getSkippedSaves()));
+        return true;
+    }
+
+    /**
+     * 处理离线补发称号命令
+     */
+    private boolean handleBackfillCommand(CommandSender sender, String[] args) {
+        if (!MessageUtil.checkPermission(sender, "zprefix.admin")) {
+            return true;
+        }
+
+        OfflineUnlockJob job = plugin.getOfflineUnlockJob();
+        if (job == null) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.backfill.unavailable");
+            return true;
+        }
+
+        String action = args.length >= 2 ? args[1].toLowerCase() : "start";
+        switch (action) {
+            case "start":
+                job.start(sender);
+                return true;
+            case "stop":
+                if (job.isRunning()) {
+                    job.stop();
+                    MessageUtil.sendPrefixedMessage(sender, "admin.backfill.stopping");
+                } else {
+                    MessageUtil.sendPrefixedMessage(sender, "admin.backfill.not-running");
+                }
+                return true;
+            case "status":
+                job.sendStatus(sender);
+                return true;
+            default:
+                MessageUtil.sendPrefixedMessage(sender, "common.invalid-args",
+                    "usage", "/title backfill [start|stop|status]");
+                return true;
+        }
+    }
+
+    /**
+     * 处理玩家数据格式转换命令
+     */
+    private boolean handleConvertCommand(CommandSender sender, String[] args) {
+        if (!MessageUtil.checkPermission(sender, "zprefix.admin")) {
+            return true;
+        }
+
+        String target = args.length >= 2 ? args[1].toLowerCase() : "";
+        if (!"binary".equals(target) && !"yaml".equals(target)) {
+            MessageUtil.sendPrefixedMessage(sender, "common.invalid-args", "usage", "/title convert <binary|yaml>");
+            return true;
+        }
+
+        // 不覆盖正在使用的数据文件
+        String activeType = titleManager.getStorageType();
+        if (("binary".equals(target) && "binary".equals(activeType)) || ("yaml".equals(target) && "file".equals(activeType))) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.convert.storage-in-use");
+            return true;
+        }
+
+        File yamlFile = new File(plugin.getDataFolder(), configManager.getConfigValue("database.file-path", "data/player_titles.yml"));
+        File binaryFile = new File(plugin.getDataFolder(), configManager.getConfigValue("database.binary-path", "data/player_titles.bin"));
+        File source = "binary".equals(target) ? yamlFile : binaryFile;
+        if (!source.exists()) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.convert.source-missing", "file", source.getName());
+            return true;
+        }
+
+        MessageUtil.sendPrefixedMessage(sender, "admin.convert.started",
+                "from", source.getName(), "to", ("binary".equals(target) ? binaryFile : yamlFile).getName());
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                long startTime = System.currentTimeMillis();
+                int count = "binary".equals(target)
+                        ? PlayerDataConverter.yamlToBinary(yamlFile, binaryFile)
+                        : PlayerDataConverter.binaryToYaml(binaryFile, yamlFile);
+                String millis = String.valueOf(System.currentTimeMillis() - startTime);
+                Bukkit.getScheduler().runTask(plugin, () -> MessageUtil.sendPrefixedMessage(sender, "admin.convert.finished",
+                        "count", String.valueOf(count), "millis", millis));
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "转换玩家数据失败", e);
+                Bukkit.getScheduler().runTask(plugin, () -> MessageUtil.sendPrefixedMessage(sender, "admin.convert.failed",
+                        "error", String.valueOf(e.getMessage())));
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 处理存储迁移命令
+     */
+    private boolean handleMigrateCommand(CommandSender sender, String[] args) {
+        if (!MessageUtil.checkPermission(sender, "zprefix.admin")) {
+            return true;
+        }
+
+        StorageMigrationJob job = plugin.getStorageMigrationJob();
+        if (job == null) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.migrate.unavailable");
+            return true;
+        }
+
+        String action = args.length >= 2 ? args[1].toLowerCase() : "";
+        if ("status".equals(action)) {
+            job.sendStatus(sender);
+            return true;
+        }
+        if ("stop".equals(action)) {
+            if (job.isRunning()) {
+                job.stop();
+                MessageUtil.sendPrefixedMessage(sender, "admin.migrate.stopping");
+            } else {
+                MessageUtil.sendPrefixedMessage(sender, "admin.migrate.not-running");
+            }
+            return true;
+        }
+        if (args.length < 3) {
+            MessageUtil.sendPrefixedMessage(sender, "common.invalid-args",
+                "usage", "/title migrate <源存储> <目标存储> | status | stop");
+            return true;
+        }
+
+        job.start(sender, args[1], args[2]);
+        return true;
+    }
+
     /**
      * 显示帮助信息
      */
@@ -562,7 +785,11 @@ public class TitleCommand implements CommandExecutor, TabCompleter {
             sender.sendMessage(MessageUtil.getMessage("help.title-give"));
             sender.sendMessage(MessageUtil.getMessage("help.title-take"));
             sender.sendMessage(MessageUtil.getMessage("help.title-reload"));
-            sender.sendMessage("§e/title cleanup [all|player <玩家>] §7- 清理无效称号数据");
+            sender.sendMessage(MessageUtil.getMessage("help.title-cleanup"));
+            sender.sendMessage(MessageUtil.getMessage("help.title-stats"));
+            sender.sendMessage(MessageUtil.getMessage("help.title-backfill"));
+            sender.sendMessage(MessageUtil.getMessage("help.title-convert"));
+            sender.sendMessage(MessageUtil.getMessage("help.title-migrate"));
         }
 
         // 显示底部提示
@@ -575,38 +802,7 @@ public class TitleCommand implements CommandExecutor, TabCompleter {
      * 支持精确匹配和模糊匹配（去除颜色代码）
      */
     private String findTitleIdByDisplayName(String displayName) {
-        Map<String, TitleInfo> allTitles = configManager.getAllTitles();
-
-        // 去除输入的颜色代码，用于模糊匹配
-        String cleanInputName = displayName.replaceAll("§[0-9a-fk-or]", "");
-
-        // 首先尝试精确匹配（包含颜色代码）
-        for (Map.Entry<String, TitleInfo> entry : allTitles.entrySet()) {
-            String titleDisplayName = entry.getValue().getDisplayName();
-            if (titleDisplayName.equals(displayName)) {
-                return entry.getKey();
-            }
-        }
-
-        // 然后尝试模糊匹配（去除颜色代码）
-        for (Map.Entry<String, TitleInfo> entry : allTitles.entrySet()) {
-            String titleDisplayName = entry.getValue().getDisplayName();
-            String cleanTitleName = titleDisplayName.replaceAll("§[0-9a-fk-or]", "");
-            if (cleanTitleName.equals(cleanInputName)) {
-                return entry.getKey();
-            }
-        }
-
-        // 最后尝试包含匹配（部分匹配）
-        for (Map.Entry<String, TitleInfo> entry : allTitles.entrySet()) {
-            String titleDisplayName = entry.getValue().getDisplayName();
-            String cleanTitleName = titleDisplayName.replaceAll("§[0-9a-fk-or]", "");
-            if (cleanTitleName.toLowerCase().contains(cleanInputName.toLowerCase())) {
-                return entry.getKey();
-            }
-        }
-
-        return null;
+        return configManager.getCatalog().getDisplayNameIndex().find(displayName);
     }
 
     /**
@@ -640,7 +836,7 @@ public class TitleCommand implements CommandExecutor, TabCompleter {
             List<String> subCommands = Arrays.asList("gui", "set", "remove", "list", "info");
             if (sender.hasPermission("zprefix.admin")) {
                 subCommands = new ArrayList<>(subCommands);
-                subCommands.addAll(Arrays.asList("give", "take", "reload", "cleanup"));
+                subCommands.addAll(Arrays.asList("give", "take", "reload", "cleanup", "stats", "backfill", "convert", "migrate"));
             }
 
             return subCommands.stream()
@@ -656,21 +852,11 @@ public class TitleCommand implements CommandExecutor, TabCompleter {
                 if (sender instanceof Player) {
                     Player player = (Player) sender;
                     Set<String> unlockedTitles = titleManager.getUnlockedTitles(player);
-                    return unlockedTitles.stream()
-                            .map(titleId -> {
-                                TitleInfo titleInfo = configManager.getTitleInfo(titleId);
-                                return titleInfo != null ? titleInfo.getDisplayName().replaceAll("§[0-9a-fk-or]", "") : titleId;
-                            })
-                            .filter(displayName -> displayName.toLowerCase().startsWith(args[1].toLowerCase()))
-                            .collect(Collectors.toList());
+                    return configManager.getCatalog().getDisplayNameIndex().complete(args[1], unlockedTitles::contains);
                 }
             } else if ("info".equals(subCommand)) {
                 // info命令：显示所有称号显示名
-                Map<String, TitleInfo> allTitles = configManager.getAllTitles();
-                return allTitles.values().stream()
-                        .map(titleInfo -> titleInfo.getDisplayName().replaceAll("§[0-9a-fk-or]", ""))
-                        .filter(displayName -> displayName.toLowerCase().startsWith(args[1].toLowerCase()))
-                        .collect(Collectors.toList());
+                return configManager.getCatalog().getDisplayNameIndex().complete(args[1], null);
             } else if ("give".equals(subCommand) || "take".equals(subCommand)) {
                 // 玩家名补全
                 return Bukkit.getOnlinePlayers().stream()
@@ -679,9 +865,25 @@ public class TitleCommand implements CommandExecutor, TabCompleter {
                         .collect(Collectors.toList());
             } else if ("cleanup".equals(subCommand)) {
                 // cleanup子命令
-                return Arrays.asList("all", "player").stream()
+                return Arrays.asList("all", "player", "empty").stream()
                         .filter(cmd -> cmd.toLowerCase().startsWith(args[1].toLowerCase()))
                         .collect(Collectors.toList());
+            } else if ("stats".equals(subCommand) && sender.hasPermission("zprefix.admin")) {
+                return Arrays.asList("reset").stream()
+                        .filter(cmd -> cmd.startsWith(args[1].toLowerCase()))
+                        .collect(Collectors.toList());
+            } else if ("backfill".equals(subCommand) && sender.hasPermission("zprefix.admin")) {
+                return Arrays.asList("start", "stop", "status").stream()
+                        .filter(cmd -> cmd.startsWith(args[1].toLowerCase()))
+                        .collect(Collectors.toList());
+            } else if ("convert".equals(subCommand) && sender.hasPermission("zprefix.admin")) {
+                return Arrays.asList("binary", "yaml").stream()
+                        .filter(cmd -> cmd.startsWith(args[1].toLowerCase()))
+                        .collect(Collectors.toList());
+            } else if ("migrate".equals(subCommand) && sender.hasPermission("zprefix.admin")) {
+                return Arrays.asList("file", "sharded", "binary", "mysql", "sqlite", "status", "stop").stream()
+                        .filter(cmd -> cmd.startsWith(args[1].toLowerCase()))
+                        .collect(Collectors.toList());
             }
         }
 
@@ -690,17 +892,18 @@ public class TitleCommand implements CommandExecutor, TabCompleter {
 
             if ("give".equals(subCommand) || "take".equals(subCommand)) {
                 // 称号显示名补全
-                Map<String, TitleInfo> allTitles = configManager.getAllTitles();
-                return allTitles.values().stream()
-                        .map(titleInfo -> titleInfo.getDisplayName().replaceAll("§[0-9a-fk-or]", ""))
-                        .filter(displayName -> displayName.toLowerCase().startsWith(args[2].toLowerCase()))
-                        .collect(Collectors.toList());
+                return configManager.getCatalog().getDisplayNameIndex().complete(args[2], null);
             } else if ("cleanup".equals(subCommand) && "player".equals(args[1].toLowerCase())) {
                 // cleanup player 玩家名补全
                 return Bukkit.getOnlinePlayers().stream()
                         .map(Player::getName)
                         .filter(name -> name.toLowerCase().startsWith(args[2].toLowerCase()))
                         .collect(Collectors.toList());
+            } else if ("migrate".equals(subCommand) && sender.hasPermission("zprefix.admin")) {
+                return Arrays.asList("file", "sharded", "binary", "mysql", "sqlite").stream()
+                        .filter(type -> !type.equals(args[1].toLowerCase()))
+                        .filter(type -> type.startsWith(args[2].toLowerCase()))
+                        .collect(Collectors.toList());
             }
         }
 
@@ -0,0 +1,126 @@
+package com.github.chengge.zprefix.condition;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 条件图
+ * 在称号加载时由所有称号的解锁条件共同构建，结构相同的条件和子表达式只创建一个节点，
+ * 使检查时每个叶子和子表达式对每名玩家只求值一次
+ */
+public final class ConditionGraph {
+
+    private final Map<String, ConditionNode> nodes = new HashMap<>();
+    private int leafCount;
+    private int sharedCount;
+
+    /**
+     * 获取或创建叶子节点
+     *
+     * @param key 规范化的条件键
+     * @param factory 条件不存在时用于创建
+     * @return 叶子节点
+     */
+    public ConditionNode leaf(String key, Supplier<UnlockCondition> factory) {
+        ConditionNode node = nodes.get(key);
+        if (node != null) {
+            sharedCount++;
+            return node;
+        }
+
+        node = new ConditionNode(this, nodes.size(), ConditionNode.Kind.LEAF, factory.get(), null);
+        nodes.put(key, node);
+        leafCount++;
+        return node;
+    }
+
+    /**
+     * 获取或创建"全部满足"节点，只有一个子节点时直接返回该子节点，没有子节点时返回 TRUE
+     *
+     * @param children 子节点
+     * @return 节点
+     */
+    public ConditionNode all(List<ConditionNode> children) {
+        return group(ConditionNode.Kind.ALL, children);
+    }
+
+    /**
+     * 获取或创建"任一满足"节点，只有一个子节点时直接返回该子节点
+     *
+     * @param children 子节点
+     * @return 节点
+     */
+    public ConditionNode any(List<ConditionNode> children) {
+        return group(ConditionNode.Kind.ANY, children);
+    }
+
+    /**
+     * 获取或创建取反节点
+     *
+     * @param child 子节点
+     * @return 节点
+     */
+    public ConditionNode not(ConditionNode child) {
+        return intern("not(" + child.getId() + ")", ConditionNode.Kind.NOT, new ConditionNode[] {child});
+    }
+
+    /**
+     * 获取节点总数
+     *
+     * @return 节点数
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * 获取叶子节点数
+     *
+     * @return 叶子节点数
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * 获取复用已有节点的次数
+     *
+     * @return 复用次数
+     */
+    public int getSharedCount() {
+        return sharedCount;
+    }
+
+    private ConditionNode group(ConditionNode.Kind kind, List<ConditionNode> children) {
+        // 子节点去重并按ID排序，使顺序不同的相同组合得到同一个节点
+        TreeMap<Integer, ConditionNode> unique = new TreeMap<>();
+        for (ConditionNode child : children) {
+            unique.put(child.getId(), child);
+        }
+        if (unique.isEmpty() && kind == ConditionNode.Kind.ALL) {
+            return ConditionNode.TRUE;
+        }
+        if (unique.size() == 1) {
+            return unique.firstEntry().getValue();
+        }
+
+        StringBuilder key = new StringBuilder(kind.name().toLowerCase(Locale.ROOT)).append('(');
+        for (Integer id : unique.keySet()) {
+            key.append(id).append(',');
+        }
+        key.append(')');
+        return intern(key.toString(), kind, unique.values().toArray(new ConditionNode[0]));
+    }
+
+    private ConditionNode intern(String key, ConditionNode.Kind kind, ConditionNode[] children) {
+        ConditionNode node = nodes.get(key);
+        if (node != null) {
+            sharedCount++;
+            return node;
+        }
+
+        node = new ConditionNode(this, nodes.size(), kind, null, children);
+        nodes.put(key, node);
+        return node;
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.chengge.zprefix.condition;
+
+/**
+ * 条件图中的节点
+ * 叶子节点是单个解锁条件，组合节点为 all（全部满足）、any（任一满足）和 not（取反）；
+ * 相同的节点在整个称号配置中只存在一份
+ */
+public final class ConditionNode {
+
+    /**
+     * 节点类型
+     */
+    public enum Kind {
+        LEAF, ALL, ANY, NOT
+    }
+
+    /**
+     * 不含任何条件的"全部满足"节点，始终满足
+     */
+    public static final ConditionNode TRUE = new ConditionNode(null, -1, Kind.ALL, null, new ConditionNode[0]);
+
+    private final ConditionGraph graph;
+    private final int id;
+    private final Kind kind;
+    private final UnlockCondition condition;
+    private final ConditionNode[] children;
+
+    ConditionNode(ConditionGraph graph, int id, Kind kind, UnlockCondition condition, ConditionNode[] children) {
+        this.graph = graph;
+        this.id = id;
+        this.kind = kind;
+        this.condition = condition;
+        this.children = children;
+    }
+
+    /**
+     * 求值
+     * 正向（未被取反）求值时，未满足的叶子条件会把剩余量与对应槽位的水位线取最小值；
+     * 被取反的条件只会因统计增长而变为不满足，不记录剩余量
+     *
+     * @param context 检查上下文
+     * @param watermarks 按槽位记录的最小剩余量，为null时不记录
+     * @param negated 是否处于取反的分支中
+     * @return 是否满足
+     */
+    public boolean evaluate(EvaluationContext context, long[] watermarks, boolean negated) {
+        boolean collecting = watermarks != null && !negated;
+        Boolean cached = context.getCachedValue(this, collecting);
+        if (cached != null) {
+            return cached;
+        }
+
+        boolean value;
+        switch (kind) {
+            case LEAF:
+                long remaining = condition.remaining(context);
+                value = remaining <= 0;
+                if (!value && collecting) {
+                    int slot = condition.getSlot();
+                    if (remaining < watermarks[slot]) {
+                        watermarks[slot] = remaining;
+                    }
+                }
+                break;
+            case ALL:
+                // 不短路，保证每个子节点的剩余量都被记录
+                value = true;
+                for (ConditionNode child : children) {
+                    if (!child.evaluate(context, watermarks, negated)) {
+                        value = false;
+                    }
+                }
+                break;
+            case ANY:
+                value = false;
+                for (ConditionNode child : children) {
+                    if (child.evaluate(context, watermarks, negated)) {
+                        value = true;
+                    }
+                }
+                break;
+            case NOT:
+                value = !children[0].evaluate(context, watermarks, !negated);
+                break;
+            default:
+                throw new IllegalStateException("未知的节点类型: " + kind);
+        }
+
+        context.cacheValue(this, value, collecting);
+        return value;
+    }
+
+    /**
+     * 获取节点所属的条件图
+     *
+     * @return 条件图，TRUE 节点返回null
+     */
+    public ConditionGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * 获取节点ID
+     *
+     * @return 节点ID
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * 获取节点类型
+     *
+     * @return 节点类型
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * 获取叶子节点的解锁条件
+     *
+     * @return 解锁条件，组合节点返回null
+     */
+    public UnlockCondition getCondition() {
+        return condition;
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.chengge.zprefix.condition;
+
+import com.github.chengge.zprefix.manager.VanillaStatsManager;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+
+/**
+ * 一次条件检查的上下文
+ * 每个进度槽位的统计值在一次检查中最多读取一次，条件图中每个节点的结果也只计算一次，
+ * 由所有引用它的称号共享
+ */
+public final class EvaluationContext {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+
+    private final VanillaStatsManager stats;
+    private final Player player;
+    private final long[] slotValues;
+    private final boolean[] slotLoaded;
+
+    // 节点结果缓存，以及是否已在正向求值中记录过剩余量；只缓存同一张条件图中的节点
+    private ConditionGraph graph;
+    private byte[] nodeValues = new byte[64];
+    private boolean[] nodeCollected = new boolean[64];
+
+    private EvaluationContext(VanillaStatsManager stats, Player player, long[] slotValues, boolean[] slotLoaded) {
+        this.stats = stats;
+        this.player = player;
+        this.slotValues = slotValues;
+        this.slotLoaded = slotLoaded;
+    }
+
+    /**
+     * 创建在线玩家的检查上下文，统计值在首次使用时读取
+     *
+     * @param stats 统计管理器
+     * @param player 玩家
+     * @return 检查上下文
+     */
+    public static EvaluationContext online(VanillaStatsManager stats, Player player) {
+        return new EvaluationContext(stats, player, new long[StatSlots.COUNT], new boolean[StatSlots.COUNT]);
+    }
+
+    /**
+     * 创建离线玩家的检查上下文，统计值已按槽位汇总
+     *
+     * @param slotValues 按槽位汇总的原始统计值
+     * @return 检查上下文
+     */
+    public static EvaluationContext offline(long[] slotValues) {
+        boolean[] loaded = new boolean[StatSlots.COUNT];
+        Arrays.fill(loaded, true);
+        return new EvaluationContext(null, null, slotValues, loaded);
+    }
+
+    /**
+     * 读取数值统计（原始统计单位）
+     *
+     * @param accessor 统计读取方式
+     * @return 原始统计值
+     */
+    public long read(StatAccessor accessor) {
+        int slot = StatSlots.slotOf(accessor);
+        if (!slotLoaded[slot]) {
+            slotValues[slot] = accessor.readRaw(stats, player);
+            slotLoaded[slot] = true;
+        }
+        return slotValues[slot];
+    }
+
+    /**
+     * 检查是否触发过特殊事件
+     *
+     * @param event 特殊事件
+     * @return 是否触发过
+     */
+    public boolean test(SpecialEvent event) {
+        int slot = StatSlots.slotOf(event);
+        if (!slotLoaded[slot]) {
+            slotValues[slot] = event.test(stats, player) ? 1 : 0;
+            slotLoaded[slot] = true;
+        }
+        return slotValues[slot] > 0;
+    }
+
+    /**
+     * 读取时间窗口内的累计值，离线玩家没有窗口记录，始终为0
+     *
+     * @param condition 时间窗口条件
+     * @return 累计值（原始统计单位）
+     */
+    public long windowTotal(WindowedCondition condition) {
+        return player != null ? stats.getWindowTotal(player, condition) : 0;
+    }
+
+    /**
+     * 获取节点的缓存结果
+     *
+     * @param node 节点
+     * @param collecting 本次求值是否需要记录剩余量
+     * @return 缓存的结果，没有可用缓存时返回null
+     */
+    Boolean getCachedValue(ConditionNode node, boolean collecting) {
+        if (!isCacheable(node)) {
+            return null;
+        }
+        int nodeId = node.getId();
+        if (nodeId >= nodeValues.length || nodeValues[nodeId] == UNKNOWN) {
+            return null;
+        }
+        if (collecting && !nodeCollected[nodeId]) {
+            return null; // 之前只在取反的分支中求值过，需要重新记录剩余量
+        }
+        return nodeValues[nodeId] == TRUE;
+    }
+
+    /**
+     * 缓存节点结果
+     *
+     * @param node 节点
+     * @param value 结果
+     * @param collected 是否已记录剩余量
+     */
+    void cacheValue(ConditionNode node, boolean value, boolean collected) {
+        if (!isCacheable(node)) {
+            return;
+        }
+        int nodeId = node.getId();
+        if (nodeId >= nodeValues.length) {
+            int size = Math.max(nodeId + 1, nodeValues.length * 2);
+            nodeValues = Arrays.copyOf(nodeValues, size);
+            nodeCollected = Arrays.copyOf(nodeCollected, size);
+        }
+        nodeValues[nodeId] = value ? TRUE : FALSE;
+        nodeCollected[nodeId] |= collected;
+    }
+
+    /**
+     * 节点ID只在所属的条件图内唯一，重载配置前后的节点不能共用缓存
+     */
+    private boolean isCacheable(ConditionNode node) {
+        if (node.getGraph() == null) {
+            return false;
+        }
+        if (graph == null) {
+            graph = node.getGraph();
+        }
+        return graph == node.getGraph();
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.chengge.zprefix.condition;
+
+import com.github.chengge.zprefix.manager.VanillaStatsManager;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * special-event 解锁条件支持的特殊事件
+ */
+public enum SpecialEvent {
+
+    // 稀有物品获得事件
+    GET_DIAMOND("get-diamond", Material.DIAMOND),
+    GET_EMERALD("get-emerald", Material.EMERALD),
+    GET_NETHERITE("get-netherite", Material.NETHERITE_INGOT),
+    GET_TOTEM("get-totem", Material.TOTEM_OF_UNDYING),
+    GET_ELYTRA("get-elytra", Material.ELYTRA),
+    GET_NETHER_STAR("get-nether-star", Material.NETHER_STAR),
+    GET_DRAGON_EGG("get-dragon-egg", Material.DRAGON_EGG),
+
+    // 维度探索事件
+    ENTER_NETHER("enter-nether", VanillaStatsManager::hasEnteredNether, StatDependency.concat(
+            StatDependency.mined(Material.NETHERRACK, Material.NETHER_GOLD_ORE, Material.NETHER_QUARTZ_ORE),
+            StatDependency.pickedUp(Material.BLAZE_ROD, Material.GHAST_TEAR))),
+    ENTER_END("enter-end", VanillaStatsManager::hasEnteredEnd, StatDependency.concat(
+            StatDependency.mined(Material.END_STONE),
+            StatDependency.pickedUp(Material.ENDER_PEARL, Material.CHORUS_FRUIT),
+            StatDependency.killed(EntityType.ENDERMAN, EntityType.ENDER_DRAGON)));
+
+    private static final Map<String, SpecialEvent> BY_ID = new HashMap<>();
+
+    static {
+        for (SpecialEvent event : values()) {
+            BY_ID.put(event.id, event);
+        }
+    }
+
+    private final String id;
+    private final BiPredicate<VanillaStatsManager, Player> check;
+    private final List<StatDependency> dependencies;
+
+    SpecialEvent(String id, BiPredicate<VanillaStatsManager, Player> check, List<StatDependency> dependencies) {
+        this.id = id;
+        this.check = check;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * 捡起过指定物品即触发的事件
+     */
+    SpecialEvent(String id, Material item) {
+        this(id, (stats, player) -> stats.getItemsPickedUp(player, item) > 0, StatDependency.pickedUp(item));
+    }
+
+    /**
+     * 获取事件ID
+     *
+     * @return 事件ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 获取判断时读取的原版统计，统计变化时据此找到受影响的槽位
+     *
+     * @return 依赖的统计列表
+     */
+    List<StatDependency> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * 检查玩家是否已触发该事件
+     *
+     * @param stats 统计管理器
+     * @param player 玩家
+     * @return 是否已触发
+     */
+    public boolean test(VanillaStatsManager stats, Player player) {
+        return check.test(stats, player);
+    }
+
+    /**
+     * 根据事件ID查找特殊事件
+     *
+     * @param id 事件ID
+     * @return 特殊事件，不存在时返回null
+     */
+    public static SpecialEvent fromId(String id) {
+        return BY_ID.get(id);
+    }
+}
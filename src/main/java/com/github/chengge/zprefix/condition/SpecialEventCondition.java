@@ -0,0 +1,33 @@
+package com.github.chengge.zprefix.condition;
+
+/**
+ * 特殊事件条件：玩家触发过指定事件即满足
+ */
+public final class SpecialEventCondition implements UnlockCondition {
+
+    private final SpecialEvent event;
+
+    public SpecialEventCondition(SpecialEvent event) {
+        this.event = event;
+    }
+
+    @Override
+    public long remaining(EvaluationContext context) {
+        // 相关统计之和大于0即满足，未满足时只差1
+        return context.test(event) ? 0 : 1;
+    }
+
+    @Override
+    public int getSlot() {
+        return StatSlots.slotOf(event);
+    }
+
+    /**
+     * 获取特殊事件
+     *
+     * @return 特殊事件
+     */
+    public SpecialEvent getEvent() {
+        return event;
+    }
+}
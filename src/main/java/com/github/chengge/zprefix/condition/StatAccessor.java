@@ -0,0 +1,228 @@
+package com.github.chengge.zprefix.condition;
+
+import com.github.chengge.zprefix.manager.VanillaStatsManager;
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * 数值型解锁条件的统计读取方式
+ * 每个常量对应 unlock-conditions 中的一个条件键，读取值的单位与配置中的阈值一致；
+ * 原始值为原版统计的单位（厘米、tick、十分之一心等），等于配置单位乘以 unitScale；
+ * 每个常量同时声明读取的原版统计
+ */
+public enum StatAccessor {
+
+    // 基础统计
+    KILL_MOBS("kill-mobs", true, 1, VanillaStatsManager::getMobKills,
+            StatDependency.killed(VanillaStatsManager.HOSTILE_MOBS)),
+    DAMAGE_TAKEN("damage-taken", false, 10, VanillaStatsManager::getDamageTaken,
+            StatDependency.of(Statistic.DAMAGE_TAKEN)),
+    WALK_DISTANCE("walk-distance", false, 100, VanillaStatsManager::getWalkDistance,
+            StatDependency.of(Statistic.WALK_ONE_CM, Statistic.SPRINT_ONE_CM, Statistic.CROUCH_ONE_CM)),
+    PLAY_TIME("play-time", false, 72000, VanillaStatsManager::getPlayTime,
+            StatDependency.of(Statistic.PLAY_ONE_MINUTE)),
+    PLAYER_KILLS("player-kills", true, 1, VanillaStatsManager::getPlayerKills,
+            StatDependency.of(Statistic.PLAYER_KILLS)),
+    DEATHS("deaths", true, 1, VanillaStatsManager::getDeaths,
+            StatDependency.of(Statistic.DEATHS)),
+    JUMP("jump", true, 1, VanillaStatsManager::getJumps,
+            StatDependency.of(Statistic.JUMP)),
+    FISH_CAUGHT("fish-caught", true, 1, VanillaStatsManager::getFishCaught,
+            StatDependency.of(Statistic.FISH_CAUGHT)),
+    ANIMALS_BRED("animals-bred", true, 1, VanillaStatsManager::getAnimalsBred,
+            StatDependency.of(Statistic.ANIMALS_BRED)),
+    ITEMS_CRAFTED("items-crafted", true, 1, VanillaStatsManager::getItemsCrafted,
+            StatDependency.of(Statistic.CRAFT_ITEM)),
+    ITEMS_ENCHANTED("items-enchanted", true, 1, VanillaStatsManager::getItemsEnchanted,
+            StatDependency.of(Statistic.ITEM_ENCHANTED)),
+    DAMAGE_DEALT("damage-dealt", false, 10, VanillaStatsManager::getDamageDealt,
+            StatDependency.of(Statistic.DAMAGE_DEALT)),
+    BLOCKS_BROKEN("blocks-broken", true, 1, VanillaStatsManager::getBlocksBroken,
+            StatDependency.of(Statistic.MINE_BLOCK)),
+    DISTANCE_TRAVELED("distance-traveled", false, 100, VanillaStatsManager::getTotalDistance,
+            StatDependency.of(
+                    Statistic.WALK_ONE_CM, Statistic.SPRINT_ONE_CM, Statistic.CROUCH_ONE_CM,
+                    Statistic.SWIM_ONE_CM, Statistic.FLY_ONE_CM, Statistic.CLIMB_ONE_CM,
+                    Statistic.FALL_ONE_CM, Statistic.HORSE_ONE_CM, Statistic.PIG_ONE_CM,
+                    Statistic.BOAT_ONE_CM, Statistic.MINECART_ONE_CM, Statistic.AVIATE_ONE_CM)),
+
+    // 矿物挖掘
+    DIAMONDS_MINED("diamonds-mined", true, 1, VanillaStatsManager::getDiamondsMined,
+            StatDependency.mined(Material.DIAMOND_ORE, Material.DEEPSLATE_DIAMOND_ORE)),
+    EMERALDS_MINED("emeralds-mined", true, 1, VanillaStatsManager::getEmeraldsMined,
+            StatDependency.mined(Material.EMERALD_ORE, Material.DEEPSLATE_EMERALD_ORE)),
+    ANCIENT_DEBRIS_MINED("ancient-debris-mined", true, 1, VanillaStatsManager::getAncientDebrisMined,
+            StatDependency.mined(Material.ANCIENT_DEBRIS)),
+    GOLD_MINED("gold-mined", true, 1, VanillaStatsManager::getGoldMined,
+            StatDependency.mined(Material.GOLD_ORE, Material.DEEPSLATE_GOLD_ORE, Material.NETHER_GOLD_ORE)),
+    IRON_MINED("iron-mined", true, 1, VanillaStatsManager::getIronMined,
+            StatDependency.mined(Material.IRON_ORE, Material.DEEPSLATE_IRON_ORE)),
+    COAL_MINED("coal-mined", true, 1, VanillaStatsManager::getCoalMined,
+            StatDependency.mined(Material.COAL_ORE, Material.DEEPSLATE_COAL_ORE)),
+    COPPER_MINED("copper-mined", true, 1, VanillaStatsManager::getCopperMined,
+            StatDependency.mined(Material.COPPER_ORE, Material.DEEPSLATE_COPPER_ORE)),
+    LAPIS_MINED("lapis-mined", true, 1, VanillaStatsManager::getLapisMined,
+            StatDependency.mined(Material.LAPIS_ORE, Material.DEEPSLATE_LAPIS_ORE)),
+    REDSTONE_MINED("redstone-mined", true, 1, VanillaStatsManager::getRedstoneMined,
+            StatDependency.mined(Material.REDSTONE_ORE, Material.DEEPSLATE_REDSTONE_ORE)),
+    QUARTZ_MINED("quartz-mined", true, 1, VanillaStatsManager::getQuartzMined,
+            StatDependency.mined(Material.NETHER_QUARTZ_ORE)),
+
+    // 生物击杀
+    ENDER_DRAGONS_KILLED("ender-dragons-killed", EntityType.ENDER_DRAGON),
+    WITHERS_KILLED("withers-killed", EntityType.WITHER),
+    ELDER_GUARDIANS_KILLED("elder-guardians-killed", EntityType.ELDER_GUARDIAN),
+    WARDENS_KILLED("wardens-killed", EntityType.WARDEN),
+    ZOMBIES_KILLED("zombies-killed", EntityType.ZOMBIE),
+    SKELETONS_KILLED("skeletons-killed", EntityType.SKELETON),
+    CREEPERS_KILLED("creepers-killed", EntityType.CREEPER),
+    SPIDERS_KILLED("spiders-killed", EntityType.SPIDER),
+    ENDERMEN_KILLED("endermen-killed", EntityType.ENDERMAN),
+    COWS_KILLED("cows-killed", EntityType.COW),
+    PIGS_KILLED("pigs-killed", EntityType.PIG),
+    SHEEP_KILLED("sheep-killed", EntityType.SHEEP),
+    CHICKENS_KILLED("chickens-killed", EntityType.CHICKEN),
+
+    // 生活活动
+    VILLAGER_TRADES("villager-trades", true, 1, VanillaStatsManager::getVillagerTrades,
+            StatDependency.of(Statistic.TRADED_WITH_VILLAGER)),
+    FOOD_EATEN("food-eaten", true, 1, VanillaStatsManager::getFoodEaten,
+            StatDependency.of(Statistic.USE_ITEM, VanillaStatsManager.FOODS)),
+    POTIONS_DRUNK("potions-drunk", true, 1, VanillaStatsManager::getPotionsDrunk,
+            StatDependency.of(Statistic.USE_ITEM, VanillaStatsManager.POTIONS)),
+    TOOLS_BROKEN("tools-broken", true, 1, VanillaStatsManager::getToolsBroken,
+            StatDependency.of(Statistic.BREAK_ITEM, VanillaStatsManager.TRACKED_TOOLS));
+
+    private static final Map<String, StatAccessor> BY_KEY = new HashMap<>();
+
+    static {
+        for (StatAccessor accessor : values()) {
+            BY_KEY.put(accessor.key, accessor);
+        }
+    }
+
+    private final String key;
+    private final boolean integral;
+    private final long unitScale;
+    private final ToDoubleBiFunction<VanillaStatsManager, Player> reader;
+    private final List<StatDependency> dependencies;
+
+    StatAccessor(String key, boolean integral, long unitScale, ToDoubleBiFunction<VanillaStatsManager, Player> reader,
+                 List<StatDependency> dependencies) {
+        this.key = key;
+        this.integral = integral;
+        this.unitScale = unitScale;
+        this.reader = reader;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * 击杀指定实体的计数
+     */
+    StatAccessor(String key, EntityType entityType) {
+        this(key, true, 1, (stats, player) -> stats.getEntityKills(player, entityType), StatDependency.killed(entityType));
+    }
+
+    /**
+     * 获取对应的条件键
+     *
+     * @return 条件键
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 是否为整数计数（配置阈值按整数截断）
+     *
+     * @return 是否为整数计数
+     */
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    /**
+     * 获取每个配置单位对应的原始统计单位数
+     *
+     * @return 单位换算比例
+     */
+    public long getUnitScale() {
+        return unitScale;
+    }
+
+    /**
+     * 获取读取的原版统计，统计变化时据此找到受影响的槽位
+     *
+     * @return 依赖的统计列表
+     */
+    List<StatDependency> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * 统计增长时服务端是否触发 PlayerStatisticIncrementEvent
+     * 移动距离（*_ONE_CM）和游戏时间每 tick 直接累加，不触发事件，只能在检查时读取当前值，
+     * 不能用于按事件计数的时间窗口条件
+     *
+     * @return 是否由统计事件驱动
+     */
+    public boolean isEventBacked() {
+        switch (this) {
+            case WALK_DISTANCE:
+            case PLAY_TIME:
+            case DISTANCE_TRAVELED:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 将配置中的阈值换算为原始统计单位
+     *
+     * @param threshold 配置阈值
+     * @return 原始单位阈值
+     */
+    public long toRaw(double threshold) {
+        return (long) Math.ceil(threshold * unitScale);
+    }
+
+    /**
+     * 读取玩家当前的原始统计值
+     *
+     * @param stats 统计管理器
+     * @param player 玩家
+     * @return 原始统计值
+     */
+    public long readRaw(VanillaStatsManager stats, Player player) {
+        return Math.round(reader.applyAsDouble(stats, player) * unitScale);
+    }
+
+    /**
+     * 读取玩家当前的统计值
+     *
+     * @param stats 统计管理器
+     * @param player 玩家
+     * @return 统计值
+     */
+    public double read(VanillaStatsManager stats, Player player) {
+        return reader.applyAsDouble(stats, player);
+    }
+
+    /**
+     * 根据条件键查找读取方式
+     *
+     * @param key 条件键
+     * @return 读取方式，不存在时返回null
+     */
+    public static StatAccessor fromKey(String key) {
+        return BY_KEY.get(key);
+    }
+}
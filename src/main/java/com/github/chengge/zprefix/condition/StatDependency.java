@@ -0,0 +1,91 @@
+package com.github.chengge.zprefix.condition;
+
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个统计依赖：统计类型加可选的方块/物品或实体限定
+ * 由 {@link StatAccessor} 和 {@link SpecialEvent} 的每个常量声明，用于把原版统计的变化映射到进度槽位和称号
+ */
+final class StatDependency {
+
+    final Statistic statistic;
+    final Material material;
+    final EntityType entityType;
+
+    private StatDependency(Statistic statistic, Material material, EntityType entityType) {
+        this.statistic = statistic;
+        this.material = material;
+        this.entityType = entityType;
+    }
+
+    /**
+     * 不带限定的统计，或对带类型统计的任意限定值生效
+     */
+    static List<StatDependency> of(Statistic... statistics) {
+        List<StatDependency> dependencies = new ArrayList<>(statistics.length);
+        for (Statistic statistic : statistics) {
+            dependencies.add(new StatDependency(statistic, null, null));
+        }
+        return List.copyOf(dependencies);
+    }
+
+    /**
+     * 按方块/物品限定的统计
+     */
+    static List<StatDependency> of(Statistic statistic, Material[] materials) {
+        List<StatDependency> dependencies = new ArrayList<>(materials.length);
+        for (Material material : materials) {
+            dependencies.add(new StatDependency(statistic, material, null));
+        }
+        return List.copyOf(dependencies);
+    }
+
+    /**
+     * 按实体限定的统计
+     */
+    static List<StatDependency> of(Statistic statistic, EntityType[] entityTypes) {
+        List<StatDependency> dependencies = new ArrayList<>(entityTypes.length);
+        for (EntityType entityType : entityTypes) {
+            dependencies.add(new StatDependency(statistic, null, entityType));
+        }
+        return List.copyOf(dependencies);
+    }
+
+    /**
+     * 挖掘指定方块
+     */
+    static List<StatDependency> mined(Material... blocks) {
+        return of(Statistic.MINE_BLOCK, blocks);
+    }
+
+    /**
+     * 击杀指定实体
+     */
+    static List<StatDependency> killed(EntityType... entityTypes) {
+        return of(Statistic.KILL_ENTITY, entityTypes);
+    }
+
+    /**
+     * 捡起指定物品
+     */
+    static List<StatDependency> pickedUp(Material... items) {
+        return of(Statistic.PICKUP, items);
+    }
+
+    /**
+     * 合并多组依赖
+     */
+    @SafeVarargs
+    static List<StatDependency> concat(List<StatDependency>... groups) {
+        List<StatDependency> dependencies = new ArrayList<>();
+        for (List<StatDependency> group : groups) {
+            dependencies.addAll(group);
+        }
+        return List.copyOf(dependencies);
+    }
+}
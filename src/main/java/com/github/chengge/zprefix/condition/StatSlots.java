@@ -0,0 +1,162 @@
+package com.github.chengge.zprefix.condition;
+
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+
+import java.util.*;
+
+/**
+ * 解锁进度槽位
+ * 每个数值统计（StatAccessor）和特殊事件（SpecialEvent）占用一个槽位，
+ * 槽位的值是若干原版统计之和，统计事件的增量可以直接累加到对应槽位上
+ */
+public final class StatSlots {
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    /**
+     * 槽位总数
+     */
+    public static final int COUNT = StatAccessor.values().length + SpecialEvent.values().length;
+
+    // 无限定统计，或对带类型统计的任意限定值生效
+    private static final Map<Statistic, int[]> ANY_QUALIFIER = new EnumMap<>(Statistic.class);
+    // 按方块/物品限定的统计，已合并 ANY_QUALIFIER 中的槽位
+    private static final Map<Statistic, Map<Material, int[]>> BY_MATERIAL = new EnumMap<>(Statistic.class);
+    // 按实体限定的统计，已合并 ANY_QUALIFIER 中的槽位
+    private static final Map<Statistic, Map<EntityType, int[]>> BY_ENTITY = new EnumMap<>(Statistic.class);
+
+    static {
+        Map<Statistic, Set<Integer>> anyQualifier = new EnumMap<>(Statistic.class);
+        Map<Statistic, Map<Material, Set<Integer>>> byMaterial = new EnumMap<>(Statistic.class);
+        Map<Statistic, Map<EntityType, Set<Integer>>> byEntity = new EnumMap<>(Statistic.class);
+
+        for (StatAccessor accessor : StatAccessor.values()) {
+            addDependencies(anyQualifier, byMaterial, byEntity, slotOf(accessor), accessor.getDependencies());
+        }
+        for (SpecialEvent event : SpecialEvent.values()) {
+            addDependencies(anyQualifier, byMaterial, byEntity, slotOf(event), event.getDependencies());
+        }
+
+        for (Map.Entry<Statistic, Set<Integer>> entry : anyQualifier.entrySet()) {
+            ANY_QUALIFIER.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        for (Map.Entry<Statistic, Map<Material, Set<Integer>>> entry : byMaterial.entrySet()) {
+            Set<Integer> wildcard = anyQualifier.getOrDefault(entry.getKey(), Collections.emptySet());
+            Map<Material, int[]> frozen = new EnumMap<>(Material.class);
+            for (Map.Entry<Material, Set<Integer>> materialEntry : entry.getValue().entrySet()) {
+                Set<Integer> merged = new TreeSet<>(materialEntry.getValue());
+                merged.addAll(wildcard);
+                frozen.put(materialEntry.getKey(), toArray(merged));
+            }
+            BY_MATERIAL.put(entry.getKey(), frozen);
+        }
+        for (Map.Entry<Statistic, Map<EntityType, Set<Integer>>> entry : byEntity.entrySet()) {
+            Set<Integer> wildcard = anyQualifier.getOrDefault(entry.getKey(), Collections.emptySet());
+            Map<EntityType, int[]> frozen = new EnumMap<>(EntityType.class);
+            for (Map.Entry<EntityType, Set<Integer>> entityEntry : entry.getValue().entrySet()) {
+                Set<Integer> merged = new TreeSet<>(entityEntry.getValue());
+                merged.addAll(wildcard);
+                frozen.put(entityEntry.getKey(), toArray(merged));
+            }
+            BY_ENTITY.put(entry.getKey(), frozen);
+        }
+    }
+
+    private StatSlots() {
+    }
+
+    /**
+     * 获取数值统计的槽位
+     *
+     * @param accessor 统计读取方式
+     * @return 槽位
+     */
+    public static int slotOf(StatAccessor accessor) {
+        return accessor.ordinal();
+    }
+
+    /**
+     * 获取特殊事件的槽位
+     *
+     * @param event 特殊事件
+     * @return 槽位
+     */
+    public static int slotOf(SpecialEvent event) {
+        return StatAccessor.values().length + event.ordinal();
+    }
+
+    /**
+     * 获取槽位读取的原版统计
+     *
+     * @param slot 槽位
+     * @return 依赖的统计列表
+     */
+    static List<StatDependency> dependenciesOf(int slot) {
+        int accessorCount = StatAccessor.values().length;
+        if (slot < accessorCount) {
+            return StatAccessor.values()[slot].getDependencies();
+        }
+        return SpecialEvent.values()[slot - accessorCount].getDependencies();
+    }
+
+    /**
+     * 获取受指定统计变化影响的槽位
+     *
+     * @param statistic 统计类型
+     * @param material 方块/物品限定（可为null）
+     * @param entityType 实体限定（可为null）
+     * @return 槽位数组（不要修改，可能为空）
+     */
+    public static int[] slotsFor(Statistic statistic, Material material, EntityType entityType) {
+        if (material != null) {
+            Map<Material, int[]> materialSlots = BY_MATERIAL.get(statistic);
+            if (materialSlots != null) {
+                int[] slots = materialSlots.get(material);
+                if (slots != null) {
+                    return slots;
+                }
+            }
+        } else if (entityType != null) {
+            Map<EntityType, int[]> entitySlots = BY_ENTITY.get(statistic);
+            if (entitySlots != null) {
+                int[] slots = entitySlots.get(entityType);
+                if (slots != null) {
+                    return slots;
+                }
+            }
+        }
+
+        int[] slots = ANY_QUALIFIER.get(statistic);
+        return slots != null ? slots : NO_SLOTS;
+    }
+
+    private static void addDependencies(Map<Statistic, Set<Integer>> anyQualifier,
+                                        Map<Statistic, Map<Material, Set<Integer>>> byMaterial,
+                                        Map<Statistic, Map<EntityType, Set<Integer>>> byEntity,
+                                        int slot, List<StatDependency> dependencies) {
+        for (StatDependency dependency : dependencies) {
+            if (dependency.material != null) {
+                byMaterial.computeIfAbsent(dependency.statistic, s -> new HashMap<>())
+                          .computeIfAbsent(dependency.material, m -> new TreeSet<>())
+                          .add(slot);
+            } else if (dependency.entityType != null) {
+                byEntity.computeIfAbsent(dependency.statistic, s -> new HashMap<>())
+                        .computeIfAbsent(dependency.entityType, e -> new TreeSet<>())
+                        .add(slot);
+            } else {
+                anyQualifier.computeIfAbsent(dependency.statistic, s -> new TreeSet<>()).add(slot);
+            }
+        }
+    }
+
+    private static int[] toArray(Set<Integer> slots) {
+        int[] result = new int[slots.size()];
+        int i = 0;
+        for (int slot : slots) {
+            result[i++] = slot;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.chengge.zprefix.condition;
+
+/**
+ * 数值阈值条件：统计值达到阈值即满足
+ */
+public final class StatThresholdCondition implements UnlockCondition {
+
+    private final StatAccessor accessor;
+    private final double threshold;
+    private final long rawThreshold;
+
+    public StatThresholdCondition(StatAccessor accessor, double threshold) {
+        this.accessor = accessor;
+        this.threshold = threshold;
+        this.rawThreshold = accessor.toRaw(threshold);
+    }
+
+    @Override
+    public long remaining(EvaluationContext context) {
+        return rawThreshold - context.read(accessor);
+    }
+
+    @Override
+    public int getSlot() {
+        return StatSlots.slotOf(accessor);
+    }
+
+    /**
+     * 获取统计读取方式
+     *
+     * @return 统计读取方式
+     */
+    public StatAccessor getAccessor() {
+        return accessor;
+    }
+
+    /**
+     * 获取阈值
+     *
+     * @return 阈值
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * 获取原始统计单位的阈值
+     *
+     * @return 原始单位阈值
+     */
+    public long getRawThreshold() {
+        return rawThreshold;
+    }
+}
@@ -0,0 +1,262 @@
+package com.github.chengge.zprefix.condition;
+
+import com.github.chengge.zprefix.data.TitleInfo;
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+
+import java.util.*;
+
+/**
+ * 统计反向索引
+ * 在称号加载时构建，记录每个原版统计（及其方块/物品/实体限定）会影响哪些称号的解锁条件，
+ * 使统计变化时只需重新检查少量相关称号
+ */
+public final class StatisticIndex {
+
+    /**
+     * 空索引，在称号尚未加载时使用
+     */
+    public static final StatisticIndex EMPTY = new StatisticIndex(
+        new EnumMap<>(Statistic.class), new EnumMap<>(Statistic.class), new EnumMap<>(Statistic.class),
+        Collections.nCopies(StatSlots.COUNT, Collections.emptyList()), Collections.emptyMap(),
+        Collections.emptyList(), new int[StatSlots.COUNT][0]);
+
+    // 无限定统计，或对带类型统计的任意限定值生效（如 CRAFT_ITEM 的所有物品）
+    private final Map<Statistic, List<TitleInfo>> anyQualifier;
+    // 按方块/物品限定的统计，列表中已合并 anyQualifier 中的称号
+    private final Map<Statistic, Map<Material, List<TitleInfo>>> byMaterial;
+    // 按实体限定的统计，列表中已合并 anyQualifier 中的称号
+    private final Map<Statistic, Map<EntityType, List<TitleInfo>>> byEntity;
+    // 按进度槽位索引的称号
+    private final List<List<TitleInfo>> bySlot;
+    // 可通过统计解锁的称号在本索引中的序号
+    private final Map<String, Integer> unlockableIndex;
+    // 不同的时间窗口（槽位与窗口长度的组合），每种只保留一个代表条件
+    private final List<WindowedCondition> windows;
+    private final Map<Long, Integer> windowIndex;
+    // 按进度槽位索引的时间窗口序号
+    private final int[][] slotWindows;
+
+    private StatisticIndex(Map<Statistic, List<TitleInfo>> anyQualifier,
+                           Map<Statistic, Map<Material, List<TitleInfo>>> byMaterial,
+                           Map<Statistic, Map<EntityType, List<TitleInfo>>> byEntity,
+                           List<List<TitleInfo>> bySlot,
+                           Map<String, Integer> unlockableIndex,
+                           List<WindowedCondition> windows,
+                           int[][] slotWindows) {
+        this.anyQualifier = anyQualifier;
+        this.byMaterial = byMaterial;
+        this.byEntity = byEntity;
+        this.bySlot = bySlot;
+        this.unlockableIndex = unlockableIndex;
+        this.windows = windows;
+        this.slotWindows = slotWindows;
+        this.windowIndex = new HashMap<>();
+        for (int i = 0; i < windows.size(); i++) {
+            windowIndex.put(windows.get(i).getWindowKey(), i);
+        }
+    }
+
+    /**
+     * 获取受指定统计变化影响的称号
+     *
+     * @param statistic 统计类型
+     * @param material 方块/物品限定（可为null）
+     * @param entityType 实体限定（可为null）
+     * @return 受影响的称号列表（不可修改，可能为空）
+     */
+    public List<TitleInfo> getAffectedTitles(Statistic statistic, Material material, EntityType entityType) {
+        if (material != null) {
+            Map<Material, List<TitleInfo>> materialTitles = byMaterial.get(statistic);
+            if (materialTitles != null) {
+                List<TitleInfo> titles = materialTitles.get(material);
+                if (titles != null) {
+                    return titles;
+                }
+            }
+        } else if (entityType != null) {
+            Map<EntityType, List<TitleInfo>> entityTitles = byEntity.get(statistic);
+            if (entityTitles != null) {
+                List<TitleInfo> titles = entityTitles.get(entityType);
+                if (titles != null) {
+                    return titles;
+                }
+            }
+        }
+
+        List<TitleInfo> titles = anyQualifier.get(statistic);
+        return titles != null ? titles : Collections.emptyList();
+    }
+
+    /**
+     * 获取有条件位于指定进度槽位的称号
+     *
+     * @param slot 槽位
+     * @return 称号列表（不可修改，可能为空）
+     */
+    public List<TitleInfo> getSlotTitles(int slot) {
+        return bySlot.get(slot);
+    }
+
+    /**
+     * 获取可通过统计解锁的称号数量
+     *
+     * @return 称号数量
+     */
+    public int getUnlockableCount() {
+        return unlockableIndex.size();
+    }
+
+    /**
+     * 获取可通过统计解锁的称号的序号
+     *
+     * @param titleId 称号ID
+     * @return 序号，不能通过统计解锁时返回-1
+     */
+    public int getUnlockableIndex(String titleId) {
+        Integer index = unlockableIndex.get(titleId);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 获取所有不同的时间窗口
+     *
+     * @return 每种时间窗口的代表条件（不可修改）
+     */
+    public List<WindowedCondition> getWindows() {
+        return windows;
+    }
+
+    /**
+     * 获取时间窗口的序号
+     *
+     * @param condition 时间窗口条件
+     * @return 序号，不属于本索引时返回-1
+     */
+    public int getWindowIndex(WindowedCondition condition) {
+        Integer index = windowIndex.get(condition.getWindowKey());
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 获取位于指定进度槽位的时间窗口
+     *
+     * @param slot 槽位
+     * @return 时间窗口序号（不要修改，可能为空）
+     */
+    public int[] getSlotWindows(int slot) {
+        return slotWindows[slot];
+    }
+
+    /**
+     * 是否没有任何称号依赖统计数据
+     *
+     * @return 是否为空索引
+     */
+    public boolean isEmpty() {
+        return anyQualifier.isEmpty() && byMaterial.isEmpty() && byEntity.isEmpty();
+    }
+
+    /**
+     * 根据称号的解锁条件构建索引
+     *
+     * @param titles 所有称号
+     * @return 统计反向索引
+     */
+    public static StatisticIndex build(Collection<TitleInfo> titles) {
+        Map<Statistic, Set<TitleInfo>> anyQualifier = new EnumMap<>(Statistic.class);
+        Map<Statistic, Map<Material, Set<TitleInfo>>> byMaterial = new EnumMap<>(Statistic.class);
+        Map<Statistic, Map<EntityType, Set<TitleInfo>>> byEntity = new EnumMap<>(Statistic.class);
+        Map<String, Integer> unlockableIndex = new HashMap<>();
+        Map<Long, WindowedCondition> windows = new LinkedHashMap<>();
+        List<Set<TitleInfo>> bySlot = new ArrayList<>(StatSlots.COUNT);
+        for (int slot = 0; slot < StatSlots.COUNT; slot++) {
+            bySlot.add(new LinkedHashSet<>());
+        }
+
+        for (TitleInfo titleInfo : titles) {
+            if (!titleInfo.getCompiledConditions().isStatUnlockable()) {
+                continue; // 管理员专用等称号不会通过统计解锁
+            }
+            unlockableIndex.put(titleInfo.getId(), unlockableIndex.size());
+
+            // 依赖从编译后的条件树推导，组合条件和时间窗口条件的叶子都已展开
+            for (UnlockCondition condition : titleInfo.getCompiledConditions().getConditions()) {
+                bySlot.get(condition.getSlot()).add(titleInfo);
+                if (condition instanceof WindowedCondition) {
+                    WindowedCondition windowed = (WindowedCondition) condition;
+                    windows.putIfAbsent(windowed.getWindowKey(), windowed);
+                }
+
+                for (StatDependency dependency : StatSlots.dependenciesOf(condition.getSlot())) {
+                    if (dependency.material != null) {
+                        byMaterial.computeIfAbsent(dependency.statistic, s -> new HashMap<>())
+                                  .computeIfAbsent(dependency.material, m -> new LinkedHashSet<>())
+                                  .add(titleInfo);
+                    } else if (dependency.entityType != null) {
+                        byEntity.computeIfAbsent(dependency.statistic, s -> new HashMap<>())
+                                .computeIfAbsent(dependency.entityType, e -> new LinkedHashSet<>())
+                                .add(titleInfo);
+                    } else {
+                        anyQualifier.computeIfAbsent(dependency.statistic, s -> new LinkedHashSet<>())
+                                    .add(titleInfo);
+                    }
+                }
+            }
+        }
+
+        // 冻结为不可修改的列表，带限定的列表合并"任意限定"的称号，查询时只需一次查找
+        Map<Statistic, List<TitleInfo>> frozenAny = new EnumMap<>(Statistic.class);
+        for (Map.Entry<Statistic, Set<TitleInfo>> entry : anyQualifier.entrySet()) {
+            frozenAny.put(entry.getKey(), List.copyOf(entry.getValue()));
+        }
+
+        Map<Statistic, Map<Material, List<TitleInfo>>> frozenMaterial = new EnumMap<>(Statistic.class);
+        for (Map.Entry<Statistic, Map<Material, Set<TitleInfo>>> entry : byMaterial.entrySet()) {
+            Set<TitleInfo> wildcard = anyQualifier.getOrDefault(entry.getKey(), Collections.emptySet());
+            Map<Material, List<TitleInfo>> frozen = new EnumMap<>(Material.class);
+            for (Map.Entry<Material, Set<TitleInfo>> materialEntry : entry.getValue().entrySet()) {
+                Set<TitleInfo> merged = new LinkedHashSet<>(materialEntry.getValue());
+                merged.addAll(wildcard);
+                frozen.put(materialEntry.getKey(), List.copyOf(merged));
+            }
+            frozenMaterial.put(entry.getKey(), frozen);
+        }
+
+        Map<Statistic, Map<EntityType, List<TitleInfo>>> frozenEntity = new EnumMap<>(Statistic.class);
+        for (Map.Entry<Statistic, Map<EntityType, Set<TitleInfo>>> entry : byEntity.entrySet()) {
+            Set<TitleInfo> wildcard = anyQualifier.getOrDefault(entry.getKey(), Collections.emptySet());
+            Map<EntityType, List<TitleInfo>> frozen = new EnumMap<>(EntityType.class);
+            for (Map.Entry<EntityType, Set<TitleInfo>> entityEntry : entry.getValue().entrySet()) {
+                Set<TitleInfo> merged = new LinkedHashSet<>(entityEntry.getValue());
+                merged.addAll(wildcard);
+                frozen.put(entityEntry.getKey(), List.copyOf(merged));
+            }
+            frozenEntity.put(entry.getKey(), frozen);
+        }
+
+        List<List<TitleInfo>> frozenSlots = new ArrayList<>(StatSlots.COUNT);
+        for (Set<TitleInfo> slotTitles : bySlot) {
+            frozenSlots.add(List.copyOf(slotTitles));
+        }
+
+        List<WindowedCondition> frozenWindows = List.copyOf(windows.values());
+        int[][] slotWindows = new int[StatSlots.COUNT][];
+        int[] slotWindowCounts = new int[StatSlots.COUNT];
+        for (WindowedCondition window : frozenWindows) {
+            slotWindowCounts[window.getSlot()]++;
+        }
+        for (int slot = 0; slot < StatSlots.COUNT; slot++) {
+            slotWindows[slot] = new int[slotWindowCounts[slot]];
+            slotWindowCounts[slot] = 0;
+        }
+        for (int i = 0; i < frozenWindows.size(); i++) {
+            int slot = frozenWindows.get(i).getSlot();
+            slotWindows[slot][slotWindowCounts[slot]++] = i;
+        }
+
+        return new StatisticIndex(frozenAny, frozenMaterial, frozenEntity, List.copyOf(frozenSlots),
+                                  Map.copyOf(unlockableIndex), frozenWindows, slotWindows);
+    }
+}
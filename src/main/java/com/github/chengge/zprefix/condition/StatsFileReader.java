@@ -0,0 +1,155 @@
+package com.github.chengge.zprefix.condition;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 原版统计文件读取器
+ * 流式读取 world/stats/&lt;uuid&gt;.json，直接按进度槽位汇总，不构建完整的JSON树
+ */
+public final class StatsFileReader {
+
+    // 原版统计分类到带类型统计的映射
+    private static final Map<String, Statistic> TYPED_CATEGORIES = new HashMap<>();
+    // minecraft:custom 分类下的原版统计名到统计的映射
+    private static final Map<String, Statistic> CUSTOM_STATISTICS = new HashMap<>();
+    private static final Map<String, Material> MATERIALS_BY_KEY = new HashMap<>();
+    private static final Map<String, EntityType> ENTITIES_BY_KEY = new HashMap<>();
+
+    static {
+        TYPED_CATEGORIES.put("minecraft:mined", Statistic.MINE_BLOCK);
+        TYPED_CATEGORIES.put("minecraft:crafted", Statistic.CRAFT_ITEM);
+        TYPED_CATEGORIES.put("minecraft:used", Statistic.USE_ITEM);
+        TYPED_CATEGORIES.put("minecraft:broken", Statistic.BREAK_ITEM);
+        TYPED_CATEGORIES.put("minecraft:picked_up", Statistic.PICKUP);
+        TYPED_CATEGORIES.put("minecraft:killed", Statistic.KILL_ENTITY);
+
+        // 只收录解锁条件用到的统计，Bukkit的枚举名与原版统计名并不完全一致
+        CUSTOM_STATISTICS.put("minecraft:play_time", Statistic.PLAY_ONE_MINUTE);
+        CUSTOM_STATISTICS.put("minecraft:damage_taken", Statistic.DAMAGE_TAKEN);
+        CUSTOM_STATISTICS.put("minecraft:damage_dealt", Statistic.DAMAGE_DEALT);
+        CUSTOM_STATISTICS.put("minecraft:player_kills", Statistic.PLAYER_KILLS);
+        CUSTOM_STATISTICS.put("minecraft:deaths", Statistic.DEATHS);
+        CUSTOM_STATISTICS.put("minecraft:jump", Statistic.JUMP);
+        CUSTOM_STATISTICS.put("minecraft:fish_caught", Statistic.FISH_CAUGHT);
+        CUSTOM_STATISTICS.put("minecraft:animals_bred", Statistic.ANIMALS_BRED);
+        CUSTOM_STATISTICS.put("minecraft:enchant_item", Statistic.ITEM_ENCHANTED);
+        CUSTOM_STATISTICS.put("minecraft:traded_with_villager", Statistic.TRADED_WITH_VILLAGER);
+        CUSTOM_STATISTICS.put("minecraft:walk_one_cm", Statistic.WALK_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:sprint_one_cm", Statistic.SPRINT_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:crouch_one_cm", Statistic.CROUCH_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:swim_one_cm", Statistic.SWIM_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:fly_one_cm", Statistic.FLY_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:climb_one_cm", Statistic.CLIMB_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:fall_one_cm", Statistic.FALL_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:horse_one_cm", Statistic.HORSE_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:pig_one_cm", Statistic.PIG_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:boat_one_cm", Statistic.BOAT_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:minecart_one_cm", Statistic.MINECART_ONE_CM);
+        CUSTOM_STATISTICS.put("minecraft:aviate_one_cm", Statistic.AVIATE_ONE_CM);
+
+        for (Material material : Material.values()) {
+            if (!material.isLegacy()) {
+                MATERIALS_BY_KEY.put(material.getKey().toString(), material);
+            }
+        }
+        for (EntityType entityType : EntityType.values()) {
+            try {
+                ENTITIES_BY_KEY.put(entityType.getKey().toString(), entityType);
+            } catch (IllegalArgumentException e) {
+                // UNKNOWN 等没有命名空间键的实体类型
+            }
+        }
+    }
+
+    private StatsFileReader() {
+    }
+
+    /**
+     * 读取统计文件并按进度槽位汇总
+     *
+     * @param file 统计文件
+     * @return 按槽位汇总的原始统计值
+     * @throws IOException 读取或解析失败
+     */
+    public static long[] read(Path file) throws IOException {
+        long[] slotValues = new long[StatSlots.COUNT];
+
+        try (Reader fileReader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             JsonReader reader = new JsonReader(fileReader)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("stats".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readCategories(reader, slotValues);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+
+        return slotValues;
+    }
+
+    private static void readCategories(JsonReader reader, long[] slotValues) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String category = reader.nextName();
+            Statistic typed = TYPED_CATEGORIES.get(category);
+            boolean custom = "minecraft:custom".equals(category);
+
+            if ((typed == null && !custom) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (reader.peek() != JsonToken.NUMBER) {
+                    reader.skipValue();
+                    continue;
+                }
+                long value = reader.nextLong();
+
+                int[] slots;
+                if (custom) {
+                    Statistic statistic = CUSTOM_STATISTICS.get(key);
+                    if (statistic == null) {
+                        continue;
+                    }
+                    slots = StatSlots.slotsFor(statistic, null, null);
+                } else if (typed == Statistic.KILL_ENTITY) {
+                    EntityType entityType = ENTITIES_BY_KEY.get(key);
+                    if (entityType == null) {
+                        continue;
+                    }
+                    slots = StatSlots.slotsFor(typed, null, entityType);
+                } else {
+                    Material material = MATERIALS_BY_KEY.get(key);
+                    if (material == null) {
+                        continue;
+                    }
+                    slots = StatSlots.slotsFor(typed, material, null);
+                }
+
+                for (int slot : slots) {
+                    slotValues[slot] += value;
+                }
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+    }
+}
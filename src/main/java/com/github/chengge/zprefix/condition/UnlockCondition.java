@@ -0,0 +1,32 @@
+package com.github.chengge.zprefix.condition;
+
+/**
+ * 已编译的单个解锁条件，是条件图中的叶子
+ */
+public interface UnlockCondition {
+
+    /**
+     * 获取距离满足条件还差多少（原始统计单位）
+     *
+     * @param context 检查上下文
+     * @return 剩余量，小于等于0表示已满足
+     */
+    long remaining(EvaluationContext context);
+
+    /**
+     * 检查是否满足该条件
+     *
+     * @param context 检查上下文
+     * @return 是否满足
+     */
+    default boolean test(EvaluationContext context) {
+        return remaining(context) <= 0;
+    }
+
+    /**
+     * 获取该条件所在的进度槽位
+     *
+     * @return 槽位
+     */
+    int getSlot();
+}
@@ -0,0 +1,304 @@
+package com.github.chengge.zprefix.condition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已编译的称号解锁条件
+ * 在称号加载时由 unlock-conditions 配置编译一次，检查时不再解析原始配置；
+ * 顶层条件隐式为 all，可以用 all、any、not 组合，所有称号的条件共同组成一张条件图
+ */
+public final class UnlockConditions {
+
+    /**
+     * 没有任何解锁条件
+     */
+    public static final UnlockConditions NONE = new UnlockConditions(
+        ConditionNode.TRUE, new UnlockCondition[0], false, false, true);
+
+    /**
+     * 解锁条件配置有误，称号保留但不能通过统计解锁，只能由管理员给予或购买
+     */
+    public static final UnlockConditions INVALID = new UnlockConditions(
+        ConditionNode.TRUE, new UnlockCondition[0], false, false, false);
+
+    private final ConditionNode root;
+    private final UnlockCondition[] conditions;
+    private final boolean autoUnlock;
+    private final boolean adminOnly;
+    private final boolean statUnlockable;
+
+    private UnlockConditions(ConditionNode root, UnlockCondition[] conditions, boolean autoUnlock,
+                             boolean adminOnly, boolean statUnlockable) {
+        this.root = root;
+        this.conditions = conditions;
+        this.autoUnlock = autoUnlock;
+        this.adminOnly = adminOnly;
+        this.statUnlockable = statUnlockable;
+    }
+
+    /**
+     * 检查是否满足解锁条件
+     *
+     * @param context 检查上下文
+     * @return 是否满足
+     */
+    public boolean test(EvaluationContext context) {
+        return statUnlockable && root.evaluate(context, null, false);
+    }
+
+    /**
+     * 检查是否满足解锁条件，同时记录未满足条件的剩余量
+     * 与 test 相同，结果在同一个上下文中由引用相同子条件的称号共享
+     *
+     * @param context 检查上下文
+     * @param watermarks 按槽位记录的最小剩余量，未满足的条件会与之取最小值
+     * @return 是否满足
+     */
+    public boolean evaluate(EvaluationContext context, long[] watermarks) {
+        return statUnlockable && root.evaluate(context, watermarks, false);
+    }
+
+    /**
+     * 是否配置了 auto-unlock: true
+     *
+     * @return 是否自动解锁
+     */
+    public boolean isAutoUnlock() {
+        return autoUnlock;
+    }
+
+    /**
+     * 是否配置了 admin-only: true
+     *
+     * @return 是否仅管理员可给予
+     */
+    public boolean isAdminOnly() {
+        return adminOnly;
+    }
+
+    /**
+     * 是否可以通过游戏统计解锁
+     * 管理员专用称号，以及 auto-unlock: false 且没有其他条件的称号不能通过统计解锁
+     *
+     * @return 是否可以通过统计解锁
+     */
+    public boolean isStatUnlockable() {
+        return statUnlockable;
+    }
+
+    /**
+     * 获取条件图中的根节点
+     *
+     * @return 根节点
+     */
+    public ConditionNode getRoot() {
+        return root;
+    }
+
+    /**
+     * 获取所有叶子条件（包括组合条件和取反条件中的）
+     *
+     * @return 条件数组（不要修改）
+     */
+    public UnlockCondition[] getConditions() {
+        return conditions;
+    }
+
+    /**
+     * 编译解锁条件配置
+     *
+     * @param rawConditions unlock-conditions 配置
+     * @return 已编译的解锁条件
+     * @throws IllegalArgumentException 存在未知的条件类型或条件值无效
+     */
+    public static UnlockConditions compile(Map<String, Object> rawConditions) {
+        return compile(rawConditions, new ConditionGraph());
+    }
+
+    /**
+     * 编译解锁条件配置，相同的条件与已有节点共享
+     *
+     * @param rawConditions unlock-conditions 配置
+     * @param graph 整个称号配置共用的条件图
+     * @return 已编译的解锁条件
+     * @throws IllegalArgumentException 存在未知的条件类型或条件值无效
+     */
+    public static UnlockConditions compile(Map<String, Object> rawConditions, ConditionGraph graph) {
+        if (rawConditions == null || rawConditions.isEmpty()) {
+            return NONE;
+        }
+
+        List<ConditionNode> nodes = new ArrayList<>();
+        List<UnlockCondition> conditions = new ArrayList<>();
+        boolean hasAutoUnlock = false;
+        boolean autoUnlock = false;
+        boolean adminOnly = false;
+
+        for (Map.Entry<String, Object> entry : rawConditions.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+
+            switch (key) {
+                case "auto-unlock":
+                    hasAutoUnlock = true;
+                    autoUnlock = toBoolean(key, value);
+                    break;
+                case "admin-only":
+                    adminOnly = toBoolean(key, value);
+                    break;
+                case "default":
+                    toBoolean(key, value);
+                    break;
+                default:
+                    compileEntry(key, value, graph, nodes, conditions);
+                    break;
+            }
+        }
+
+        // auto-unlock: false 且没有其他条件时，不能通过统计自动解锁
+        boolean statUnlockable = !adminOnly && !(hasAutoUnlock && !autoUnlock && conditions.isEmpty());
+
+        return new UnlockConditions(graph.all(nodes), conditions.toArray(new UnlockCondition[0]),
+                                    autoUnlock, adminOnly, statUnlockable);
+    }
+
+    /**
+     * 编译单个条件项
+     */
+    private static void compileEntry(String key, Object value, ConditionGraph graph,
+                                     List<ConditionNode> nodes, List<UnlockCondition> conditions) {
+        switch (key) {
+            case "all":
+                nodes.add(graph.all(compileGroup(key, value, graph, conditions)));
+                break;
+            case "any":
+                nodes.add(graph.any(compileGroup(key, value, graph, conditions)));
+                break;
+            case "not":
+                nodes.add(graph.not(graph.all(compileGroup(key, value, graph, conditions))));
+                break;
+            case "windowed":
+                compileWindowed(value, graph, nodes, conditions);
+                break;
+            case "special-event":
+                SpecialEvent event = SpecialEvent.fromId(String.valueOf(value));
+                if (event == null) {
+                    throw new IllegalArgumentException("未知的特殊事件: " + value);
+                }
+                nodes.add(leaf(graph, "event:" + event.getId(), new SpecialEventCondition(event), conditions));
+                break;
+            case "auto-unlock":
+            case "admin-only":
+            case "default":
+                throw new IllegalArgumentException("解锁条件 " + key + " 只能写在 unlock-conditions 顶层");
+            default:
+                StatAccessor accessor = StatAccessor.fromKey(key);
+                if (accessor == null) {
+                    throw new IllegalArgumentException("未知的解锁条件类型: " + key);
+                }
+                if (!(value instanceof Number)) {
+                    throw new IllegalArgumentException("解锁条件 " + key + " 的值必须是数字: " + value);
+                }
+                Number number = (Number) value;
+                double threshold = accessor.isIntegral() ? number.intValue() : number.doubleValue();
+                StatThresholdCondition condition = new StatThresholdCondition(accessor, threshold);
+                nodes.add(leaf(graph, "stat:" + key + ">=" + condition.getRawThreshold(), condition, conditions));
+                break;
+        }
+    }
+
+    /**
+     * 编译 all/any/not 的成员
+     * 值为映射时每一项是一个成员；值为列表时列表中的每个映射是一个成员，映射内的条件需全部满足
+     */
+    private static List<ConditionNode> compileGroup(String key, Object value, ConditionGraph graph,
+                                                    List<UnlockCondition> conditions) {
+        List<ConditionNode> members = new ArrayList<>();
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                compileEntry(String.valueOf(entry.getKey()), entry.getValue(), graph, members, conditions);
+            }
+        } else if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (!(item instanceof Map)) {
+                    throw new IllegalArgumentException("解锁条件 " + key + " 的列表项必须是条件映射: " + item);
+                }
+                List<ConditionNode> itemNodes = new ArrayList<>();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) item).entrySet()) {
+                    compileEntry(String.valueOf(entry.getKey()), entry.getValue(), graph, itemNodes, conditions);
+                }
+                members.add(graph.all(itemNodes));
+            }
+        } else {
+            throw new IllegalArgumentException("解锁条件 " + key + " 的值必须是条件映射或列表: " + value);
+        }
+
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("解锁条件 " + key + " 不能为空");
+        }
+        return members;
+    }
+
+    /**
+     * 编译时间窗口条件，格式为 统计键 -> { amount: 数值, window: 秒数或 session }
+     */
+    private static void compileWindowed(Object value, ConditionGraph graph, List<ConditionNode> nodes,
+                                        List<UnlockCondition> conditions) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("解锁条件 windowed 必须是统计键到窗口配置的映射: " + value);
+        }
+
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            StatAccessor accessor = StatAccessor.fromKey(key);
+            if (accessor == null) {
+                throw new IllegalArgumentException("未知的时间窗口条件类型: " + key);
+            }
+            if (!accessor.isEventBacked()) {
+                // 移动距离和游戏时间不会触发统计事件，窗口内的计数永远不会增加
+                throw new IllegalArgumentException("时间窗口条件不支持 " + key + "（该统计不触发统计事件）");
+            }
+            if (!(entry.getValue() instanceof Map)) {
+                throw new IllegalArgumentException("时间窗口条件 " + key + " 必须包含 amount 和 window: " + entry.getValue());
+            }
+
+            Map<?, ?> spec = (Map<?, ?>) entry.getValue();
+            Object amountValue = spec.get("amount");
+            if (!(amountValue instanceof Number)) {
+                throw new IllegalArgumentException("时间窗口条件 " + key + " 的 amount 必须是数字: " + amountValue);
+            }
+            Number number = (Number) amountValue;
+            double amount = accessor.isIntegral() ? number.intValue() : number.doubleValue();
+
+            Object windowValue = spec.get("window");
+            long windowSeconds;
+            if ("session".equals(windowValue)) {
+                windowSeconds = WindowedCondition.SESSION;
+            } else if (windowValue instanceof Number && ((Number) windowValue).longValue() > 0) {
+                windowSeconds = ((Number) windowValue).longValue();
+            } else {
+                throw new IllegalArgumentException("时间窗口条件 " + key + " 的 window 必须是正整数秒或 session: " + windowValue);
+            }
+
+            WindowedCondition condition = new WindowedCondition(accessor, amount, windowSeconds);
+            nodes.add(leaf(graph, "window:" + key + ">=" + condition.getRawAmount() + "/" + windowSeconds,
+                           condition, conditions));
+        }
+    }
+
+    private static ConditionNode leaf(ConditionGraph graph, String key, UnlockCondition condition,
+                                      List<UnlockCondition> conditions) {
+        ConditionNode node = graph.leaf(key, () -> condition);
+        conditions.add(node.getCondition());
+        return node;
+    }
+
+    private static boolean toBoolean(String key, Object value) {
+        if (!(value instanceof Boolean)) {
+            throw new IllegalArgumentException("解锁条件 " + key + " 的值必须是 true 或 false: " + value);
+        }
+        return (Boolean) value;
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.chengge.zprefix.condition;
+
+/**
+ * 时间窗口条件：统计值在最近一段时间内（或本次登录期间）的增量达到阈值即满足
+ * 增量由玩家的环形缓冲计数器记录，离线玩家没有增量记录，窗口累计值视为0
+ */
+public final class WindowedCondition implements UnlockCondition {
+
+    /**
+     * 窗口长度为0表示本次登录期间
+     */
+    public static final long SESSION = 0L;
+
+    private final StatAccessor accessor;
+    private final double amount;
+    private final long rawAmount;
+    private final long windowSeconds;
+
+    public WindowedCondition(StatAccessor accessor, double amount, long windowSeconds) {
+        this.accessor = accessor;
+        this.amount = amount;
+        this.rawAmount = accessor.toRaw(amount);
+        this.windowSeconds = windowSeconds;
+    }
+
+    @Override
+    public long remaining(EvaluationContext context) {
+        return rawAmount - context.windowTotal(this);
+    }
+
+    @Override
+    public int getSlot() {
+        return StatSlots.slotOf(accessor);
+    }
+
+    /**
+     * 获取统计读取方式
+     *
+     * @return 统计读取方式
+     */
+    public StatAccessor getAccessor() {
+        return accessor;
+    }
+
+    /**
+     * 获取阈值
+     *
+     * @return 阈值
+     */
+    public double getAmount() {
+        return amount;
+    }
+
+    /**
+     * 获取原始统计单位的阈值
+     *
+     * @return 原始单位阈值
+     */
+    public long getRawAmount() {
+        return rawAmount;
+    }
+
+    /**
+     * 获取窗口长度
+     *
+     * @return 窗口长度（秒），SESSION 表示本次登录期间
+     */
+    public long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    /**
+     * 获取计数器键，槽位和窗口长度相同的条件共用同一个计数器
+     *
+     * @return 计数器键
+     */
+    public long getWindowKey() {
+        return ((long) getSlot() << 32) | windowSeconds;
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.chengge.zprefix.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 称号显示名索引
+ * 随称号目录一起构建：显示名去除颜色代码并转为小写后作为键，
+ * 精确查找使用哈希表，前缀查找在排序后的键数组上二分，命令和Tab补全不再逐个扫描称号
+ */
+public final class DisplayNameIndex {
+
+    /**
+     * 空索引
+     */
+    public static final DisplayNameIndex EMPTY = new DisplayNameIndex(Collections.emptyList());
+
+    // 原始显示名（含颜色代码）到称号ID
+    private final Map<String, String> byDisplayName = new HashMap<>();
+    // 规范化显示名到称号ID，重名时保留配置中靠前的称号
+    private final Map<String, String> byNormalizedName = new HashMap<>();
+    // 按规范化显示名排序的三个平行数组
+    private final String[] sortedKeys;
+    private final String[] sortedNames;
+    private final String[] sortedIds;
+    // 按配置顺序排列的规范化显示名，用于部分匹配
+    private final String[] configKeys;
+    private final String[] configIds;
+
+    /**
+     * 构造函数
+     *
+     * @param titles 按配置顺序排列的称号
+     */
+    public DisplayNameIndex(Collection<TitleInfo> titles) {
+        int size = titles.size();
+        configKeys = new String[size];
+        configIds = new String[size];
+        Entry[] entries = new Entry[size];
+
+        int i = 0;
+        for (TitleInfo titleInfo : titles) {
+            String displayName = titleInfo.getDisplayName();
+            String cleanName = stripColors(displayName);
+            String key = cleanName.toLowerCase(Locale.ROOT);
+
+            byDisplayName.putIfAbsent(displayName, titleInfo.getId());
+            byNormalizedName.putIfAbsent(key, titleInfo.getId());
+            configKeys[i] = key;
+            configIds[i] = titleInfo.getId();
+            entries[i] = new Entry(key, cleanName, titleInfo.getId());
+            i++;
+        }
+
+        // 排序稳定，同名称号保持配置顺序
+        Arrays.sort(entries, (a, b) -> a.key.compareTo(b.key));
+        sortedKeys = new String[size];
+        sortedNames = new String[size];
+        sortedIds = new String[size];
+        for (i = 0; i < size; i++) {
+            sortedKeys[i] = entries[i].key;
+            sortedNames[i] = entries[i].name;
+            sortedIds[i] = entries[i].titleId;
+        }
+    }
+
+    /**
+     * 通过显示名查找称号ID
+     * 依次尝试：完全相同（包含颜色代码）、去除颜色代码后忽略大小写相同、前缀匹配、部分匹配
+     *
+     * @param displayName 输入的显示名
+     * @return 称号ID，找不到时为null
+     */
+    public String find(String displayName) {
+        String titleId = byDisplayName.get(displayName);
+        if (titleId != null) {
+            return titleId;
+        }
+
+        String key = normalize(displayName);
+        titleId = byNormalizedName.get(key);
+        if (titleId != null) {
+            return titleId;
+        }
+
+        int first = lowerBound(key);
+        if (first < sortedKeys.length && sortedKeys[first].startsWith(key)) {
+            return sortedIds[first];
+        }
+
+        // 部分匹配无法用排序加速，只在前面都没有结果时执行
+        for (int i = 0; i < configKeys.length; i++) {
+            if (configKeys[i].contains(key)) {
+                return configIds[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 补全显示名
+     *
+     * @param prefix 已输入的前缀
+     * @param titleFilter 称号ID过滤条件，为null时不过滤
+     * @return 以该前缀开头的显示名（不含颜色代码），按字母顺序排列
+     */
+    public List<String> complete(String prefix, Predicate<String> titleFilter) {
+        String key = normalize(prefix);
+        List<String> result = new ArrayList<>();
+        for (int i = lowerBound(key); i < sortedKeys.length && sortedKeys[i].startsWith(key); i++) {
+            if (titleFilter == null || titleFilter.test(sortedIds[i])) {
+                result.add(sortedNames[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 去除颜色代码，与正则 §[0-9a-fk-or] 的结果相同
+     *
+     * @param text 文本
+     * @return 去除颜色代码后的文本
+     */
+    public static String stripColors(String text) {
+        int index = text.indexOf('§');
+        if (index < 0) {
+            return text;
+        }
+
+        StringBuilder builder = new StringBuilder(text.length());
+        builder.append(text, 0, index);
+        for (int i = index; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '§' && i + 1 < text.length() && isColorCode(text.charAt(i + 1))) {
+                i++;
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isColorCode(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'k' && c <= 'o') || c == 'r';
+    }
+
+    private static String normalize(String text) {
+        return stripColors(text).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 第一个不小于 key 的位置
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = sortedKeys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedKeys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Entry {
+        final String key;
+        final String name;
+        final String titleId;
+
+        Entry(String key, String name, String titleId) {
+            this.key = key;
+            this.name = name;
+            this.titleId = titleId;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.chengge.zprefix.data;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 玩家称号数据快照
+ * 在主线程创建，交给存储线程序列化，创建后不再变化
+ */
+public final class PlayerDataSnapshot {
+
+    private final UUID playerId;
+    private final String currentTitle;
+    private final Set<String> unlockedTitles;
+    private final long version;
+
+    /**
+     * 构造函数
+     *
+     * @param playerId 玩家UUID
+     * @param currentTitle 当前称号，可为null
+     * @param unlockedTitles 已解锁的称号（不可修改）
+     * @param version 快照对应的修改版本号
+     */
+    public PlayerDataSnapshot(UUID playerId, String currentTitle, Set<String> unlockedTitles, long version) {
+        this.playerId = playerId;
+        this.currentTitle = currentTitle;
+        this.unlockedTitles = unlockedTitles;
+        this.version = version;
+    }
+
+    /**
+     * 获取玩家UUID
+     *
+     * @return 玩家UUID
+     */
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * 获取当前称号
+     *
+     * @return 当前称号ID，没有时为null
+     */
+    public String getCurrentTitle() {
+        return currentTitle;
+    }
+
+    /**
+     * 获取已解锁的称号
+     *
+     * @return 已解锁的称号ID集合（不可修改）
+     */
+    public Set<String> getUnlockedTitles() {
+        return unlockedTitles;
+    }
+
+    /**
+     * 获取快照对应的修改版本号
+     *
+     * @return 版本号
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.chengge.zprefix.data;
+
+import java.util.UUID;
+
+/**
+ * 玩家统计聚合数据类
+ * 缓存需要遍历多个子统计才能得到的汇总值，
+ * 玩家加入时统计一次，之后根据统计事件的增量维护
+ */
+public class PlayerStatAggregates {
+
+    private final UUID playerId;
+    private long itemsCrafted;
+    private long blocksBroken;
+    private long mobKills;
+    private long foodEaten;
+    private long potionsDrunk;
+
+    /**
+     * 构造函数
+     *
+     * @param playerId 玩家UUID
+     */
+    public PlayerStatAggregates(UUID playerId) {
+        this.playerId = playerId;
+    }
+
+    /**
+     * 获取玩家UUID
+     *
+     * @return 玩家UUID
+     */
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * 获取制作物品总数
+     *
+     * @return 制作物品总数
+     */
+    public long getItemsCrafted() {
+        return itemsCrafted;
+    }
+
+    /**
+     * 增加制作物品数量
+     *
+     * @param amount 增量
+     */
+    public void addItemsCrafted(long amount) {
+        this.itemsCrafted += amount;
+    }
+
+    /**
+     * 获取破坏方块总数
+     *
+     * @return 破坏方块总数
+     */
+    public long getBlocksBroken() {
+        return blocksBroken;
+    }
+
+    /**
+     * 增加破坏方块数量
+     *
+     * @param amount 增量
+     */
+    public void addBlocksBroken(long amount) {
+        this.blocksBroken += amount;
+    }
+
+    /**
+     * 获取击杀敌对生物总数
+     *
+     * @return 击杀敌对生物总数
+     */
+    public long getMobKills() {
+        return mobKills;
+    }
+
+    /**
+     * 增加击杀敌对生物数量
+     *
+     * @param amount 增量
+     */
+    public void addMobKills(long amount) {
+        this.mobKills += amount;
+    }
+
+    /**
+     * 获取吃食物总数
+     *
+     * @return 吃食物总数
+     */
+    public long getFoodEaten() {
+        return foodEaten;
+    }
+
+    /**
+     * 增加吃食物数量
+     *
+     * @param amount 增量
+     */
+    public void addFoodEaten(long amount) {
+        this.foodEaten += amount;
+    }
+
+    /**
+     * 获取喝药水总数
+     *
+     * @return 喝药水总数
+     */
+    public long getPotionsDrunk() {
+        return potionsDrunk;
+    }
+
+    /**
+     * 增加喝药水数量
+     *
+     * @param amount 增量
+     */
+    public void addPotionsDrunk(long amount) {
+        this.potionsDrunk += amount;
+    }
+}
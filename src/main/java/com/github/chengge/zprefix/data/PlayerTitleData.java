@@ -1,201 +1,371 @@
 package com.github.chengge.zprefix.data;
 
-import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * 玩家称号数据类
- * 存储单个玩家的称号相关数据
+ * 存储单个玩家的称号相关数据。当前称号、已解锁称号和修改版本号组成一个不可修改的状态，
+ * 修改时以比较并交换整体替换，冲突时重试；任何线程读取都不加锁，也不会读到修改了一半的数据
  */
 public class PlayerTitleData {
-    
+
+    /**
+     * 没有任何称号的只读数据，查询没有记录的玩家时共用，不会被缓存或保存；
+     * 不产生变化的修改操作会被忽略，解锁或设置称号会抛出 UnsupportedOperationException
+     */
+    public static final PlayerTitleData EMPTY = new PlayerTitleData(null, null, TitleBitSet.EMPTY, true);
+
     private final UUID playerId;
-    private String currentTitle;
-    private final Set<String> unlockedTitles;
-    private long lastSaveTime;
-    
+    private final boolean readOnly;
+    private final AtomicReference<State> state;
+    private volatile long lastSaveTime;
+    // 已保存的修改版本号，与状态中的版本号不同即为未保存的数据
+    private volatile long savedVersion;
+
     /**
      * 构造函数
-     * 
+     *
      * @param playerId 玩家UUID
      */
     public PlayerTitleData(UUID playerId) {
-        this.playerId = playerId;
-        this.currentTitle = null;
-        this.unlockedTitles = new HashSet<>();
-        this.lastSaveTime = System.currentTimeMillis();
+        this(playerId, null, TitleBitSet.EMPTY, false);
     }
-    
+
     /**
      * 构造函数（用于从存储加载数据）
-     * 
+     *
      * @param playerId 玩家UUID
      * @param currentTitle 当前称号
      * @param unlockedTitles 已解锁的称号集合
      */
     public PlayerTitleData(UUID playerId, String currentTitle, Set<String> unlockedTitles) {
+        this(playerId, currentTitle, unlockedTitles, false);
+    }
+
+    private PlayerTitleData(UUID playerId, String currentTitle, Set<String> unlockedTitles, boolean readOnly) {
         this.playerId = playerId;
-        this.currentTitle = currentTitle;
-        this.unlockedTitles = new HashSet<>(unlockedTitles);
+        this.readOnly = readOnly;
+        this.state = new AtomicReference<>(new State(currentTitle, TitleBitSet.of(unlockedTitles), 0));
         this.lastSaveTime = System.currentTimeMillis();
     }
-    
+
     /**
      * 获取玩家UUID
-     * 
+     *
      * @return 玩家UUID
      */
     public UUID getPlayerId() {
         return playerId;
     }
-    
+
     /**
      * 获取当前称号
-     * 
+     *
      * @return 当前称号ID，如果没有则返回null
      */
     public String getCurrentTitle() {
-        return currentTitle;
+        return state.get().currentTitle;
     }
-    
+
     /**
      * 设置当前称号
-     * 
+     *
      * @param titleId 称号ID
      */
     public void setCurrentTitle(String titleId) {
-        this.currentTitle = titleId;
-        updateSaveTime();
+        if (readOnly && titleId == null) {
+            return; // 只读数据本来就没有当前称号
+        }
+        checkWritable();
+        update(current -> current.withCurrent(titleId));
+    }
+
+    /**
+     * 切换到已解锁的称号
+     * 检查和设置在同一次比较并交换中完成，不会切换到同时被其他线程移除的称号
+     *
+     * @param titleId 称号ID，为null时移除当前称号
+     * @return 是否成功（称号未解锁时返回false）
+     */
+    public boolean selectTitle(String titleId) {
+        if (titleId != null && !hasUnlockedTitle(titleId)) {
+            return false;
+        }
+        if (readOnly) {
+            return true; // 只读数据本来就没有当前称号
+        }
+        while (true) {
+            State current = state.get();
+            if (titleId != null && !current.unlockedTitles.contains(titleId)) {
+                return false;
+            }
+            State next = current.withCurrent(titleId);
+            if (next == current || state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
     }
-    
+
     /**
      * 移除当前称号
      */
     public void removeCurrentTitle() {
-        this.currentTitle = null;
-        updateSaveTime();
+        if (readOnly) {
+            return;
+        }
+        update(current -> current.withCurrent(null));
     }
-    
+
     /**
      * 获取已解锁的称号集合
-     * 
-     * @return 已解锁的称号ID集合
+     *
+     * @return 已解锁的称号ID集合（不可修改，不随之后的修改变化）
      */
     public Set<String> getUnlockedTitles() {
-        return new HashSet<>(unlockedTitles);
+        return state.get().unlockedTitles;
     }
-    
+
     /**
      * 解锁称号
-     * 
+     *
      * @param titleId 称号ID
      * @return 是否成功解锁（如果已经解锁则返回false）
      */
     public boolean unlockTitle(String titleId) {
-        boolean added = unlockedTitles.add(titleId);
-        if (added) {
-            updateSaveTime();
+        if (state.get().unlockedTitles.contains(titleId)) {
+            return false;
         }
-        return added;
+        checkWritable();
+        return update(current -> current.withUnlocked(current.unlockedTitles.with(titleId)));
     }
-    
+
     /**
      * 移除已解锁的称号
-     * 
+     * 如果移除的是当前使用的称号，则同时清空当前称号
+     *
      * @param titleId 称号ID
      * @return 是否成功移除
      */
     public boolean removeUnlockedTitle(String titleId) {
-        boolean removed = unlockedTitles.remove(titleId);
-        if (removed) {
-            updateSaveTime();
-            // 如果移除的是当前使用的称号，则清空当前称号
-            if (titleId.equals(currentTitle)) {
-                currentTitle = null;
-            }
+        if (!state.get().unlockedTitles.contains(titleId)) {
+            return false;
         }
-        return removed;
+        checkWritable();
+        return update(current -> {
+            TitleBitSet remaining = current.unlockedTitles.without(titleId);
+            if (remaining == current.unlockedTitles) {
+                return current;
+            }
+            String currentTitle = titleId.equals(current.currentTitle) ? null : current.currentTitle;
+            return new State(currentTitle, remaining, current.version + 1);
+        });
     }
-    
+
     /**
      * 检查是否已解锁指定称号
-     * 
+     *
      * @param titleId 称号ID
      * @return 是否已解锁
      */
     public boolean hasUnlockedTitle(String titleId) {
-        return unlockedTitles.contains(titleId);
+        return state.get().unlockedTitles.contains(titleId);
     }
-    
+
     /**
      * 检查是否有任何已解锁的称号
-     * 
+     *
      * @return 是否有已解锁的称号
      */
     public boolean hasAnyUnlockedTitle() {
-        return !unlockedTitles.isEmpty();
+        return !state.get().unlockedTitles.isEmpty();
     }
-    
+
     /**
      * 获取已解锁称号的数量
-     * 
+     *
      * @return 已解锁称号数量
      */
     public int getUnlockedTitleCount() {
-        return unlockedTitles.size();
+        return state.get().unlockedTitles.size();
     }
-    
+
     /**
      * 检查是否正在使用指定称号
-     * 
+     *
      * @param titleId 称号ID
      * @return 是否正在使用
      */
     public boolean isUsingTitle(String titleId) {
-        return titleId != null && titleId.equals(currentTitle);
+        return titleId != null && titleId.equals(state.get().currentTitle);
     }
-    
+
     /**
      * 检查是否有当前称号
-     * 
+     *
      * @return 是否有当前称号
      */
     public boolean hasCurrentTitle() {
+        String currentTitle = state.get().currentTitle;
         return currentTitle != null && !currentTitle.isEmpty();
     }
-    
+
+    /**
+     * 检查是否没有任何称号数据（没有已解锁的称号也没有当前称号）
+     *
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        State current = state.get();
+        return current.unlockedTitles.isEmpty() && current.currentTitle == null;
+    }
+
+    /**
+     * 检查是否为共用的只读空数据
+     *
+     * @return 是否只读
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     /**
      * 获取最后保存时间
-     * 
+     *
      * @return 最后保存时间戳
      */
     public long getLastSaveTime() {
         return lastSaveTime;
     }
-    
+
+    /**
+     * 是否有尚未保存的修改
+     *
+     * @return 是否需要保存
+     */
+    public boolean isDirty() {
+        return state.get().version != savedVersion;
+    }
+
+    /**
+     * 获取修改版本号，保存前记录，保存成功后传给 markSaved
+     *
+     * @return 版本号
+     */
+    public long getVersion() {
+        return state.get().version;
+    }
+
+    /**
+     * 创建当前数据的快照，可以在任何线程调用
+     * 状态本身不可修改，快照不需要复制，当前称号、已解锁称号和版本号来自同一次修改
+     *
+     * @return 数据快照
+     */
+    public PlayerDataSnapshot snapshot() {
+        State current = state.get();
+        return new PlayerDataSnapshot(playerId, current.currentTitle, current.unlockedTitles, current.version);
+    }
+
     /**
-     * 更新保存时间
+     * 标记指定版本已保存
+     * 保存期间发生的修改版本号更大，仍会保持未保存状态
+     *
+     * @param savedVersion 已保存的版本号
      */
-    private void updateSaveTime() {
+    public void markSaved(long savedVersion) {
+        this.savedVersion = savedVersion;
         this.lastSaveTime = System.currentTimeMillis();
     }
-    
+
+    /**
+     * 把已解锁称号换到指定的称号索引上，重载配置后调用
+     * 称号内容和版本号不变，不会产生未保存的修改
+     *
+     * @param index 新的称号索引
+     */
+    public void remapTitles(TitleIndex index) {
+        while (true) {
+            State current = state.get();
+            TitleBitSet remapped = current.unlockedTitles.remap(index);
+            if (remapped == current.unlockedTitles
+                    || state.compareAndSet(current, new State(current.currentTitle, remapped, current.version))) {
+                return;
+            }
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("不能修改只读的玩家称号数据");
+        }
+    }
+
+    /**
+     * 以比较并交换替换状态，其他线程先完成修改时基于新状态重试
+     *
+     * @param change 由当前状态计算新状态，没有变化时返回原状态
+     * @return 是否发生了变化
+     */
+    private boolean update(UnaryOperator<State> change) {
+        while (true) {
+            State current = state.get();
+            State next = change.apply(current);
+            if (next == current) {
+                return false;
+            }
+            if (state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
     /**
      * 清空所有数据
      */
     public void clear() {
-        this.currentTitle = null;
-        this.unlockedTitles.clear();
-        updateSaveTime();
+        if (readOnly) {
+            return;
+        }
+        update(current -> current.currentTitle == null && current.unlockedTitles.isEmpty()
+                ? current : new State(null, TitleBitSet.EMPTY, current.version + 1));
     }
-    
+
     @Override
     public String toString() {
+        State current = state.get();
         return "PlayerTitleData{" +
                 "playerId=" + playerId +
-                ", currentTitle='" + currentTitle + '\'' +
-                ", unlockedTitles=" + unlockedTitles.size() +
+                ", currentTitle='" + current.currentTitle + '\'' +
+                ", unlockedTitles=" + current.unlockedTitles.size() +
                 '}';
     }
+
+    /**
+     * 不可修改的数据状态，每次修改产生新的状态并递增版本号
+     */
+    private static final class State {
+        final String currentTitle;
+        final TitleBitSet unlockedTitles;
+        final long version;
+
+        State(String currentTitle, TitleBitSet unlockedTitles, long version) {
+            this.currentTitle = currentTitle;
+            this.unlockedTitles = unlockedTitles;
+            this.version = version;
+        }
+
+        State withCurrent(String titleId) {
+            if (titleId == null ? currentTitle == null : titleId.equals(currentTitle)) {
+                return this;
+            }
+            return new State(titleId, unlockedTitles, version + 1);
+        }
+
+        State withUnlocked(TitleBitSet titles) {
+            return titles == unlockedTitles ? this : new State(currentTitle, titles, version + 1);
+        }
+    }
 }
@@ -0,0 +1,208 @@
+package com.github.chengge.zprefix.data;
+
+import com.github.chengge.zprefix.condition.StatSlots;
+import com.github.chengge.zprefix.condition.StatisticIndex;
+import com.github.chengge.zprefix.condition.WindowedCondition;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 玩家解锁进度类
+ * 按进度槽位记录距离下一个未满足阈值还差多少（原始统计单位），
+ * 统计增量未越过该水位线时无需检查任何称号；
+ * 同时记录哪些可通过统计解锁的称号尚未获得，全部获得后直接跳过检查；
+ * 时间窗口条件的增量记录在固定大小的环形缓冲计数器中
+ */
+public class PlayerUnlockProgress {
+
+    private final UUID playerId;
+    private final long[] watermarks;
+    private final BitSet remainingTitles;
+    private int catalogGeneration;
+    private WindowCounter[] windowCounters = new WindowCounter[0];
+    private int[][] slotWindows = new int[StatSlots.COUNT][0];
+
+    /**
+     * 构造函数
+     *
+     * @param playerId 玩家UUID
+     * @param statisticIndex 当前的统计反向索引
+     * @param catalogGeneration 当前的称号配置版本号
+     */
+    public PlayerUnlockProgress(UUID playerId, StatisticIndex statisticIndex, int catalogGeneration) {
+        this.playerId = playerId;
+        this.watermarks = new long[StatSlots.COUNT];
+        this.remainingTitles = new BitSet();
+        reset(statisticIndex, catalogGeneration);
+    }
+
+    /**
+     * 获取玩家UUID
+     *
+     * @return 玩家UUID
+     */
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * 获取进度所基于的称号配置版本号
+     *
+     * @return 版本号
+     */
+    public int getCatalogGeneration() {
+        return catalogGeneration;
+    }
+
+    /**
+     * 重置所有进度
+     * 有称号的槽位置为0（下一次增量即触发检查），没有称号的槽位永不触发；
+     * 所有可通过统计解锁的称号视为未获得，直到下一次检查确认
+     *
+     * @param statisticIndex 当前的统计反向索引
+     * @param catalogGeneration 当前的称号配置版本号
+     */
+    public void reset(StatisticIndex statisticIndex, int catalogGeneration) {
+        this.catalogGeneration = catalogGeneration;
+        for (int slot = 0; slot < watermarks.length; slot++) {
+            watermarks[slot] = statisticIndex.getSlotTitles(slot).isEmpty() ? Long.MAX_VALUE : 0;
+        }
+        remainingTitles.clear();
+        remainingTitles.set(0, statisticIndex.getUnlockableCount());
+
+        // 重载后仍然存在的时间窗口保留已有计数
+        Map<Long, WindowCounter> previous = new HashMap<>();
+        for (WindowCounter counter : windowCounters) {
+            previous.put(counter.getWindowKey(), counter);
+        }
+        List<WindowedCondition> windows = statisticIndex.getWindows();
+        long now = nowMillis();
+        windowCounters = new WindowCounter[windows.size()];
+        for (int i = 0; i < windowCounters.length; i++) {
+            WindowedCondition window = windows.get(i);
+            WindowCounter counter = previous.get(window.getWindowKey());
+            windowCounters[i] = counter != null ? counter
+                    : new WindowCounter(window.getWindowKey(), window.getWindowSeconds(), now);
+        }
+        slotWindows = new int[StatSlots.COUNT][];
+        for (int slot = 0; slot < StatSlots.COUNT; slot++) {
+            slotWindows[slot] = statisticIndex.getSlotWindows(slot);
+        }
+    }
+
+    /**
+     * 累加统计增量
+     *
+     * @param slots 受影响的槽位
+     * @param delta 增量（原始统计单位）
+     * @return 是否有槽位越过水位线
+     */
+    public boolean advance(int[] slots, long delta) {
+        boolean crossed = false;
+        for (int slot : slots) {
+            if ((watermarks[slot] -= delta) <= 0) {
+                crossed = true;
+            }
+        }
+        return crossed;
+    }
+
+    /**
+     * 将统计增量记入相关槽位的时间窗口计数器
+     *
+     * @param slots 受影响的槽位
+     * @param delta 增量（原始统计单位）
+     */
+    public void recordWindows(int[] slots, long delta) {
+        long now = -1;
+        for (int slot : slots) {
+            for (int window : slotWindows[slot]) {
+                if (now < 0) {
+                    now = nowMillis();
+                }
+                windowCounters[window].add(now, delta);
+            }
+        }
+    }
+
+    /**
+     * 获取时间窗口内的累计值
+     *
+     * @param windowIndex 时间窗口在统计反向索引中的序号
+     * @return 累计值（原始统计单位），序号无效时返回0
+     */
+    public long getWindowTotal(int windowIndex) {
+        if (windowIndex < 0 || windowIndex >= windowCounters.length) {
+            return 0;
+        }
+        return windowCounters[windowIndex].getTotal(nowMillis());
+    }
+
+    /**
+     * 获取槽位的水位线
+     *
+     * @param slot 槽位
+     * @return 剩余量，Long.MAX_VALUE 表示没有未解锁的相关称号
+     */
+    public long getWatermark(int slot) {
+        return watermarks[slot];
+    }
+
+    /**
+     * 设置槽位的水位线
+     *
+     * @param slot 槽位
+     * @param remaining 剩余量
+     */
+    public void setWatermark(int slot, long remaining) {
+        watermarks[slot] = remaining;
+    }
+
+    /**
+     * 是否还有可通过统计解锁但尚未获得的称号
+     *
+     * @return 是否还有剩余称号
+     */
+    public boolean hasRemainingTitles() {
+        return !remainingTitles.isEmpty();
+    }
+
+    /**
+     * 获取尚未获得的称号数量
+     *
+     * @return 剩余称号数量
+     */
+    public int getRemainingTitleCount() {
+        return remainingTitles.cardinality();
+    }
+
+    /**
+     * 标记称号已获得
+     *
+     * @param titleIndex 称号在统计反向索引中的序号
+     */
+    public void markObtained(int titleIndex) {
+        if (titleIndex >= 0) {
+            remainingTitles.clear(titleIndex);
+        }
+    }
+
+    /**
+     * 标记称号重新变为未获得
+     *
+     * @param titleIndex 称号在统计反向索引中的序号
+     */
+    public void markRemaining(int titleIndex) {
+        if (titleIndex >= 0) {
+            remainingTitles.set(titleIndex);
+        }
+    }
+
+    private static long nowMillis() {
+        return System.nanoTime() / 1_000_000L;
+    }
+}
@@ -0,0 +1,183 @@
+package com.github.chengge.zprefix.data;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 以 {@link TitleIndex} 序号为位的不可修改称号集合
+ * 判断是否包含只需一次位运算，遍历时不创建字符串或集合节点；修改操作返回新的集合。
+ * 集合记住创建时使用的索引，重载配置后仍然有效，可以用 remap 换到新的索引上
+ */
+public final class TitleBitSet extends AbstractSet<String> {
+
+    /**
+     * 空集合
+     */
+    public static final TitleBitSet EMPTY = new TitleBitSet(null, new long[0], 0);
+
+    // 空集合不属于任何索引，加入称号时使用当前索引
+    private final TitleIndex index;
+    private final long[] words;
+    private final int size;
+
+    private TitleBitSet(TitleIndex index, long[] words, int size) {
+        this.index = index;
+        this.words = words;
+        this.size = size;
+    }
+
+    /**
+     * 由称号ID集合创建使用当前索引的位集合
+     *
+     * @param titleIds 称号ID集合
+     * @return 位集合
+     */
+    public static TitleBitSet of(Collection<String> titleIds) {
+        return of(titleIds, TitleIndex.active());
+    }
+
+    /**
+     * 由称号ID集合创建使用指定索引的位集合，已经使用该索引的位集合直接返回
+     *
+     * @param titleIds 称号ID集合
+     * @param index 称号索引
+     * @return 位集合
+     */
+    public static TitleBitSet of(Collection<String> titleIds, TitleIndex index) {
+        if (titleIds instanceof TitleBitSet && ((TitleBitSet) titleIds).usesIndex(index)) {
+            return (TitleBitSet) titleIds;
+        }
+        if (titleIds.isEmpty()) {
+            return EMPTY;
+        }
+
+        long[] words = new long[0];
+        int size = 0;
+        for (String titleId : titleIds) {
+            int bit = index.indexOf(titleId);
+            int word = bit >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, word + 1);
+            }
+            if ((words[word] & (1L << bit)) == 0) {
+                words[word] |= 1L << bit;
+                size++;
+            }
+        }
+        return new TitleBitSet(index, words, size);
+    }
+
+    /**
+     * 返回使用指定索引的相同集合，已经使用该索引时返回自身
+     *
+     * @param target 目标索引
+     * @return 位集合
+     */
+    public TitleBitSet remap(TitleIndex target) {
+        return of(this, target);
+    }
+
+    /**
+     * 是否使用指定的索引（空集合可用于任何索引）
+     *
+     * @param target 称号索引
+     * @return 是否使用该索引
+     */
+    public boolean usesIndex(TitleIndex target) {
+        return index == null || index == target;
+    }
+
+    /**
+     * 是否包含指定序号的称号
+     *
+     * @param bit 称号序号
+     * @return 是否包含
+     */
+    public boolean containsIndex(int bit) {
+        int word = bit >>> 6;
+        return bit >= 0 && word < words.length && (words[word] & (1L << bit)) != 0;
+    }
+
+    /**
+     * 返回加入指定称号后的集合，已包含时返回自身
+     *
+     * @param titleId 称号ID
+     * @return 新集合
+     */
+    public TitleBitSet with(String titleId) {
+        TitleIndex owner = index != null ? index : TitleIndex.active();
+        int bit = owner.indexOf(titleId);
+        if (containsIndex(bit)) {
+            return this;
+        }
+        long[] updated = Arrays.copyOf(words, Math.max(words.length, (bit >>> 6) + 1));
+        updated[bit >>> 6] |= 1L << bit;
+        return new TitleBitSet(owner, updated, size + 1);
+    }
+
+    /**
+     * 返回移除指定称号后的集合，不包含时返回自身
+     *
+     * @param titleId 称号ID
+     * @return 新集合
+     */
+    public TitleBitSet without(String titleId) {
+        if (index == null) {
+            return this;
+        }
+        int bit = index.find(titleId);
+        if (!containsIndex(bit)) {
+            return this;
+        }
+        if (size == 1) {
+            return EMPTY;
+        }
+        long[] updated = words.clone();
+        updated[bit >>> 6] &= ~(1L << bit);
+        return new TitleBitSet(index, updated, size - 1);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String && index != null && containsIndex(index.find((String) o));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private int word = 0;
+            private long bits = words.length > 0 ? words[0] : 0;
+
+            @Override
+            public boolean hasNext() {
+                while (bits == 0 && word + 1 < words.length) {
+                    bits = words[++word];
+                }
+                return bits != 0;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int bit = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                return index.titleAt(bit);
+            }
+        };
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.chengge.zprefix.data;
+
+import com.github.chengge.zprefix.condition.StatisticIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 称号目录
+ * 每次加载称号配置时整体构建，创建后不再变化；通过一个引用整体替换，
+ * 任何线程拿到的都是同一次加载的称号、排序结果和统计索引，读取时不需要复制
+ */
+public final class TitleCatalog {
+
+    /**
+     * 空目录，在称号尚未加载时使用
+     */
+    public static final TitleCatalog EMPTY = new TitleCatalog(Collections.emptyMap(), StatisticIndex.EMPTY, 0,
+            Logger.getLogger(TitleCatalog.class.getName()));
+
+    private final Map<String, TitleInfo> titles;
+    private final Map<String, TitleInfo> visibleTitles;
+    private final List<TitleInfo> sortedTitles;
+    private final List<TitleInfo> sortedVisibleTitles;
+    private final List<TitleInfo> sortedHiddenTitles;
+    private final StatisticIndex statisticIndex;
+    private final DisplayNameIndex displayNameIndex;
+    private final TitleIndex titleIndex;
+    private final String defaultTitle;
+    private final int generation;
+
+    /**
+     * 构造函数
+     *
+     * @param titles 按配置顺序排列的称号
+     * @param statisticIndex 统计反向索引
+     * @param generation 称号配置的版本号
+     * @param logger 生成界面物品失败时的日志输出
+     */
+    public TitleCatalog(Map<String, TitleInfo> titles, StatisticIndex statisticIndex, int generation, Logger logger) {
+        this.titles = Collections.unmodifiableMap(new LinkedHashMap<>(titles));
+        this.statisticIndex = statisticIndex;
+        this.generation = generation;
+        // 按配置顺序分配称号序号，玩家数据以序号位图保存已解锁的称号
+        this.titleIndex = new TitleIndex();
+        for (String titleId : this.titles.keySet()) {
+            titleIndex.indexOf(titleId);
+        }
+
+        List<TitleInfo> sorted = new ArrayList<>(titles.values());
+        sorted.sort(Comparator.comparingInt(TitleInfo::getSortOrder));
+        List<TitleInfo> visible = new ArrayList<>();
+        List<TitleInfo> hidden = new ArrayList<>();
+        Map<String, TitleInfo> visibleMap = new LinkedHashMap<>();
+        for (TitleInfo titleInfo : sorted) {
+            if (titleInfo.isHidden()) {
+                hidden.add(titleInfo);
+            } else {
+                visible.add(titleInfo);
+                visibleMap.put(titleInfo.getId(), titleInfo);
+            }
+        }
+        this.sortedTitles = Collections.unmodifiableList(sorted);
+        this.sortedVisibleTitles = Collections.unmodifiableList(visible);
+        this.sortedHiddenTitles = Collections.unmodifiableList(hidden);
+        this.visibleTitles = Collections.unmodifiableMap(visibleMap);
+        // 界面物品随目录一起生成，重载时旧目录的物品随称号信息一起丢弃
+        for (TitleInfo titleInfo : this.titles.values()) {
+            try {
+                titleInfo.renderGuiItems();
+            } catch (RuntimeException e) {
+                // 配置有误的称号不影响目录加载，打开界面时再生成
+                logger.log(Level.WARNING, "生成称号 " + titleInfo.getId() + " 的界面物品时出错", e);
+            }
+        }
+        this.displayNameIndex = titles.isEmpty() ? DisplayNameIndex.EMPTY : new DisplayNameIndex(this.titles.values());
+
+        String defaultId = null;
+        for (TitleInfo titleInfo : titles.values()) {
+            if (titleInfo.isDefault()) {
+                defaultId = titleInfo.getId();
+                break;
+            }
+        }
+        this.defaultTitle = defaultId;
+    }
+
+    /**
+     * 获取所有称号
+     *
+     * @return 称号ID到称号信息的映射（不可修改，按配置顺序）
+     */
+    public Map<String, TitleInfo> getTitles() {
+        return titles;
+    }
+
+    /**
+     * 获取所有可见称号（排除隐藏称号）
+     *
+     * @return 称号ID到称号信息的映射（不可修改，按排序值排列）
+     */
+    public Map<String, TitleInfo> getVisibleTitles() {
+        return visibleTitles;
+    }
+
+    /**
+     * 获取按排序值排列的称号
+     *
+     * @param includeHidden 是否包含隐藏称号
+     * @return 称号列表（不可修改）
+     */
+    public List<TitleInfo> getSortedTitles(boolean includeHidden) {
+        return includeHidden ? sortedTitles : sortedVisibleTitles;
+    }
+
+    /**
+     * 获取按排序值排列的隐藏称号
+     *
+     * @return 称号列表（不可修改）
+     */
+    public List<TitleInfo> getSortedHiddenTitles() {
+        return sortedHiddenTitles;
+    }
+
+    /**
+     * 获取指定称号信息
+     *
+     * @param titleId 称号ID
+     * @return 称号信息，不存在时为null
+     */
+    public TitleInfo getTitleInfo(String titleId) {
+        return titles.get(titleId);
+    }
+
+    /**
+     * 获取统计反向索引
+     *
+     * @return 统计到相关称号的索引
+     */
+    public StatisticIndex getStatisticIndex() {
+        return statisticIndex;
+    }
+
+    /**
+     * 获取显示名索引
+     *
+     * @return 显示名索引
+     */
+    public DisplayNameIndex getDisplayNameIndex() {
+        return displayNameIndex;
+    }
+
+    /**
+     * 获取默认称号
+     *
+     * @return 默认称号ID，没有时为null
+     */
+    public String getDefaultTitle() {
+        return defaultTitle;
+    }
+
+    /**
+     * 获取本次加载的称号序号索引
+     *
+     * @return 称号索引
+     */
+    public TitleIndex getTitleIndex() {
+        return titleIndex;
+    }
+
+    /**
+     * 获取称号配置的版本号
+     *
+     * @return 版本号
+     */
+    public int getGeneration() {
+        return generation;
+    }
+}
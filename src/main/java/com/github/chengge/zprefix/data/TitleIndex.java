@@ -0,0 +1,107 @@
+package com.github.chengge.zprefix.data;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 称号ID与紧凑整数序号的映射
+ * 每次加载称号配置时由 {@link TitleCatalog} 创建一个新的索引，配置中的称号按顺序登记，
+ * 存储中已不在配置里的称号在首次出现时追加；序号在该索引内分配后不再改变。
+ * 目录发布时该索引成为当前索引，新建的称号集合都使用当前索引；旧索引只被旧的称号集合引用，
+ * 重载后 TitleManager 会把缓存中的玩家数据换到新索引上，旧索引随之被回收，不会一直增长
+ */
+public final class TitleIndex {
+
+    private static volatile TitleIndex active = new TitleIndex();
+
+    private final Map<String, Integer> indices = new ConcurrentHashMap<>();
+    // 只追加的序号表，容量不足时整体替换；序号小于 count 的位置写入后不再改变
+    private volatile String[] titles = new String[16];
+    private int count;
+
+    /**
+     * 获取当前称号目录使用的索引
+     *
+     * @return 当前索引
+     */
+    public static TitleIndex active() {
+        return active;
+    }
+
+    /**
+     * 设置当前索引，称号目录发布时调用
+     *
+     * @param index 新的当前索引
+     */
+    public static void activate(TitleIndex index) {
+        active = index;
+    }
+
+    /**
+     * 换成一个空的当前索引，插件关闭时调用，释放所有已登记的称号
+     */
+    public static void reset() {
+        active = new TitleIndex();
+    }
+
+    /**
+     * 获取称号的序号，尚未登记时分配新的序号
+     *
+     * @param titleId 称号ID
+     * @return 序号
+     */
+    public int indexOf(String titleId) {
+        Integer index = indices.get(titleId);
+        return index != null ? index : register(titleId);
+    }
+
+    /**
+     * 查找已登记称号的序号，不会分配新的序号
+     *
+     * @param titleId 称号ID
+     * @return 序号，未登记时为-1
+     */
+    public int find(String titleId) {
+        Integer index = indices.get(titleId);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 获取序号对应的称号ID
+     *
+     * @param index 序号
+     * @return 称号ID
+     */
+    public String titleAt(int index) {
+        return titles[index];
+    }
+
+    /**
+     * 获取已登记的称号数
+     *
+     * @return 称号数
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    private synchronized int register(String titleId) {
+        Integer existing = indices.get(titleId);
+        if (existing != null) {
+            return existing;
+        }
+
+        int index = count;
+        String[] current = titles;
+        if (index == current.length) {
+            current = Arrays.copyOf(current, index * 2);
+        }
+        current[index] = titleId;
+        titles = current;
+        count = index + 1;
+        // 先发布序号表再登记映射，拿到序号的线程一定能读到对应的称号ID
+        indices.put(titleId, index);
+        return index;
+    }
+}
@@ -1,11 +1,13 @@
 package com.github.chengge.zprefix.data;
 
+import com.github.chengge.zprefix.condition.UnlockConditions;
 import com.github.chengge.zprefix.util.MessageUtil;
 import org.bukkit.Material;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -21,10 +23,20 @@ public class TitleInfo {
     private final Map<Attribute, Double> attributes;
     private final Map<String, Object> sagaLoreStatsAttributes;
     private final Map<String, Object> unlockConditions;
+    private final UnlockConditions compiledConditions;
     private final boolean isDefault;
     private final int sortOrder;
     private final boolean isHidden;
     private final Map<String, Object> purchaseOptions;
+    // 按 GUI_* 状态预先生成的物品，只读，交给界面时复制
+    private volatile ItemStack[] renderedItems;
+
+    // 预生成物品的状态
+    private static final int GUI_CURRENT = 0;
+    private static final int GUI_UNLOCKED = 1;
+    private static final int GUI_LOCKED = 2;
+    private static final int GUI_UNLOCK_INFO = 3;
+    private static final int GUI_UNLOCK_HIDDEN = 4;
     
     /**
      * 构造函数
@@ -35,6 +47,7 @@ public class TitleInfo {
      * @param attributes 原生属性加成
      * @param sagaLoreStatsAttributes SagaLoreStats属性加成
      * @param unlockConditions 解锁条件
+     * @param compiledConditions 已编译的解锁条件
      * @param isDefault 是否为默认称号
      * @param sortOrder 排序顺序
      * @param isHidden 是否隐藏
@@ -43,7 +56,8 @@ public class TitleInfo {
     public TitleInfo(String id, String displayName, ItemStack guiItem,
                     Map<Attribute, Double> attributes,
                     Map<String, Object> sagaLoreStatsAttributes,
-                    Map<String, Object> unlockConditions, boolean isDefault,
+                    Map<String, Object> unlockConditions, UnlockConditions compiledConditions,
+                    boolean isDefault,
                     int sortOrder, boolean isHidden, Map<String, Object> purchaseOptions) {
         this.id = id;
         this.displayName = displayName;
@@ -51,6 +65,7 @@ public class TitleInfo {
         this.attributes = attributes;
         this.sagaLoreStatsAttributes = sagaLoreStatsAttributes;
         this.unlockConditions = unlockConditions;
+        this.compiledConditions = compiledConditions;
         this.isDefault = isDefault;
         this.sortOrder = sortOrder;
         this.isHidden = isHidden;
@@ -112,6 +127,15 @@ public class TitleInfo {
     public Map<String, Object> getUnlockConditions() {
         return unlockConditions;
     }
+
+    /**
+     * 获取已编译的解锁条件
+     *
+     * @return 已编译的解锁条件
+     */
+    public UnlockConditions getCompiledConditions() {
+        return compiledConditions;
+    }
     
     /**
      * 是否为默认称号
@@ -165,8 +189,7 @@ public class TitleInfo {
      * @return 是否自动解锁
      */
     public boolean isAutoUnlock() {
-        return unlockConditions.containsKey("auto-unlock") && 
-               (Boolean) unlockConditions.get("auto-unlock");
+        return compiledConditions.isAutoUnlock();
     }
     
     /**
@@ -175,18 +198,55 @@ public class TitleInfo {
      * @return 是否仅管理员可给予
      */
     public boolean isAdminOnly() {
-        return unlockConditions.containsKey("admin-only") && 
-               (Boolean) unlockConditions.get("admin-only");
+        return compiledConditions.isAdminOnly();
     }
     
+    /**
+     * 预先生成各状态的GUI物品
+     * 在称号目录构建时调用（消息已加载），重载后由新的称号信息重新生成
+     */
+    public void renderGuiItems() {
+        ItemStack[] items = new ItemStack[5];
+        items[GUI_CURRENT] = renderGuiItem(true, true);
+        items[GUI_UNLOCKED] = renderGuiItem(true, false);
+        items[GUI_LOCKED] = renderGuiItem(false, false);
+        // 可购买或需满足条件，由称号配置决定
+        items[GUI_UNLOCK_INFO] = renderUnlockedGuiItem(true);
+        items[GUI_UNLOCK_HIDDEN] = renderUnlockedGuiItem(false);
+        renderedItems = items;
+    }
+
     /**
      * 创建用于GUI显示的物品（包含状态信息）
      *
      * @param isUnlocked 是否已解锁
      * @param isCurrent 是否为当前使用的称号
-     * @return 带状态的GUI物品
+     * @return 带状态的GUI物品（可以修改的副本）
      */
     public ItemStack createGuiItem(boolean isUnlocked, boolean isCurrent) {
+        return renderedItem(isCurrent ? GUI_CURRENT : isUnlocked ? GUI_UNLOCKED : GUI_LOCKED);
+    }
+
+    /**
+     * 创建未解锁称号的GUI物品（显示解锁条件或购买选项）
+     *
+     * @param showUnlockInfo 是否显示解锁信息
+     * @return 未解锁称号的GUI物品（可以修改的副本）
+     */
+    public ItemStack createUnlockedGuiItem(boolean showUnlockInfo) {
+        return renderedItem(showUnlockInfo ? GUI_UNLOCK_INFO : GUI_UNLOCK_HIDDEN);
+    }
+
+    private ItemStack renderedItem(int state) {
+        ItemStack[] items = renderedItems;
+        if (items == null) {
+            renderGuiItems();
+            items = renderedItems;
+        }
+        return items[state].clone();
+    }
+
+    private ItemStack renderGuiItem(boolean isUnlocked, boolean isCurrent) {
         ItemStack item = getGuiItem();
         ItemMeta meta = item.getItemMeta();
 
@@ -212,13 +272,7 @@ public class TitleInfo {
         return item;
     }
 
-    /**
-     * 创建未解锁称号的GUI物品（显示解锁条件或购买选项）
-     *
-     * @param showUnlockInfo 是否显示解锁信息
-     * @return 未解锁称号的GUI物品
-     */
-    public ItemStack createUnlockedGuiItem(boolean showUnlockInfo) {
+    private ItemStack renderUnlockedGuiItem(boolean showUnlockInfo) {
         ItemStack item = new ItemStack(guiItem.getType());
         ItemMeta meta = item.getItemMeta();
 
@@ -278,6 +332,13 @@ public class TitleInfo {
                 continue; // 跳过自动解锁标记
             }
 
+            if (isNestedCondition(key)) {
+                for (String nestedText : getNestedConditionTexts(key, value)) {
+                    lore.add("§7  " + nestedText);
+                }
+                continue;
+            }
+
             String conditionText = formatUnlockCondition(key, value);
             if (conditionText != null) {
                 lore.add("§7  " + conditionText);
@@ -285,6 +346,94 @@ public class TitleInfo {
         }
     }
 
+    /**
+     * 是否为需要多行显示的嵌套条件（all、any、not、windowed）
+     *
+     * @param key 条件键
+     * @return 是否为嵌套条件
+     */
+    public static boolean isNestedCondition(String key) {
+        return "all".equals(key) || "any".equals(key) || "not".equals(key) || "windowed".equals(key);
+    }
+
+    /**
+     * 获取嵌套条件的显示文本，组合条件的成员逐级缩进
+     *
+     * @param key 条件键
+     * @param value 条件值
+     * @return 显示文本，每个元素一行
+     */
+    public List<String> getNestedConditionTexts(String key, Object value) {
+        List<String> texts = new ArrayList<>();
+
+        if ("windowed".equals(key)) {
+            if (value instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    texts.add(formatWindowedCondition(String.valueOf(entry.getKey()), entry.getValue()));
+                }
+            }
+            return texts;
+        }
+
+        texts.add(formatUnlockCondition(key, ""));
+        List<Object> members = new ArrayList<>();
+        if (value instanceof List) {
+            members.addAll((List<?>) value);
+        } else {
+            members.add(value);
+        }
+        for (Object member : members) {
+            if (!(member instanceof Map)) {
+                continue;
+            }
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) member).entrySet()) {
+                String memberKey = String.valueOf(entry.getKey());
+                if (isNestedCondition(memberKey)) {
+                    for (String nestedText : getNestedConditionTexts(memberKey, entry.getValue())) {
+                        texts.add("  " + nestedText);
+                    }
+                } else {
+                    texts.add("  " + formatUnlockCondition(memberKey, entry.getValue()));
+                }
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * 格式化单个时间窗口条件
+     */
+    private String formatWindowedCondition(String statKey, Object spec) {
+        Object amount = spec instanceof Map ? ((Map<?, ?>) spec).get("amount") : spec;
+        Object window = spec instanceof Map ? ((Map<?, ?>) spec).get("window") : null;
+        String conditionText = formatUnlockCondition(statKey, amount);
+
+        boolean session = "session".equals(window);
+        String template = MessageUtil.getMessage(session ? "title.unlock-condition.windowed-session"
+                                                         : "title.unlock-condition.windowed");
+        if (template == null || template.startsWith("§c消息配置错误:")) {
+            template = "{condition} §7({window})";
+        }
+        String windowText = window instanceof Number ? formatWindow(((Number) window).longValue()) : String.valueOf(window);
+        return template.replace("{condition}", conditionText).replace("{window}", windowText);
+    }
+
+    /**
+     * 格式化时间窗口长度
+     */
+    private static String formatWindow(long seconds) {
+        if (seconds % 86400 == 0) {
+            return seconds / 86400 + "天";
+        }
+        if (seconds % 3600 == 0) {
+            return seconds / 3600 + "小时";
+        }
+        if (seconds % 60 == 0) {
+            return seconds / 60 + "分钟";
+        }
+        return seconds + "秒";
+    }
+
     /**
      * 格式化解锁条件文本
      *
@@ -0,0 +1,95 @@
+package com.github.chengge.zprefix.data;
+
+/**
+ * 时间窗口计数器
+ * 把窗口均分为固定数量的时间桶组成环形缓冲，过期的桶在下次访问时清零，
+ * 内存占用固定，与事件频率无关；窗口精度为一个桶的长度
+ */
+public final class WindowCounter {
+
+    /**
+     * 每个窗口的时间桶数量
+     */
+    public static final int BUCKETS = 60;
+
+    private final long windowKey;
+    // 每个桶的长度（毫秒），0 表示本次登录期间的累计计数，不使用时间桶
+    private final long bucketMillis;
+    private final long[] buckets;
+    // 最新一个桶的绝对序号
+    private long headBucket;
+    private long total;
+
+    /**
+     * 构造函数
+     *
+     * @param windowKey 计数器键
+     * @param windowSeconds 窗口长度（秒），0 表示本次登录期间
+     * @param nowMillis 当前单调时间（毫秒）
+     */
+    public WindowCounter(long windowKey, long windowSeconds, long nowMillis) {
+        this.windowKey = windowKey;
+        if (windowSeconds <= 0) {
+            this.bucketMillis = 0;
+            this.buckets = null;
+        } else {
+            this.bucketMillis = Math.max(1L, windowSeconds * 1000L / BUCKETS);
+            this.buckets = new long[BUCKETS];
+            this.headBucket = nowMillis / bucketMillis;
+        }
+    }
+
+    /**
+     * 获取计数器键
+     *
+     * @return 计数器键
+     */
+    public long getWindowKey() {
+        return windowKey;
+    }
+
+    /**
+     * 累加增量
+     *
+     * @param nowMillis 当前单调时间（毫秒）
+     * @param delta 增量（原始统计单位）
+     */
+    public void add(long nowMillis, long delta) {
+        if (buckets != null) {
+            rotate(nowMillis);
+            buckets[(int) (headBucket % BUCKETS)] += delta;
+        }
+        total += delta;
+    }
+
+    /**
+     * 获取窗口内的累计值
+     *
+     * @param nowMillis 当前单调时间（毫秒）
+     * @return 累计值（原始统计单位）
+     */
+    public long getTotal(long nowMillis) {
+        if (buckets != null) {
+            rotate(nowMillis);
+        }
+        return total;
+    }
+
+    /**
+     * 前移到当前时间所在的桶，清空期间过期的桶
+     */
+    private void rotate(long nowMillis) {
+        long bucket = nowMillis / bucketMillis;
+        if (bucket <= headBucket) {
+            return;
+        }
+
+        long expired = Math.min(bucket - headBucket, BUCKETS);
+        for (long i = 1; i <= expired; i++) {
+            int index = (int) ((headBucket + i) % BUCKETS);
+            total -= buckets[index];
+            buckets[index] = 0;
+        }
+        headBucket = bucket;
+    }
+}
@@ -2,13 +2,17 @@ package com.github.chengge.zprefix.listener;
 
 import com.github.chengge.zprefix.ZPrefix;
 import com.github.chengge.zprefix.manager.TitleManager;
+import com.github.chengge.zprefix.util.MessageUtil;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.util.logging.Level;
+
 /**
  * 玩家事件监听器
  * 处理玩家加入、离开等事件
@@ -23,6 +27,27 @@ public class PlayerListener implements Listener {
         this.titleManager = titleManager;
     }
     
+    /**
+     * 玩家登录前事件（异步线程）
+     * 在这里读取玩家数据，进入游戏后主线程直接使用缓存；
+     * 读取失败时拒绝登录，不让玩家带着空数据进入游戏，否则之后的保存会覆盖原有的称号
+     *
+     * @param event 玩家登录前事件
+     */
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        try {
+            titleManager.preloadPlayerData(event.getUniqueId());
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "预读取玩家 " + event.getName() + " 的称号数据时出错，已拒绝登录", e);
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, MessageUtil.getMessage("common.data-load-failed"));
+        }
+    }
+
     /**
      * 玩家加入事件
      * 
@@ -1,14 +1,22 @@
 package com.github.chengge.zprefix.listener;
 
 import com.github.chengge.zprefix.ZPrefix;
+import com.github.chengge.zprefix.data.TitleInfo;
+import com.github.chengge.zprefix.manager.UnlockCheckScheduler;
 import com.github.chengge.zprefix.manager.VanillaStatsManager;
+import org.bukkit.Material;
+import org.bukkit.Statistic;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerStatisticIncrementEvent;
 
+import java.util.List;
+
 /**
  * 原版统计监听器
  * 监听原版统计数据变化，检查称号解锁条件
@@ -17,12 +25,13 @@ public class VanillaStatsListener implements Listener {
     
     private final ZPrefix plugin;
     private final VanillaStatsManager vanillaStatsManager;
-    private int checkTaskId = -1;
+    private final UnlockCheckScheduler unlockCheckScheduler;
     
-    public VanillaStatsListener(ZPrefix plugin, VanillaStatsManager vanillaStatsManager) {
+    public VanillaStatsListener(ZPrefix plugin, VanillaStatsManager vanillaStatsManager,
+                                UnlockCheckScheduler unlockCheckScheduler) {
         this.plugin = plugin;
         this.vanillaStatsManager = vanillaStatsManager;
-        startPeriodicCheck();
+        this.unlockCheckScheduler = unlockCheckScheduler;
     }
     
     /**
@@ -31,6 +40,9 @@ public class VanillaStatsListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
+
+        // 初始化统计聚合数据，之后由统计事件增量维护
+        vanillaStatsManager.initPlayerAggregates(player);
         
         // 检查是否启用加入时检查
         boolean checkOnJoin = plugin.getConfigManager().getConfigValue("progress.check-on-join", true);
@@ -42,17 +54,41 @@ public class VanillaStatsListener implements Listener {
         }
     }
     
+    /**
+     * 玩家离开时清理统计聚合数据和解锁进度
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        vanillaStatsManager.cleanupPlayerData(event.getPlayer().getUniqueId());
+    }
+    
     /**
      * 监听统计数据变化
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerStatisticIncrement(PlayerStatisticIncrementEvent event) {
         Player player = event.getPlayer();
+        Statistic statistic = event.getStatistic();
+        Material material = event.getMaterial();
+        EntityType entityType = event.getEntityType();
+
+        // 更新统计聚合数据
+        int delta = event.getNewValue() - event.getPreviousValue();
+        vanillaStatsManager.applyStatisticIncrement(player, statistic, material, entityType, delta);
+
+        // 没有任何称号依赖该统计时直接跳过（移动距离和游戏时间不触发此事件，由定时检查读取）
+        List<TitleInfo> affectedTitles = vanillaStatsManager.getAffectedTitles(statistic, material, entityType);
+        if (affectedTitles.isEmpty()) {
+            return;
+        }
+
+        // 增量未越过下一个阈值时不可能解锁任何称号
+        if (!vanillaStatsManager.advanceWatermarks(player, statistic, material, entityType, delta)) {
+            return;
+        }
         
-        // 延迟检查，避免频繁触发
-        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-            vanillaStatsManager.checkAllUnlockConditions(player);
-        }, 1L);
+        // 标记待检查，由调度器在下一个合并窗口统一检查（统计值在事件之后才写入）
+        unlockCheckScheduler.markDirty(player, affectedTitles);
         
         // 调试日志
         if (plugin.getConfigManager().getConfigValue("debug", false) &&
@@ -61,33 +97,4 @@ public class VanillaStatsListener implements Listener {
                                   event.getStatistic().name() + " -> " + event.getNewValue());
         }
     }
-    
-    /**
-     * 启动定期检查任务
-     */
-    private void startPeriodicCheck() {
-        int checkInterval = plugin.getConfigManager().getConfigValue("progress.check-interval", 60);
-
-        checkTaskId = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-            // 为所有在线玩家检查解锁条件
-            for (Player player : plugin.getServer().getOnlinePlayers()) {
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    vanillaStatsManager.checkAllUnlockConditions(player);
-                });
-            }
-        }, checkInterval * 20L, checkInterval * 20L).getTaskId();
-
-        plugin.getLogger().info("✓ 原版统计检查任务已启动，检查间隔: " + checkInterval + "秒");
-    }
-    
-    /**
-     * 停止定期检查任务
-     */
-    public void stopPeriodicCheck() {
-        if (checkTaskId != -1) {
-            plugin.getServer().getScheduler().cancelTask(checkTaskId);
-            checkTaskId = -1;
-            plugin.getLogger().info("✓ 原版统计检查任务已停止");
-        }
-    }
 }
@@ -1,6 +1,11 @@
 package com.github.chengge.zprefix.manager;
 
 import com.github.chengge.zprefix.ZPrefix;
+import com.github.chengge.zprefix.condition.ConditionGraph;
+import com.github.chengge.zprefix.condition.StatisticIndex;
+import com.github.chengge.zprefix.condition.UnlockConditions;
+import com.github.chengge.zprefix.data.TitleCatalog;
+import com.github.chengge.zprefix.data.TitleIndex;
 import com.github.chengge.zprefix.data.TitleInfo;
 import com.github.chengge.zprefix.util.MessageUtil;
 import org.bukkit.Material;
@@ -24,7 +29,8 @@ public class ConfigManager {
     private final ZPrefix plugin;
     private FileConfiguration config;
     private FileConfiguration titlesConfig;
-    private final Map<String, TitleInfo> titleInfoMap = new HashMap<>();
+    // 每次加载称号后整体替换，读取方不需要加锁或复制
+    private volatile TitleCatalog catalog = TitleCatalog.EMPTY;
     
     public ConfigManager(ZPrefix plugin) {
         this.plugin = plugin;
@@ -69,23 +75,34 @@ public class ConfigManager {
         
         MessageUtil.loadMessages();
         loadTitles();
+
+        // 新目录使用新的称号索引，把缓存中的玩家数据换过去，旧索引随之释放
+        TitleManager titleManager = plugin.getTitleManager();
+        if (titleManager != null) {
+            titleManager.remapTitleIndex();
+        }
     }
     
     /**
      * 加载称号配置
      */
     private void loadTitles() {
-        titleInfoMap.clear();
-        
+        int generation = catalog.getGeneration() + 1;
+        Map<String, TitleInfo> titleInfoMap = new LinkedHashMap<>();
+
         ConfigurationSection titlesSection = titlesConfig.getConfigurationSection("titles");
         if (titlesSection == null) {
             plugin.getLogger().warning("称号配置文件中没有找到 'titles' 节点！");
+            publish(new TitleCatalog(titleInfoMap, StatisticIndex.EMPTY, generation, plugin.getLogger()));
             return;
         }
         
+        // 所有称号共用一张条件图，相同的条件和子表达式只求值一次
+        ConditionGraph conditionGraph = new ConditionGraph();
+
         for (String titleId : titlesSection.getKeys(false)) {
             try {
-                TitleInfo titleInfo = loadTitleInfo(titleId, titlesSection.getConfigurationSection(titleId));
+                TitleInfo titleInfo = loadTitleInfo(titleId, titlesSection.getConfigurationSection(titleId), conditionGraph);
                 if (titleInfo != null) {
                     titleInfoMap.put(titleId, titleInfo);
                     plugin.getLogger().info("成功加载称号: " + titleId);
@@ -96,6 +113,25 @@ public class ConfigManager {
         }
         
         plugin.getLogger().info("总共加载了 " + titleInfoMap.size() + " 个称号");
+        if (getConfigValue("debug", false)) {
+            plugin.getLogger().info("解锁条件图: " + conditionGraph.getNodeCount() + " 个节点（" +
+                                  conditionGraph.getLeafCount() + " 个叶子），共享 " +
+                                  conditionGraph.getSharedCount() + " 次");
+        }
+
+        // 构建统计反向索引，统计变化时只检查相关称号；与称号一起发布
+        publish(new TitleCatalog(titleInfoMap, StatisticIndex.build(titleInfoMap.values()), generation,
+                                plugin.getLogger()));
+    }
+
+    /**
+     * 发布新的称号目录，之后新建的玩家称号集合使用该目录的称号索引
+     *
+     * @param loaded 新目录
+     */
+    private void publish(TitleCatalog loaded) {
+        TitleIndex.activate(loaded.getTitleIndex());
+        catalog = loaded;
     }
     
     /**
@@ -103,9 +139,10 @@ public class ConfigManager {
      * 
      * @param titleId 称号ID
      * @param section 配置节点
+     * @param conditionGraph 所有称号共用的条件图
      * @return 称号信息对象
      */
-    private TitleInfo loadTitleInfo(String titleId, ConfigurationSection section) {
+    private TitleInfo loadTitleInfo(String titleId, ConfigurationSection section, ConditionGraph conditionGraph) {
         if (section == null) {
             return null;
         }
@@ -124,6 +161,14 @@ public class ConfigManager {
 
         // 解锁条件
         Map<String, Object> unlockConditions = loadUnlockConditions(section.getConfigurationSection("unlock-conditions"));
+        UnlockConditions compiledConditions;
+        try {
+            compiledConditions = UnlockConditions.compile(unlockConditions, conditionGraph);
+        } catch (IllegalArgumentException e) {
+            // 称号仍然保留，已拥有的玩家不会因为配置错误被清理掉称号
+            plugin.getLogger().warning("称号 " + titleId + " 的解锁条件无效，该称号暂时不能通过统计解锁: " + e.getMessage());
+            compiledConditions = UnlockConditions.INVALID;
+        }
 
         // 是否默认称号
         boolean isDefault = section.getBoolean("default", false);
@@ -138,7 +183,7 @@ public class ConfigManager {
         Map<String, Object> purchaseOptions = loadPurchaseOptions(section.getConfigurationSection("purchase"));
 
         return new TitleInfo(titleId, displayName, guiItem, attributes, sagaAttributes,
-                           unlockConditions, isDefault, sortOrder, isHidden, purchaseOptions);
+                           unlockConditions, compiledConditions, isDefault, sortOrder, isHidden, purchaseOptions);
     }
     
     /**
@@ -256,13 +301,30 @@ public class ConfigManager {
         
         if (section != null) {
             for (String key : section.getKeys(false)) {
-                conditions.put(key, section.get(key));
+                // windowed 等嵌套条件转换为普通映射
+                ConfigurationSection nested = section.getConfigurationSection(key);
+                conditions.put(key, nested != null ? toMap(nested) : section.get(key));
             }
         }
         
         return conditions;
     }
 
+    /**
+     * 将配置节点递归转换为普通映射
+     *
+     * @param section 配置节点
+     * @return 映射
+     */
+    private Map<String, Object> toMap(ConfigurationSection section) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (String key : section.getKeys(false)) {
+            ConfigurationSection nested = section.getConfigurationSection(key);
+            map.put(key, nested != null ? toMap(nested) : section.get(key));
+        }
+        return map;
+    }
+
     /**
      * 加载购买选项
      *
@@ -284,43 +346,62 @@ public class ConfigManager {
         return options;
     }
 
+    /**
+     * 获取当前的称号目录
+     * 需要同时使用多项称号数据时应先取得目录，保证它们来自同一次加载
+     *
+     * @return 称号目录
+     */
+    public TitleCatalog getCatalog() {
+        return catalog;
+    }
+
     /**
      * 获取所有称号信息
      *
-     * @return 称号信息映射
+     * @return 称号信息映射（不可修改）
      */
     public Map<String, TitleInfo> getAllTitles() {
-        return new HashMap<>(titleInfoMap);
+        return catalog.getTitles();
     }
 
     /**
      * 获取所有可见称号信息（排除隐藏称号）
      *
-     * @return 可见称号信息映射
+     * @return 可见称号信息映射（不可修改）
      */
     public Map<String, TitleInfo> getVisibleTitles() {
-        Map<String, TitleInfo> visibleTitles = new HashMap<>();
-        for (Map.Entry<String, TitleInfo> entry : titleInfoMap.entrySet()) {
-            if (!entry.getValue().isHidden()) {
-                visibleTitles.put(entry.getKey(), entry.getValue());
-            }
-        }
-        return visibleTitles;
+        return catalog.getVisibleTitles();
     }
 
     /**
      * 获取排序后的称号列表
      *
      * @param includeHidden 是否包含隐藏称号
-     * @return 排序后的称号列表
+     * @return 排序后的称号列表（不可修改）
      */
     public List<TitleInfo> getSortedTitles(boolean includeHidden) {
-        return titleInfoMap.values().stream()
-                .filter(title -> includeHidden || !title.isHidden())
-                .sorted((t1, t2) -> Integer.compare(t1.getSortOrder(), t2.getSortOrder()))
-                .collect(java.util.stream.Collectors.toList());
+        return catalog.getSortedTitles(includeHidden);
     }
     
+    /**
+     * 获取统计反向索引
+     *
+     * @return 统计到相关称号的索引
+     */
+    public StatisticIndex getStatisticIndex() {
+        return catalog.getStatisticIndex();
+    }
+
+    /**
+     * 获取称号配置的版本号，每次加载称号后递增
+     *
+     * @return 版本号
+     */
+    public int getCatalogGeneration() {
+        return catalog.getGeneration();
+    }
+
     /**
      * 获取指定称号信息
      * 
@@ -328,7 +409,7 @@ public class ConfigManager {
      * @return 称号信息，如果不存在则返回null
      */
     public TitleInfo getTitleInfo(String titleId) {
-        return titleInfoMap.get(titleId);
+        return catalog.getTitleInfo(titleId);
     }
     
     /**
@@ -338,7 +419,7 @@ public class ConfigManager {
      * @return 是否存在
      */
     public boolean titleExists(String titleId) {
-        return titleInfoMap.containsKey(titleId);
+        return catalog.getTitles().containsKey(titleId);
     }
     
     /**
@@ -347,12 +428,7 @@ public class ConfigManager {
      * @return 默认称号ID，如果没有则返回null
      */
     public String getDefaultTitle() {
-        for (TitleInfo titleInfo : titleInfoMap.values()) {
-            if (titleInfo.isDefault()) {
-                return titleInfo.getId();
-            }
-        }
-        return null;
+        return catalog.getDefaultTitle();
     }
     
     /**
@@ -0,0 +1,357 @@
+package com.github.chengge.zprefix.manager;
+
+import com.github.chengge.zprefix.ZPrefix;
+import com.github.chengge.zprefix.condition.EvaluationContext;
+import com.github.chengge.zprefix.condition.StatsFileReader;
+import com.github.chengge.zprefix.data.TitleInfo;
+import com.github.chengge.zprefix.util.MessageUtil;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * 离线解锁任务
+ * 读取主世界 stats 目录下所有玩家的原版统计文件，按当前称号配置补发满足条件的称号。
+ * 文件在有界线程池中并行解析，解锁结果回到主线程后按批次发放给缓存中的玩家；
+ * 不在缓存中的玩家交给存储线程直接读取和写入存储，主线程不会读取存储，也不会把这些玩家载入缓存
+ */
+public class OfflineUnlockJob {
+
+    // 每次写入存储的最多称号数，整文件存储（file、binary）每批只重写一次
+    private static final int OFFLINE_WRITE_BATCH = 5000;
+
+    private final ZPrefix plugin;
+    private final ConfigManager configManager;
+    private final TitleManager titleManager;
+
+    // 工作线程产生、主线程消费的待发放称号
+    private final Queue<Grant> pendingGrants = new ConcurrentLinkedQueue<>();
+    // 主线程产生并分批交给存储线程写入的离线玩家称号
+    private final Queue<Grant> offlineGrants = new ConcurrentLinkedQueue<>();
+    // 进行中的离线写入，同一时间最多一批；为null时没有写入
+    private volatile CompletableFuture<Integer> offlineWrite;
+
+    private volatile boolean running;
+    private volatile boolean cancelled;
+    private volatile boolean scanFinished;
+    private volatile boolean debug;
+    private ThreadPoolExecutor executor;
+    private int applyTaskId = -1;
+    private CommandSender requester;
+
+    // 进度统计
+    private final AtomicInteger filesProcessed = new AtomicInteger();
+    private final AtomicInteger filesFailed = new AtomicInteger();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private long titlesGranted;
+    private final AtomicLong offlineTitlesGranted = new AtomicLong();
+    private long startNanos;
+    private long lastReportNanos;
+
+    public OfflineUnlockJob(ZPrefix plugin, ConfigManager configManager, TitleManager titleManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.titleManager = titleManager;
+    }
+
+    /**
+     * 启动离线解锁任务，必须在主线程调用
+     *
+     * @param sender 命令发送者，任务结束时接收报告
+     * @return 是否成功启动
+     */
+    public boolean start(CommandSender sender) {
+        if (running) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.backfill.already-running");
+            return false;
+        }
+
+        List<World> worlds = plugin.getServer().getWorlds();
+        if (worlds.isEmpty()) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.backfill.no-world");
+            return false;
+        }
+
+        Path statsDir = new File(worlds.get(0).getWorldFolder(), "stats").toPath();
+        if (!Files.isDirectory(statsDir)) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.backfill.no-stats-dir", "path", statsDir.toString());
+            return false;
+        }
+
+        // 只检查可以通过统计解锁的称号，配置在任务期间重载不影响本次任务
+        List<TitleInfo> titles = new ArrayList<>();
+        for (TitleInfo titleInfo : configManager.getAllTitles().values()) {
+            if (titleInfo.getCompiledConditions().isStatUnlockable()) {
+                titles.add(titleInfo);
+            }
+        }
+        if (titles.isEmpty()) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.backfill.no-titles");
+            return false;
+        }
+
+        int threads = Math.max(1, configManager.getConfigValue("progress.offline-threads", 2));
+        int batchSize = Math.max(1, configManager.getConfigValue("progress.offline-batch-size", 200));
+
+        running = true;
+        cancelled = false;
+        scanFinished = false;
+        requester = sender;
+        debug = configManager.getConfigValue("debug", false);
+        pendingGrants.clear();
+        offlineGrants.clear();
+        offlineTitlesGranted.set(0);
+        filesProcessed.set(0);
+        filesFailed.set(0);
+        bytesRead.set(0);
+        titlesGranted = 0;
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+
+        // 队列有界，线程池满时由分发线程自己处理，避免一次性把所有文件排进内存
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 64),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "zPrefix-OfflineUnlock-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> dispatch(statsDir, titles));
+        applyTaskId = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> applyBatch(batchSize), 1L, 1L).getTaskId();
+
+        MessageUtil.sendPrefixedMessage(sender, "admin.backfill.started",
+                "threads", String.valueOf(threads), "titles", String.valueOf(titles.size()));
+        plugin.getLogger().info("离线解锁任务已启动: " + statsDir);
+        return true;
+    }
+
+    /**
+     * 停止离线解锁任务，已解析出的结果仍会发放
+     * 等待进行中的离线写入完成后返回，插件关闭时存储不会在写入途中被关闭
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        cancelled = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        CompletableFuture<Integer> write = offlineWrite;
+        if (write != null) {
+            try {
+                write.get(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                plugin.getLogger().warning("等待离线玩家称号写入完成时出错: " + e);
+            }
+        }
+    }
+
+    /**
+     * 是否正在运行
+     *
+     * @return 是否正在运行
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 向命令发送者报告当前进度
+     *
+     * @param sender 命令发送者
+     */
+    public void sendStatus(CommandSender sender) {
+        if (!running) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.backfill.not-running");
+            return;
+        }
+        MessageUtil.sendPrefixedMessage(sender, "admin.backfill.progress", "progress", formatProgress());
+    }
+
+    /**
+     * 分发线程：遍历统计目录并提交解析任务
+     */
+    private void dispatch(Path statsDir, List<TitleInfo> titles) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(statsDir, "*.json")) {
+            for (Path file : files) {
+                if (cancelled) {
+                    break;
+                }
+                try {
+                    executor.execute(() -> processFile(file, titles));
+                } catch (RejectedExecutionException e) {
+                    break; // 任务已被停止
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("遍历统计目录时出错: " + e.getMessage());
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scanFinished = true;
+        }
+    }
+
+    /**
+     * 工作线程：解析单个统计文件并检查称号
+     */
+    private void processFile(Path file, List<TitleInfo> titles) {
+        if (cancelled) {
+            return;
+        }
+
+        String fileName = file.getFileName().toString();
+        UUID playerId;
+        try {
+            playerId = UUID.fromString(fileName.substring(0, fileName.length() - ".json".length()));
+        } catch (IllegalArgumentException e) {
+            return; // 不是玩家统计文件
+        }
+
+        try {
+            bytesRead.addAndGet(Files.size(file));
+            EvaluationContext context = EvaluationContext.offline(StatsFileReader.read(file));
+            for (TitleInfo titleInfo : titles) {
+                if (titleInfo.getCompiledConditions().test(context)) {
+                    pendingGrants.add(new Grant(playerId, titleInfo.getId()));
+                }
+            }
+        } catch (Exception e) {
+            filesFailed.incrementAndGet();
+            if (debug) {
+                plugin.getLogger().warning("读取统计文件 " + fileName + " 时出错: " + e.getMessage());
+            }
+        } finally {
+            filesProcessed.incrementAndGet();
+        }
+    }
+
+    /**
+     * 主线程：每tick发放一批称号
+     */
+    private void applyBatch(int batchSize) {
+        Grant grant;
+        int applied = 0;
+        while (applied < batchSize && (grant = pendingGrants.poll()) != null) {
+            if (!titleManager.isPlayerDataCached(grant.playerId)) {
+                offlineGrants.add(grant);
+            } else if (titleManager.givePlayerTitle(grant.playerId, grant.titleId)) {
+                // 已拥有的称号会返回false，不重复计数
+                titlesGranted++;
+            }
+            applied++;
+        }
+        if (!offlineGrants.isEmpty() && offlineWrite == null) {
+            writeOfflineGrants();
+        }
+
+        long now = System.nanoTime();
+        if (now - lastReportNanos >= TimeUnit.SECONDS.toNanos(10)) {
+            lastReportNanos = now;
+            plugin.getLogger().info("离线解锁进度: " + formatProgress());
+        }
+
+        if (scanFinished && pendingGrants.isEmpty() && offlineGrants.isEmpty() && offlineWrite == null) {
+            finish();
+        }
+    }
+
+    /**
+     * 主线程：取出一批不在缓存中的玩家的称号，交给存储线程直接写入存储
+     */
+    private void writeOfflineGrants() {
+        Map<UUID, Set<String>> batch = new HashMap<>();
+        Grant grant;
+        int drained = 0;
+        while (drained < OFFLINE_WRITE_BATCH && (grant = offlineGrants.poll()) != null) {
+            batch.computeIfAbsent(grant.playerId, id -> new HashSet<>()).add(grant.titleId);
+            drained++;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Set<UUID> nowCached = new HashSet<>();
+        CompletableFuture<Integer> write = titleManager.writeOfflineTitles(batch, nowCached);
+        offlineWrite = write;
+        write.whenComplete((granted, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "写入离线玩家称号时出错", error);
+            } else {
+                offlineTitlesGranted.addAndGet(granted);
+                // 写入期间载入缓存的玩家可能读到了旧记录，交回主线程再发放一次（已拥有的不会重复）
+                for (UUID playerId : nowCached) {
+                    for (String titleId : batch.get(playerId)) {
+                        pendingGrants.add(new Grant(playerId, titleId));
+                    }
+                }
+            }
+            offlineWrite = null;
+        });
+    }
+
+    private void finish() {
+        plugin.getServer().getScheduler().cancelTask(applyTaskId);
+        applyTaskId = -1;
+        running = false;
+
+        String progress = formatProgress();
+        String failed = String.valueOf(filesFailed.get());
+        plugin.getLogger().info((cancelled ? "离线解锁任务已停止: " : "离线解锁任务完成: ") + progress +
+                                "，读取失败 " + failed + " 个文件");
+        if (requester != null) {
+            MessageUtil.sendPrefixedMessage(requester, cancelled ? "admin.backfill.stopped" : "admin.backfill.finished",
+                    "progress", progress, "failed", failed);
+            requester = null;
+        }
+    }
+
+    private String formatProgress() {
+        double seconds = Math.max(0.001, (System.nanoTime() - startNanos) / 1_000_000_000.0);
+        int files = filesProcessed.get();
+        double megabytes = bytesRead.get() / (1024.0 * 1024.0);
+        return String.format("已处理 %d 个文件 (%.1f 文件/秒, %.2f MB/秒)，发放 %d 个称号，用时 %.1f 秒",
+                files, files / seconds, megabytes / seconds, titlesGranted + offlineTitlesGranted.get(), seconds);
+    }
+
+    /**
+     * 待发放的称号
+     */
+    private static final class Grant {
+        final UUID playerId;
+        final String titleId;
+
+        Grant(UUID playerId, String titleId) {
+            this.playerId = playerId;
+            this.titleId = titleId;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package com.github.chengge.zprefix.manager;
+
+import com.github.chengge.zprefix.ZPrefix;
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import com.github.chengge.zprefix.data.PlayerTitleData;
+import com.github.chengge.zprefix.storage.AtomicFiles;
+import com.github.chengge.zprefix.storage.PlayerDataStorage;
+import com.github.chengge.zprefix.util.MessageUtil;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * 存储迁移任务
+ * 按源存储的顺序分页读取玩家数据，在有界线程池中批量写入目标存储并逐条读回校验。
+ * 每完成一批就把进度写入检查点，服务器重启后再次执行相同的迁移会从检查点继续
+ */
+public class StorageMigrationJob {
+
+    private final ZPrefix plugin;
+    private final ConfigManager configManager;
+    private final TitleManager titleManager;
+    private final File checkpointFile;
+
+    private volatile boolean running;
+    private volatile boolean cancelled;
+    private CommandSender requester;
+    private String from;
+    private String to;
+
+    // 进度统计
+    private final AtomicLong recordsMigrated = new AtomicLong();
+    private final AtomicInteger batchesInFlight = new AtomicInteger();
+    private long resumedRecords;
+    private long startNanos;
+    private long lastReportNanos;
+
+    public StorageMigrationJob(ZPrefix plugin, ConfigManager configManager, TitleManager titleManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.titleManager = titleManager;
+        this.checkpointFile = new File(plugin.getDataFolder(), "data/migration.yml");
+    }
+
+    /**
+     * 启动迁移任务，必须在主线程调用
+     *
+     * @param sender 命令发送者，任务结束时接收报告
+     * @param from 源存储类型
+     * @param to 目标存储类型
+     * @return 是否成功启动
+     */
+    public boolean start(CommandSender sender, String from, String to) {
+        if (running) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.migrate.already-running");
+            return false;
+        }
+        from = from.toLowerCase();
+        to = to.toLowerCase();
+        if (from.equals(to)) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.migrate.same-storage");
+            return false;
+        }
+        // 目标存储正在被插件使用时，迁移写入会和正常保存互相覆盖
+        if (to.equals(titleManager.getStorageType())) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.migrate.target-in-use", "storage", to);
+            return false;
+        }
+
+        PlayerDataStorage source = null;
+        PlayerDataStorage target = null;
+        PlayerDataStorage verifySource = null;
+        try {
+            source = titleManager.createStorage(from);
+            target = titleManager.createStorage(to);
+            // 校验时重新打开源存储，file 等存储初始化时读入内存，用同一个实例校验只会和迁移时的内容比较
+            verifySource = titleManager.createStorage(from);
+        } catch (RuntimeException e) {
+            closeQuietly(source);
+            closeQuietly(target);
+            MessageUtil.sendPrefixedMessage(sender, "admin.migrate.connect-failed", "error", String.valueOf(e.getMessage()));
+            return false;
+        }
+        if (source == null || target == null) {
+            closeQuietly(source);
+            closeQuietly(target);
+            closeQuietly(verifySource);
+            MessageUtil.sendPrefixedMessage(sender, "admin.migrate.unknown-storage", "storage", source == null ? from : to);
+            return false;
+        }
+
+        // 先把内存中的修改写入当前存储，源存储是当前存储时才能读到最新数据；迁移线程等待保存完成后再读取
+        CompletableFuture<Void> pendingSave = from.equals(titleManager.getStorageType())
+                ? titleManager.flushPlayerData() : CompletableFuture.completedFuture(null);
+
+        Checkpoint checkpoint = loadCheckpoint(from, to);
+
+        int batchSize = Math.max(1, configManager.getConfigValue("migration.batch-size", 500));
+        int threads = Math.max(1, configManager.getConfigValue("migration.threads", 4));
+        // file 和 binary 每次保存都重写整个文件，多个线程写入只会排队，并且每批都重写一次
+        if (to.equals("file") || to.equals("binary")) {
+            threads = 1;
+        }
+        int rate = configManager.getConfigValue("migration.records-per-second", 2000);
+
+        running = true;
+        cancelled = false;
+        requester = sender;
+        this.from = from;
+        this.to = to;
+        recordsMigrated.set(checkpoint.migrated);
+        batchesInFlight.set(0);
+        resumedRecords = checkpoint.migrated;
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+
+        PlayerDataStorage migrateSource = source;
+        PlayerDataStorage migrateTarget = target;
+        PlayerDataStorage verifyAgainst = verifySource;
+        int writers = threads;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin,
+                () -> run(pendingSave, migrateSource, migrateTarget, verifyAgainst, checkpoint, batchSize, writers, rate));
+
+        if (checkpoint.lastPlayer != null) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.migrate.resumed",
+                    "from", from, "to", to, "count", String.valueOf(checkpoint.migrated));
+        } else {
+            MessageUtil.sendPrefixedMessage(sender, "admin.migrate.started",
+                    "from", from, "to", to, "threads", String.valueOf(threads),
+                    "rate", rate > 0 ? MessageUtil.getMessage("admin.migrate.rate", "rate", String.valueOf(rate))
+                                     : MessageUtil.getMessage("admin.migrate.rate-unlimited"));
+        }
+        plugin.getLogger().info("存储迁移任务已启动: " + from + " -> " + to);
+        return true;
+    }
+
+    /**
+     * 停止迁移任务，已完成的批次记录在检查点中
+     */
+    public void stop() {
+        if (running) {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * 是否正在运行
+     *
+     * @return 是否正在运行
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 向命令发送者报告当前进度
+     *
+     * @param sender 命令发送者
+     */
+    public void sendStatus(CommandSender sender) {
+        if (!running) {
+            MessageUtil.sendPrefixedMessage(sender, "admin.migrate.not-running");
+            return;
+        }
+        MessageUtil.sendPrefixedMessage(sender, "admin.migrate.progress", "from", from, "to", to, "progress", formatProgress());
+    }
+
+    /**
+     * 分发线程：等待源存储保存完成后分页读取，提交写入任务，并按顺序推进检查点
+     */
+    private void run(CompletableFuture<Void> pendingSave, PlayerDataStorage source, PlayerDataStorage target,
+                     PlayerDataStorage verifySource, Checkpoint checkpoint, int batchSize, int threads, int rate) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "zPrefix-Migrate-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 按提交顺序排列的进行中批次，只有队首完成后检查点才前进，重启后不会跳过未写完的批次
+        Deque<Batch> inFlight = new ArrayDeque<>();
+        String error = null;
+        boolean verified = false;
+
+        try {
+            pendingSave.get();
+            source.initialize();
+            target.initialize();
+
+            UUID after = checkpoint.lastPlayer;
+            long dispatched = 0;
+            while (!cancelled) {
+                List<PlayerTitleData> page = source.scan(after, batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                after = page.get(page.size() - 1).getPlayerId();
+
+                Batch batch = new Batch(after, page.size());
+                batch.future = executor.submit(() -> writeBatch(target, page));
+                inFlight.add(batch);
+                batchesInFlight.incrementAndGet();
+
+                // 最多保留两轮线程数的批次，避免源存储读取远快于写入时占满内存
+                while (inFlight.size() >= threads * 2 || (!inFlight.isEmpty() && inFlight.peek().future.isDone())) {
+                    completeBatch(inFlight.poll(), checkpoint);
+                }
+
+                dispatched += page.size();
+                throttle(dispatched, rate);
+                reportProgress();
+            }
+            while (!inFlight.isEmpty()) {
+                completeBatch(inFlight.poll(), checkpoint);
+            }
+
+            if (!cancelled) {
+                // 释放迁移用的源存储再重新读取，file 存储不会同时在内存中保留两份
+                closeQuietly(source);
+                verifySource.initialize();
+                verified = verify(verifySource, checkpoint);
+                checkpoint.complete = true;
+                saveCheckpoint(checkpoint);
+            }
+        } catch (ExecutionException e) {
+            error = e.getCause().getMessage();
+            plugin.getLogger().log(Level.SEVERE, "迁移玩家数据失败", e.getCause());
+        } catch (IOException e) {
+            error = e.getMessage();
+            plugin.getLogger().log(Level.SEVERE, "迁移玩家数据失败", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "迁移线程被中断";
+        } finally {
+            executor.shutdownNow();
+            closeQuietly(source);
+            closeQuietly(target);
+            closeQuietly(verifySource);
+        }
+
+        String progress = formatProgress();
+        String report;
+        String messageKey;
+        if (error != null) {
+            report = "迁移任务失败: " + error + "，已完成的部分记录在检查点中，可以重新执行继续迁移";
+            messageKey = "admin.migrate.failed";
+        } else if (cancelled) {
+            report = "迁移任务已停止: " + progress + "，重新执行相同的迁移会从检查点继续";
+            messageKey = "admin.migrate.stopped";
+        } else if (verified) {
+            report = "迁移任务完成: " + progress + "，数量和校验和一致";
+            messageKey = "admin.migrate.verified";
+        } else {
+            report = "迁移任务完成: " + progress + "，但源数据在迁移期间发生了变化，请再次执行以同步";
+            messageKey = "admin.migrate.source-changed";
+        }
+        String errorMessage = String.valueOf(error);
+        plugin.getServer().getScheduler().runTask(plugin, () -> finish(report, messageKey,
+                "progress", progress, "error", errorMessage));
+    }
+
+    /**
+     * 工作线程：写入一批玩家数据并从目标存储读回逐条校验
+     *
+     * @return 本批次的校验和
+     */
+    private long writeBatch(PlayerDataStorage target, List<PlayerTitleData> page) throws IOException {
+        List<PlayerDataSnapshot> snapshots = new ArrayList<>(page.size());
+        for (PlayerTitleData playerData : page) {
+            snapshots.add(playerData.snapshot());
+        }
+        target.save(snapshots);
+
+        long sum = 0;
+        for (PlayerDataSnapshot snapshot : snapshots) {
+            PlayerTitleData written = target.load(snapshot.getPlayerId());
+            long expected = checksum(snapshot.getPlayerId(), snapshot.getCurrentTitle(), snapshot.getUnlockedTitles());
+            // 空记录在部分存储中不会落盘，读回null也视为一致
+            long actual = written != null
+                    ? checksum(written.getPlayerId(), written.getCurrentTitle(), written.getUnlockedTitles())
+                    : checksum(snapshot.getPlayerId(), null, Collections.emptySet());
+            if (actual != expected) {
+                throw new IOException("玩家 " + snapshot.getPlayerId() + " 写入目标存储后校验失败");
+            }
+            sum += expected;
+        }
+        return sum;
+    }
+
+    /**
+     * 等待队首批次完成并推进检查点
+     */
+    private void completeBatch(Batch batch, Checkpoint checkpoint) throws ExecutionException, InterruptedException, IOException {
+        long sum = batch.future.get();
+        batchesInFlight.decrementAndGet();
+        checkpoint.lastPlayer = batch.lastPlayer;
+        checkpoint.migrated += batch.size;
+        checkpoint.checksum += sum;
+        recordsMigrated.set(checkpoint.migrated);
+        saveCheckpoint(checkpoint);
+    }
+
+    /**
+     * 读取重新打开的源存储，核对数量和校验和
+     *
+     * @return 是否一致
+     */
+    private boolean verify(PlayerDataStorage source, Checkpoint checkpoint) throws IOException {
+        long count = 0;
+        long sum = 0;
+        UUID after = null;
+        List<PlayerTitleData> page;
+        while (!(page = source.scan(after, 1000)).isEmpty()) {
+            for (PlayerTitleData playerData : page) {
+                sum += checksum(playerData.getPlayerId(), playerData.getCurrentTitle(), playerData.getUnlockedTitles());
+            }
+            count += page.size();
+            after = page.get(page.size() - 1).getPlayerId();
+        }
+
+        boolean match = count == checkpoint.migrated && sum == checkpoint.checksum;
+        if (!match) {
+            plugin.getLogger().warning("迁移校验不一致: 源存储 " + count + " 个玩家，已迁移 " + checkpoint.migrated + " 个");
+        }
+        return match;
+    }
+
+    /**
+     * 按速率上限休眠
+     */
+    private void throttle(long dispatched, int rate) throws InterruptedException {
+        if (rate <= 0) {
+            return;
+        }
+        long expectedNanos = dispatched * 1_000_000_000L / rate;
+        long aheadNanos = expectedNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+
+    private void reportProgress() {
+        long now = System.nanoTime();
+        if (now - lastReportNanos >= TimeUnit.SECONDS.toNanos(10)) {
+            lastReportNanos = now;
+            plugin.getLogger().info("迁移进度: " + formatProgress());
+        }
+    }
+
+    private void finish(String report, String messageKey, String... placeholders) {
+        running = false;
+        plugin.getLogger().info(report);
+        if (requester != null) {
+            MessageUtil.sendPrefixedMessage(requester, messageKey, placeholders);
+            requester = null;
+        }
+    }
+
+    private String formatProgress() {
+        double seconds = Math.max(0.001, (System.nanoTime() - startNanos) / 1_000_000_000.0);
+        long migrated = recordsMigrated.get();
+        return String.format("已迁移 %d 个玩家 (%.1f 条/秒)，进行中批次 %d，用时 %.1f 秒",
+                migrated, (migrated - resumedRecords) / seconds, batchesInFlight.get(), seconds);
+    }
+
+    /**
+     * 单条记录的校验和，与称号的顺序无关；整体校验和为各记录之和，与迁移顺序无关
+     */
+    private static long checksum(UUID playerId, String currentTitle, Iterable<String> unlockedTitles) {
+        List<String> titles = new ArrayList<>();
+        unlockedTitles.forEach(titles::add);
+        titles.sort(null);
+
+        CRC32 crc = new CRC32();
+        crc.update(playerId.toString().getBytes(StandardCharsets.UTF_8));
+        crc.update(0);
+        if (currentTitle != null) {
+            crc.update(currentTitle.getBytes(StandardCharsets.UTF_8));
+        }
+        for (String title : titles) {
+            crc.update(0);
+            crc.update(title.getBytes(StandardCharsets.UTF_8));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * 读取检查点，源和目标一致且未完成时从中继续，否则从头开始
+     */
+    private Checkpoint loadCheckpoint(String from, String to) {
+        Checkpoint checkpoint = new Checkpoint(from, to);
+        if (!checkpointFile.exists()) {
+            return checkpoint;
+        }
+
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(checkpointFile);
+        String lastPlayer = yaml.getString("last-player");
+        if (!from.equals(yaml.getString("from")) || !to.equals(yaml.getString("to")) ||
+            yaml.getBoolean("complete") || lastPlayer == null) {
+            return checkpoint;
+        }
+        try {
+            checkpoint.lastPlayer = UUID.fromString(lastPlayer);
+        } catch (IllegalArgumentException e) {
+            return checkpoint;
+        }
+        checkpoint.migrated = yaml.getLong("migrated");
+        checkpoint.checksum = yaml.getLong("checksum");
+        return checkpoint;
+    }
+
+    private void saveCheckpoint(Checkpoint checkpoint) throws IOException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("from", checkpoint.from);
+        yaml.set("to", checkpoint.to);
+        yaml.set("last-player", checkpoint.lastPlayer != null ? checkpoint.lastPlayer.toString() : null);
+        yaml.set("migrated", checkpoint.migrated);
+        yaml.set("checksum", checkpoint.checksum);
+        yaml.set("complete", checkpoint.complete);
+        yaml.set("updated", System.currentTimeMillis());
+
+        checkpointFile.getParentFile().mkdirs();
+        AtomicFiles.write(checkpointFile.toPath(), yaml.saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void closeQuietly(PlayerDataStorage storage) {
+        if (storage != null) {
+            try {
+                storage.close();
+            } catch (Exception e) {
+                plugin.getLogger().warning("关闭存储 " + storage.getType() + " 时出错: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 迁移检查点
+     */
+    private static final class Checkpoint {
+        final String from;
+        final String to;
+        UUID lastPlayer;
+        long migrated;
+        long checksum;
+        boolean complete;
+
+        Checkpoint(String from, String to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * 已提交的写入批次
+     */
+    private static final class Batch {
+        final UUID lastPlayer;
+        final int size;
+        Future<Long> future;
+
+        Batch(UUID lastPlayer, int size) {
+            this.lastPlayer = lastPlayer;
+            this.size = size;
+        }
+    }
+}
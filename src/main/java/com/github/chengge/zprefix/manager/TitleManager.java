@@ -1,17 +1,28 @@
 package com.github.chengge.zprefix.manager;
 
 import com.github.chengge.zprefix.ZPrefix;
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
 import com.github.chengge.zprefix.data.PlayerTitleData;
+import com.github.chengge.zprefix.data.TitleIndex;
 import com.github.chengge.zprefix.data.TitleInfo;
+import com.github.chengge.zprefix.storage.BinaryPlayerDataStorage;
+import com.github.chengge.zprefix.storage.ChangeJournal;
+import com.github.chengge.zprefix.storage.PlayerDataConverter;
+import com.github.chengge.zprefix.storage.PlayerDataSaver;
+import com.github.chengge.zprefix.storage.PlayerDataStorage;
+import com.github.chengge.zprefix.storage.ShardedPlayerDataStorage;
+import com.github.chengge.zprefix.storage.SqlPlayerDataStorage;
+import com.github.chengge.zprefix.storage.YamlPlayerDataStorage;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.attribute.AttributeInstance;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
@@ -25,8 +36,25 @@ public class TitleManager {
     private final ConfigManager configManager;
     private final BuffManager buffManager;
     private final Map<UUID, PlayerTitleData> playerDataMap = new ConcurrentHashMap<>();
-    private File dataFile;
-    private FileConfiguration dataConfig;
+    private PlayerDataStorage storage;
+    private PlayerDataSaver saver;
+    private ChangeJournal journal;
+    private long journalCompactRecords;
+
+    // 已下线但仍在缓存中的玩家及其下线时间，按下线先后排列；只在主线程访问
+    private final Map<UUID, Long> offlineSince = new LinkedHashMap<>();
+    private int offlineCacheSize;
+    private long offlineExpireMillis;
+
+    // 存储中没有记录的玩家及查询时间，避免反复读取存储；与离线缓存使用相同的数量和时间上限，
+    // 按访问顺序淘汰最久未查询的玩家。创建记录时必须移除对应条目
+    private final Map<UUID, Long> missingPlayers = Collections.synchronizedMap(
+            new LinkedHashMap<UUID, Long>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                    return size() > offlineCacheSize;
+                }
+            });
     
     public TitleManager(ZPrefix plugin, ConfigManager configManager, BuffManager buffManager) {
         this.plugin = plugin;
@@ -38,98 +66,563 @@ public class TitleManager {
      * 初始化称号管理器
      */
     public void initialize() {
-        setupDataFile();
-        loadPlayerData();
+        offlineCacheSize = configManager.getConfigValue("database.cache.max-offline", 500);
+        offlineExpireMillis = configManager.getConfigValue("database.cache.expire-after", 300) * 1000L;
+        setupStorage();
     }
     
     /**
-     * 设置数据文件
+     * 根据 database.type 创建存储
+     * 数据库连接失败或存储无法读取时直接抛出异常让插件停止启动，
+     * 不能改用其他存储，否则之后的保存会写到另一个地方，和原有数据分裂
+     *
+     * @throws IllegalStateException 存储不可用
      */
-    private void setupDataFile() {
-        String filePath = configManager.getConfigValue("database.file-path", "data/player_titles.yml");
-        dataFile = new File(plugin.getDataFolder(), filePath);
-        
-        // 确保目录存在
-        File parentDir = dataFile.getParentFile();
-        if (!parentDir.exists()) {
-            parentDir.mkdirs();
+    private void setupStorage() {
+        String type = configManager.getConfigValue("database.type", "file");
+
+        try {
+            storage = createStorage(type);
+        } catch (RuntimeException e) {
+            // 连接池在创建时就会尝试连接数据库
+            throw new IllegalStateException("连接数据库失败 (" + type + ")，插件不会启动以免玩家数据写入其他存储", e);
         }
-        
-        // 创建文件（如果不存在）
-        if (!dataFile.exists()) {
-            try {
-                dataFile.createNewFile();
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.SEVERE, "无法创建数据文件: " + dataFile.getPath(), e);
+        if (storage == null) {
+            throw new IllegalStateException("未知的存储类型: " + type + "，插件不会启动以免玩家数据写入其他存储");
+        }
+        if (storage instanceof BinaryPlayerDataStorage) {
+            importLegacyYaml();
+        }
+
+        try {
+            storage.initialize();
+        } catch (IOException e) {
+            PlayerDataStorage failed = storage;
+            storage = null;
+            failed.close();
+            throw new IllegalStateException("初始化玩家数据存储失败 (" + failed.getType() + ")，插件不会启动以免覆盖已有数据", e);
+        }
+
+        if (storage instanceof YamlPlayerDataStorage) {
+            YamlPlayerDataStorage yamlStorage = (YamlPlayerDataStorage) storage;
+            plugin.getLogger().info("玩家数据存储: file，共 " + yamlStorage.getRecordCount() + " 个玩家，读取耗时 " +
+                                  yamlStorage.getLoadMillis() + " 毫秒" + (yamlStorage.getLoadAllocatedBytes() >= 0
+                                  ? "，分配内存 " + (yamlStorage.getLoadAllocatedBytes() / 1024 / 1024) + " MB" : ""));
+        } else if (storage instanceof BinaryPlayerDataStorage) {
+            plugin.getLogger().info("玩家数据存储: binary，共 " + ((BinaryPlayerDataStorage) storage).getRecordCount() + " 个玩家");
+        } else {
+            plugin.getLogger().info("玩家数据存储: " + storage.getType() + "，玩家数据在首次访问时读取");
+        }
+
+        setupJournal();
+        saver = new PlayerDataSaver(plugin, storage, journal);
+
+        // 把重放的修改写入存储，之后旧的日志段即可删除
+        if (journal != null) {
+            saver.saveNow(playerDataMap.values());
+        }
+
+        if (configManager.getConfigValue("database.purge-empty-on-startup", false)) {
+            purgeEmptyRecords();
+        }
+    }
+
+    /**
+     * 在存储线程删除已保存的空记录（没有任何称号的玩家）
+     *
+     * @return 删除的记录数
+     */
+    public CompletableFuture<Integer> purgeEmptyRecords() {
+        return saver.purgeEmptyRecords().whenComplete((purged, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "清理空的玩家称号数据时出错", error);
+            } else if (purged > 0) {
+                plugin.getLogger().info("已清理 " + purged + " 条空的玩家称号数据");
             }
+        });
+    }
+
+    /**
+     * 按存储类型创建一个尚未初始化的存储，迁移时也用它创建源和目标存储
+     *
+     * @param type 存储类型（file、sharded、binary、mysql、sqlite）
+     * @return 存储，未知类型时为null
+     * @throws RuntimeException 连接数据库失败
+     */
+    public PlayerDataStorage createStorage(String type) {
+        switch (type.toLowerCase()) {
+            case "file":
+                return new YamlPlayerDataStorage(new File(plugin.getDataFolder(),
+                        configManager.getConfigValue("database.file-path", "data/player_titles.yml")));
+            case "sharded":
+                return new ShardedPlayerDataStorage(new File(plugin.getDataFolder(),
+                        configManager.getConfigValue("database.shard-path", "data/players")));
+            case "binary":
+                return new BinaryPlayerDataStorage(new File(plugin.getDataFolder(),
+                        configManager.getConfigValue("database.binary-path", "data/player_titles.bin")));
+            case "mysql":
+                return createSqlStorage(SqlPlayerDataStorage.Dialect.MYSQL);
+            case "sqlite":
+                return createSqlStorage(SqlPlayerDataStorage.Dialect.SQLITE);
+            default:
+                return null;
         }
-        
-        dataConfig = YamlConfiguration.loadConfiguration(dataFile);
     }
-    
+
+    /**
+     * 创建数据库存储及其连接池
+     *
+     * @param dialect 数据库方言
+     * @return 数据库存储
+     * @throws RuntimeException 连接数据库失败
+     */
+    private PlayerDataStorage createSqlStorage(SqlPlayerDataStorage.Dialect dialect) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("zPrefix-Pool");
+        int poolSize = configManager.getConfigValue("database.pool-size", 10);
+
+        if (dialect == SqlPlayerDataStorage.Dialect.MYSQL) {
+            String host = configManager.getConfigValue("database.mysql.host", "localhost");
+            int port = configManager.getConfigValue("database.mysql.port", 3306);
+            String database = configManager.getConfigValue("database.mysql.database", "minecraft");
+            String properties = configManager.getConfigValue("database.mysql.properties", "useSSL=false&characterEncoding=utf8");
+            hikariConfig.setJdbcUrl("jdbc:mysql://" + host + ":" + port + "/" + database +
+                                    (properties.isEmpty() ? "" : "?" + properties));
+            hikariConfig.setUsername(configManager.getConfigValue("database.mysql.username", "root"));
+            hikariConfig.setPassword(configManager.getConfigValue("database.mysql.password", ""));
+            hikariConfig.setMaximumPoolSize(poolSize);
+            // 开启批量语句重写，批量 upsert 合并为一条多行语句
+            hikariConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+            hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+        } else {
+            File databaseFile = new File(plugin.getDataFolder(),
+                    configManager.getConfigValue("database.sqlite-path", "data/player_titles.db"));
+            databaseFile.getParentFile().mkdirs();
+            hikariConfig.setJdbcUrl("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+            // SQLite 同一时间只允许一个写入者
+            hikariConfig.setMaximumPoolSize(1);
+        }
+
+        String tablePrefix = configManager.getConfigValue("database.table-prefix", "zprefix_");
+        return new SqlPlayerDataStorage(dialect, new HikariDataSource(hikariConfig), tablePrefix);
+    }
+
     /**
-     * 加载玩家数据
+     * 首次使用二进制存储时，从原有的YAML文件导入玩家数据
+     * 导入失败时抛出异常让插件停止启动，否则二进制存储会以空数据启动，之后的保存与原有数据分裂
+     *
+     * @throws IllegalStateException 导入失败
      */
-    private void loadPlayerData() {
-        if (dataConfig.getConfigurationSection("players") == null) {
+    private void importLegacyYaml() {
+        File binaryFile = new File(plugin.getDataFolder(),
+                configManager.getConfigValue("database.binary-path", "data/player_titles.bin"));
+        File yamlFile = new File(plugin.getDataFolder(),
+                configManager.getConfigValue("database.file-path", "data/player_titles.yml"));
+        if (binaryFile.exists() || !yamlFile.exists() || yamlFile.length() == 0) {
             return;
         }
-        
-        for (String uuidString : dataConfig.getConfigurationSection("players").getKeys(false)) {
-            try {
-                UUID playerId = UUID.fromString(uuidString);
-                String currentTitle = dataConfig.getString("players." + uuidString + ".current-title");
-                List<String> unlockedTitles = dataConfig.getStringList("players." + uuidString + ".unlocked-titles");
-                
-                PlayerTitleData playerData = new PlayerTitleData(playerId, currentTitle, new HashSet<>(unlockedTitles));
-                playerDataMap.put(playerId, playerData);
-                
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().warning("无效的UUID格式: " + uuidString);
+
+        try {
+            long startTime = System.currentTimeMillis();
+            int count = PlayerDataConverter.yamlToBinary(yamlFile, binaryFile);
+            plugin.getLogger().info("已将 " + yamlFile.getName() + " 中的 " + count + " 个玩家转换为二进制存储，耗时 " +
+                                  (System.currentTimeMillis() - startTime) + " 毫秒");
+        } catch (IOException e) {
+            throw new IllegalStateException("将 " + yamlFile.getName() + " 转换为二进制存储失败，插件不会启动以免以空数据运行", e);
+        }
+    }
+
+    /**
+     * 打开称号修改日志，并重放上次未合并的修改
+     */
+    private void setupJournal() {
+        if (!configManager.getConfigValue("database.journal.enabled", true)) {
+            return;
+        }
+
+        String journalPath = configManager.getConfigValue("database.journal.path", "data/journal");
+        long flushInterval = configManager.getConfigValue("database.journal.flush-interval", 50);
+        journalCompactRecords = configManager.getConfigValue("database.journal.compact-records", 5000);
+        journal = new ChangeJournal(plugin.getLogger(), new File(plugin.getDataFolder(), journalPath), flushInterval);
+
+        try {
+            int replayed = journal.replay(this::applyJournalRecord);
+            if (replayed > 0) {
+                plugin.getLogger().info("已从称号修改日志恢复 " + replayed + " 条修改");
             }
+            journal.open();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "打开称号修改日志失败，本次运行不记录修改日志", e);
+            journal = null;
+        }
+    }
+
+    /**
+     * 重放一条日志记录；读取玩家数据失败时中止重放，不把修改应用到新建的空数据上
+     */
+    private void applyJournalRecord(byte type, UUID playerId, String titleId) throws IOException {
+        PlayerTitleData playerData = getOrCreatePlayerData(playerId, true);
+        switch (type) {
+            case ChangeJournal.UNLOCK:
+                playerData.unlockTitle(titleId);
+                break;
+            case ChangeJournal.TAKE:
+                playerData.removeUnlockedTitle(titleId);
+                break;
+            case ChangeJournal.SET_CURRENT:
+                playerData.setCurrentTitle(titleId);
+                break;
+            default:
+                plugin.getLogger().warning("未知的称号修改日志记录类型: " + type);
+                break;
+        }
+    }
+
+    /**
+     * 记录一条修改；日志积累到一定数量时提前保存，以便合并日志
+     *
+     * @param type 记录类型
+     * @param playerId 玩家UUID
+     * @param titleId 称号ID
+     */
+    private void journal(byte type, UUID playerId, String titleId) {
+        if (journal == null) {
+            return;
+        }
+        journal.append(type, playerId, titleId);
+        if (journal.getPendingRecords() >= journalCompactRecords) {
+            savePlayerData();
         }
-        
-        plugin.getLogger().info("成功加载 " + playerDataMap.size() + " 个玩家的称号数据");
+    }
+
+    /**
+     * 从存储读取玩家数据，没有记录时创建新数据
+     * 读取失败时抛出异常而不是返回新数据，否则新数据保存后会覆盖玩家原有的记录
+     *
+     * @param playerId 玩家UUID
+     * @return 玩家数据
+     * @throws IOException 读取存储失败
+     */
+    private PlayerTitleData loadOrCreate(UUID playerId) throws IOException {
+        PlayerTitleData playerData = storage.load(playerId);
+        return playerData != null ? playerData : new PlayerTitleData(playerId);
     }
     
     /**
      * 保存玩家数据
+     * 在主线程为有修改的玩家创建快照，由存储线程异步写入
      */
     public void savePlayerData() {
-        for (Map.Entry<UUID, PlayerTitleData> entry : playerDataMap.entrySet()) {
+        saver.saveAsync(playerDataMap.values());
+    }
+
+    /**
+     * 保存玩家数据并返回可等待的结果，排在进行中的保存之后执行，必须在主线程调用
+     *
+     * @return 保存结果，写入失败时以 IOException 失败
+     */
+    public CompletableFuture<Void> flushPlayerData() {
+        return saver.flush(playerDataMap.values());
+    }
+
+    /**
+     * 获取当前使用的存储类型
+     *
+     * @return 存储类型名称
+     */
+    public String getStorageType() {
+        return storage.getType();
+    }
+
+    /**
+     * 获取数据保存流水线
+     *
+     * @return 保存流水线
+     */
+    public PlayerDataSaver getSaver() {
+        return saver;
+    }
+    
+    /**
+     * 在异步线程预先读取玩家数据（玩家登录前调用），避免进入游戏后在主线程读取存储
+     * 读取失败时不缓存任何数据，调用方应拒绝玩家登录
+     *
+     * @param playerId 玩家UUID
+     * @throws IOException 读取存储失败
+     */
+    public void preloadPlayerData(UUID playerId) throws IOException {
+        if (playerDataMap.containsKey(playerId)) {
+            return;
+        }
+        // 在映射外读取，读取期间不阻塞主线程对其他玩家的访问
+        playerDataMap.putIfAbsent(playerId, loadOrCreate(playerId));
+        missingPlayers.remove(playerId);
+    }
+
+    /**
+     * 移出已下线玩家的缓存数据
+     * 下线超过 expire-after 秒或超出 max-offline 数量的玩家，在数据保存后从内存中移除；
+     * 仍有未保存修改的玩家会触发一次保存，等下一次清理时再移除
+     *
+     * @return 移除的玩家数
+     */
+    public int evictOfflinePlayers() {
+        long now = System.currentTimeMillis();
+
+        // 不是因下线而缓存的玩家（例如对离线玩家执行的命令）从现在开始计时
+        for (UUID playerId : playerDataMap.keySet()) {
+            if (!offlineSince.containsKey(playerId) && plugin.getServer().getPlayer(playerId) == null) {
+                offlineSince.put(playerId, now);
+            }
+        }
+
+        int excess = offlineSince.size() - offlineCacheSize;
+        int evicted = 0;
+        boolean needsSave = false;
+        Iterator<Map.Entry<UUID, Long>> iterator = offlineSince.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Long> entry = iterator.next();
             UUID playerId = entry.getKey();
-            PlayerTitleData playerData = entry.getValue();
-            
-            String path = "players." + playerId.toString();
-            dataConfig.set(path + ".current-title", playerData.getCurrentTitle());
-            dataConfig.set(path + ".unlocked-titles", new ArrayList<>(playerData.getUnlockedTitles()));
+            if (plugin.getServer().getPlayer(playerId) != null) {
+                iterator.remove();
+                continue;
+            }
+
+            boolean expired = now - entry.getValue() >= offlineExpireMillis;
+            if (!expired && excess <= 0) {
+                break; // 之后的玩家下线时间更晚
+            }
+
+            PlayerTitleData playerData = playerDataMap.get(playerId);
+            if (playerData != null && playerData.isDirty()) {
+                needsSave = true;
+                continue;
+            }
+
+            if (playerData != null) {
+                playerDataMap.remove(playerId, playerData);
+                missingPlayers.remove(playerId);
+                evicted++;
+            }
+            iterator.remove();
+            excess--;
         }
-        
-        try {
-            dataConfig.save(dataFile);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "保存玩家数据时出错", e);
+
+        if (needsSave) {
+            savePlayerData();
         }
+        if (evicted > 0 && plugin.getConfigManager().getConfigValue("debug", false)) {
+            plugin.getLogger().info("已从缓存移除 " + evicted + " 名离线玩家的称号数据");
+        }
+        return evicted;
     }
-    
+
+    /**
+     * 把缓存中所有玩家的已解锁称号换到当前的称号索引上
+     * 重载配置后调用；期间并发修改产生的旧索引集合仍然有效，下次重载时再换
+     */
+    public void remapTitleIndex() {
+        TitleIndex index = TitleIndex.active();
+        for (PlayerTitleData playerData : playerDataMap.values()) {
+            playerData.remapTitles(index);
+        }
+    }
+
     /**
-     * 获取玩家称号数据
+     * 获取缓存中的玩家数
+     *
+     * @return 玩家数
+     */
+    public int getCachedPlayerCount() {
+        return playerDataMap.size();
+    }
+
+    /**
+     * 获取缓存中已下线的玩家数
+     *
+     * @return 玩家数
+     */
+    public int getOfflineCachedPlayerCount() {
+        return offlineSince.size();
+    }
+
+    /**
+     * 玩家数据是否在缓存中，可以在任何线程调用
+     *
+     * @param playerId 玩家UUID
+     * @return 是否在缓存中
+     */
+    public boolean isPlayerDataCached(UUID playerId) {
+        return playerDataMap.containsKey(playerId);
+    }
+
+    /**
+     * 把称号直接写入不在缓存中的玩家的存储记录，不会把玩家载入缓存
+     * 读写在存储线程执行，与正常保存按顺序进行；写入期间被载入缓存的玩家会加入 nowCached，
+     * 调用方应在主线程通过 givePlayerTitle 再发放一次
+     *
+     * @param grants 玩家到要发放的称号
+     * @param nowCached 写入后已在缓存中的玩家，结果完成后可以读取
+     * @return 新解锁的称号数，读取或写入存储失败时以 IOException 失败
+     */
+    public CompletableFuture<Integer> writeOfflineTitles(Map<UUID, Set<String>> grants, Set<UUID> nowCached) {
+        return saver.submit(() -> writeOfflineTitlesNow(grants, nowCached));
+    }
+
+    private int writeOfflineTitlesNow(Map<UUID, Set<String>> grants, Set<UUID> nowCached) throws IOException {
+        List<PlayerDataSnapshot> snapshots = new ArrayList<>();
+        int granted = 0;
+        for (Map.Entry<UUID, Set<String>> entry : grants.entrySet()) {
+            PlayerTitleData playerData = storage.load(entry.getKey());
+            if (playerData == null) {
+                playerData = new PlayerTitleData(entry.getKey());
+            }
+            int unlocked = 0;
+            for (String titleId : entry.getValue()) {
+                if (configManager.titleExists(titleId) && playerData.unlockTitle(titleId)) {
+                    unlocked++;
+                }
+            }
+            if (unlocked > 0) {
+                snapshots.add(playerData.snapshot());
+                granted += unlocked;
+            }
+        }
+        if (!snapshots.isEmpty()) {
+            storage.save(snapshots);
+            for (PlayerDataSnapshot snapshot : snapshots) {
+                missingPlayers.remove(snapshot.getPlayerId());
+            }
+        }
+
+        for (UUID playerId : grants.keySet()) {
+            if (playerDataMap.containsKey(playerId)) {
+                nowCached.add(playerId);
+            }
+        }
+        return granted;
+    }
+
+    /**
+     * 获取玩家称号数据（只读路径）
+     * 不在缓存中的玩家从存储读取，存储中有记录时加入缓存；
+     * 没有记录时返回共用的 PlayerTitleData.EMPTY，不创建新记录，并在一段时间内记住该玩家没有记录，
+     * 期间不再读取存储；
+     * 在主线程调用时不读取存储，不在缓存中的玩家返回 PlayerTitleData.EMPTY 并记录错误，
+     * 需要离线玩家的数据时先用 loadPlayerDataAsync 载入
      * 
      * @param playerId 玩家UUID
-     * @return 玩家称号数据
+     * @return 玩家称号数据，没有记录时为 PlayerTitleData.EMPTY
      */
     public PlayerTitleData getPlayerData(UUID playerId) {
-        return playerDataMap.computeIfAbsent(playerId, PlayerTitleData::new);
+        try {
+            return lookupPlayerData(playerId, !plugin.getServer().isPrimaryThread());
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "读取玩家 " + playerId + " 的称号数据时出错", e);
+            return PlayerTitleData.EMPTY;
+        }
+    }
+
+    /**
+     * 在存储线程载入玩家称号数据，与保存按顺序执行
+     * 结果在存储线程完成，需要回到主线程继续时由调用方调度；完成后 getPlayerData(UUID) 和
+     * givePlayerTitle(UUID, String) 在主线程可以直接使用缓存
+     *
+     * @param playerId 玩家UUID
+     * @return 玩家称号数据，没有记录时为 PlayerTitleData.EMPTY，读取失败时以 IOException 失败
+     */
+    public CompletableFuture<PlayerTitleData> loadPlayerDataAsync(UUID playerId) {
+        return saver.submit(() -> lookupPlayerData(playerId, true));
+    }
+
+    /**
+     * 查找玩家称号数据，区分没有记录（返回 EMPTY）和读取失败（抛出异常）
+     *
+     * @param playerId 玩家UUID
+     * @param blocking 是否允许读取存储，主线程上的调用传入false，缓存中没有时直接失败
+     * @return 玩家称号数据，没有记录时为 PlayerTitleData.EMPTY
+     * @throws IOException 读取存储失败，或不允许读取存储而缓存中没有该玩家
+     */
+    private PlayerTitleData lookupPlayerData(UUID playerId, boolean blocking) throws IOException {
+        PlayerTitleData playerData = playerDataMap.get(playerId);
+        if (playerData != null) {
+            return playerData;
+        }
+
+        Long missingSince = missingPlayers.get(playerId);
+        if (missingSince != null) {
+            if (System.currentTimeMillis() - missingSince < offlineExpireMillis) {
+                return PlayerTitleData.EMPTY;
+            }
+            missingPlayers.remove(playerId, missingSince);
+        }
+
+        if (!blocking) {
+            throw new IOException("玩家 " + playerId + " 的数据不在缓存中，主线程不读取存储，请先调用 loadPlayerDataAsync");
+        }
+        PlayerTitleData loaded = storage.load(playerId);
+        if (loaded == null) {
+            missingPlayers.put(playerId, System.currentTimeMillis());
+            // 读取期间其他线程可能已经创建了记录
+            playerData = playerDataMap.get(playerId);
+            if (playerData != null) {
+                missingPlayers.remove(playerId);
+                return playerData;
+            }
+            return PlayerTitleData.EMPTY;
+        }
+        PlayerTitleData existing = playerDataMap.putIfAbsent(playerId, loaded);
+        return existing != null ? existing : loaded;
     }
     
     /**
-     * 获取玩家称号数据
+     * 获取玩家称号数据（只读路径）
+     * 在线玩家的数据会常驻缓存；NPC等不在在线列表中的玩家对象直接返回 PlayerTitleData.EMPTY，不读取存储；
+     * 读取失败时返回 PlayerTitleData.EMPTY 且不缓存，下次访问时重新读取
      * 
      * @param player 玩家
      * @return 玩家称号数据
      */
     public PlayerTitleData getPlayerData(Player player) {
-        return getPlayerData(player.getUniqueId());
+        UUID playerId = player.getUniqueId();
+        PlayerTitleData playerData = playerDataMap.get(playerId);
+        if (playerData != null) {
+            return playerData;
+        }
+        if (plugin.getServer().getPlayer(playerId) == null) {
+            return PlayerTitleData.EMPTY;
+        }
+
+        PlayerTitleData loaded;
+        try {
+            loaded = loadOrCreate(playerId);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "读取玩家 " + playerId + " 的称号数据时出错", e);
+            return PlayerTitleData.EMPTY;
+        }
+        missingPlayers.remove(playerId);
+        PlayerTitleData existing = playerDataMap.putIfAbsent(playerId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * 获取可修改的玩家称号数据（写入路径），没有记录时创建
+     * 只在确实要修改称号时调用；读取失败时不创建，以免覆盖玩家原有的记录
+     *
+     * @param playerId 玩家UUID
+     * @param blocking 是否允许读取存储
+     * @return 玩家称号数据
+     * @throws IOException 读取存储失败，或不允许读取存储而缓存中没有该玩家
+     */
+    private PlayerTitleData getOrCreatePlayerData(UUID playerId, boolean blocking) throws IOException {
+        PlayerTitleData playerData = lookupPlayerData(playerId, blocking);
+        if (!playerData.isReadOnly()) {
+            return playerData;
+        }
+        PlayerTitleData created = new PlayerTitleData(playerId);
+        PlayerTitleData existing = playerDataMap.putIfAbsent(playerId, created);
+        missingPlayers.remove(playerId);
+        return existing != null ? existing : created;
     }
     
     /**
@@ -146,13 +639,13 @@ public class TitleManager {
         
         PlayerTitleData playerData = getPlayerData(player);
         
-        // 检查是否已解锁
-        if (titleId != null && !playerData.hasUnlockedTitle(titleId)) {
+        // 检查是否已解锁并设置称号（没有记录的玩家本来就没有当前称号，无需修改）
+        if (!playerData.selectTitle(titleId)) {
             return false;
         }
-        
-        // 设置称号
-        playerData.setCurrentTitle(titleId);
+        if (!playerData.isReadOnly()) {
+            journal(ChangeJournal.SET_CURRENT, player.getUniqueId(), titleId);
+        }
         
         // 应用属性加成
         TitleInfo titleInfo = titleId != null ? configManager.getTitleInfo(titleId) : null;
@@ -175,7 +668,10 @@ public class TitleManager {
      */
     public void removePlayerTitle(Player player) {
         PlayerTitleData playerData = getPlayerData(player);
-        playerData.removeCurrentTitle();
+        if (!playerData.isReadOnly()) {
+            playerData.removeCurrentTitle();
+            journal(ChangeJournal.SET_CURRENT, player.getUniqueId(), null);
+        }
         
         // 移除属性加成
         buffManager.removeTitleBuffs(player);
@@ -183,18 +679,35 @@ public class TitleManager {
     
     /**
      * 给予玩家称号
+     * 在主线程调用时不读取存储，不在缓存中的离线玩家需要先用 loadPlayerDataAsync 载入
      * 
      * @param playerId 玩家UUID
      * @param titleId 称号ID
      * @return 是否成功给予
      */
     public boolean givePlayerTitle(UUID playerId, String titleId) {
+        return givePlayerTitle(playerId, titleId, !plugin.getServer().isPrimaryThread());
+    }
+
+    private boolean givePlayerTitle(UUID playerId, String titleId, boolean blocking) {
         if (!configManager.titleExists(titleId)) {
             return false;
         }
         
-        PlayerTitleData playerData = getPlayerData(playerId);
-        return playerData.unlockTitle(titleId);
+        PlayerTitleData playerData;
+        try {
+            playerData = getOrCreatePlayerData(playerId, blocking);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "读取玩家 " + playerId + " 的称号数据时出错，未给予称号 " + titleId, e);
+            return false;
+        }
+        boolean result = playerData.unlockTitle(titleId);
+
+        if (result) {
+            journal(ChangeJournal.UNLOCK, playerId, titleId);
+        }
+
+        return result;
     }
     
     /**
@@ -205,7 +718,8 @@ public class TitleManager {
      * @return 是否成功给予
      */
     public boolean givePlayerTitle(Player player, String titleId) {
-        boolean result = givePlayerTitle(player.getUniqueId(), titleId);
+        // 在线玩家登录前已预读，这里与 getPlayerData(Player) 一样允许在缓存缺失时读取存储
+        boolean result = givePlayerTitle(player.getUniqueId(), titleId, true);
         
         // 如果是当前在线玩家且没有当前称号，自动设置为当前称号
         if (result) {
@@ -227,7 +741,14 @@ public class TitleManager {
      */
     public boolean takePlayerTitle(UUID playerId, String titleId) {
         PlayerTitleData playerData = getPlayerData(playerId);
-        return playerData.removeUnlockedTitle(titleId);
+        boolean result = playerData.removeUnlockedTitle(titleId);
+
+        if (result) {
+            journal(ChangeJournal.TAKE, playerId, titleId);
+            notifyTitleTaken(playerId, titleId);
+        }
+
+        return result;
     }
     
     /**
@@ -245,9 +766,26 @@ public class TitleManager {
         if (result && titleId.equals(playerData.getCurrentTitle())) {
             buffManager.removeTitleBuffs(player);
         }
+
+        if (result) {
+            journal(ChangeJournal.TAKE, player.getUniqueId(), titleId);
+            notifyTitleTaken(player.getUniqueId(), titleId);
+        }
         
         return result;
     }
+
+    /**
+     * 通知统计管理器称号被移除，使其可以重新通过统计解锁
+     *
+     * @param playerId 玩家UUID
+     * @param titleId 称号ID
+     */
+    private void notifyTitleTaken(UUID playerId, String titleId) {
+        if (plugin.getVanillaStatsManager() != null) {
+            plugin.getVanillaStatsManager().onTitleTaken(playerId, titleId);
+        }
+    }
     
     /**
      * 检查玩家是否拥有称号
@@ -269,7 +807,7 @@ public class TitleManager {
      * @return 是否拥有
      */
     public boolean hasTitle(Player player, String titleId) {
-        return hasTitle(player.getUniqueId(), titleId);
+        return getPlayerData(player).hasUnlockedTitle(titleId);
     }
     
     /**
@@ -290,7 +828,7 @@ public class TitleManager {
      * @return 当前称号ID，如果没有则返回null
      */
     public String getCurrentTitle(Player player) {
-        return getCurrentTitle(player.getUniqueId());
+        return getPlayerData(player).getCurrentTitle();
     }
     
     /**
@@ -311,7 +849,7 @@ public class TitleManager {
      * @return 已解锁的称号ID集合
      */
     public Set<String> getUnlockedTitles(Player player) {
-        return getUnlockedTitles(player.getUniqueId());
+        return getPlayerData(player).getUnlockedTitles();
     }
     
     /**
@@ -322,6 +860,7 @@ public class TitleManager {
      */
     public void onPlayerJoin(Player player) {
         try {
+            offlineSince.remove(player.getUniqueId());
             PlayerTitleData playerData = getPlayerData(player);
 
             // 第一步：强制重置玩家属性为默认状态
@@ -351,6 +890,7 @@ public class TitleManager {
                 } else {
                     // 称号配置不存在，清除无效的当前称号
                     playerData.removeCurrentTitle();
+                    journal(ChangeJournal.SET_CURRENT, player.getUniqueId(), null);
                     plugin.getLogger().warning("玩家 " + player.getName() + " 的当前称号 " + currentTitle + " 不存在，已清除");
                 }
             }
@@ -499,6 +1039,15 @@ public class TitleManager {
         // 清理GUI数据
         plugin.getTitleGUI().cleanupPlayerData(player.getUniqueId());
 
+        // 丢弃未处理的解锁检查
+        if (plugin.getUnlockCheckScheduler() != null) {
+            plugin.getUnlockCheckScheduler().removePlayer(player.getUniqueId());
+        }
+
+        // 称号数据转入离线缓存，保存后由 evictOfflinePlayers 移除
+        offlineSince.remove(player.getUniqueId());
+        offlineSince.put(player.getUniqueId(), System.currentTimeMillis());
+
         // 只在调试模式下显示详细信息
         if (plugin.getConfigManager().getConfigValue("debug", false)) {
             plugin.getLogger().info("玩家 " + player.getName() + " 离开，已清理所有称号属性");
@@ -537,9 +1086,22 @@ public class TitleManager {
             }
         }
 
-        // 保存数据并清理缓存
-        savePlayerData();
+        // 存储没有成功启动时没有可保存的数据，也不能写入
+        if (saver == null) {
+            plugin.getLogger().info("称号管理器关闭完成");
+            return;
+        }
+
+        // 同步保存数据并清理缓存
+        saver.saveNow(playerDataMap.values());
+        saver.shutdown();
+        if (journal != null) {
+            journal.close();
+        }
         playerDataMap.clear();
+        offlineSince.clear();
+        missingPlayers.clear();
+        storage.close();
 
         plugin.getLogger().info("称号管理器关闭完成");
     }
@@ -553,7 +1115,8 @@ public class TitleManager {
      */
     public int cleanupInvalidTitles(Player player) {
         PlayerTitleData playerData = getPlayerData(player);
-        Set<String> unlockedTitles = new HashSet<>(playerData.getUnlockedTitles());
+        // 不可修改的集合，移除称号不影响本次遍历
+        Set<String> unlockedTitles = playerData.getUnlockedTitles();
         Set<String> invalidTitles = new HashSet<>();
         boolean currentTitleInvalid = false;
         String currentTitle = playerData.getCurrentTitle();
@@ -577,6 +1140,7 @@ public class TitleManager {
             // 移除无效的已解锁称号
             for (String invalidTitle : invalidTitles) {
                 playerData.removeUnlockedTitle(invalidTitle);
+                journal(ChangeJournal.TAKE, player.getUniqueId(), invalidTitle);
                 if (debugEnabled) {
                     plugin.getLogger().info("已移除玩家 " + player.getName() + " 的无效称号: " + invalidTitle);
                 }
@@ -585,6 +1149,7 @@ public class TitleManager {
             // 如果当前称号无效，清空当前称号
             if (currentTitleInvalid) {
                 playerData.removeCurrentTitle();
+                journal(ChangeJournal.SET_CURRENT, player.getUniqueId(), null);
                 buffManager.removeTitleBuffs(player);
                 if (debugEnabled) {
                     plugin.getLogger().info("已清空玩家 " + player.getName() + " 的无效当前称号: " + currentTitle);
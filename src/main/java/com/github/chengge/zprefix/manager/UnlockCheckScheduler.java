@@ -0,0 +1,173 @@
+package com.github.chengge.zprefix.manager;
+
+import com.github.chengge.zprefix.ZPrefix;
+import com.github.chengge.zprefix.data.TitleInfo;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+
+/**
+ * 解锁检查调度器
+ * 统计变化时只把玩家标记为"待检查"，每隔固定tick统一处理一次，
+ * 同一窗口内任意多次统计变化只会触发一次解锁检查
+ */
+public class UnlockCheckScheduler {
+
+    private final ZPrefix plugin;
+    private final VanillaStatsManager vanillaStatsManager;
+
+    // 待检查的玩家及其受影响的称号（仅在主线程访问）
+    private Map<UUID, Set<TitleInfo>> pendingChecks = new LinkedHashMap<>();
+    private Map<UUID, Set<TitleInfo>> drainingChecks = new LinkedHashMap<>();
+    private int taskId = -1;
+    private int drainInterval = 1;
+
+    // 计数器
+    private long requestedChecks;
+    private long executedChecks;
+    private long drainCycles;
+
+    public UnlockCheckScheduler(ZPrefix plugin, VanillaStatsManager vanillaStatsManager) {
+        this.plugin = plugin;
+        this.vanillaStatsManager = vanillaStatsManager;
+    }
+
+    /**
+     * 启动调度任务
+     */
+    public void start() {
+        stop();
+
+        drainInterval = Math.max(1, plugin.getConfigManager().getConfigValue("progress.drain-interval", 1));
+        taskId = plugin.getServer().getScheduler().runTaskTimer(plugin, this::drain,
+                drainInterval, drainInterval).getTaskId();
+
+        plugin.getLogger().info("✓ 解锁检查调度器已启动，合并间隔: " + drainInterval + " tick");
+    }
+
+    /**
+     * 停止调度任务并丢弃未处理的检查
+     */
+    public void stop() {
+        if (taskId != -1) {
+            plugin.getServer().getScheduler().cancelTask(taskId);
+            taskId = -1;
+        }
+        pendingChecks.clear();
+    }
+
+    /**
+     * 标记玩家需要检查指定称号
+     * 必须在主线程调用
+     *
+     * @param player 玩家
+     * @param titles 受影响的称号
+     */
+    public void markDirty(Player player, Collection<TitleInfo> titles) {
+        requestedChecks++;
+        pendingChecks.computeIfAbsent(player.getUniqueId(), id -> new LinkedHashSet<>()).addAll(titles);
+    }
+
+    /**
+     * 移除玩家的待检查记录
+     *
+     * @param playerId 玩家UUID
+     */
+    public void removePlayer(UUID playerId) {
+        pendingChecks.remove(playerId);
+    }
+
+    /**
+     * 处理本窗口内所有待检查的玩家
+     */
+    private void drain() {
+        if (pendingChecks.isEmpty()) {
+            return;
+        }
+
+        // 交换缓冲区，检查过程中产生的新标记进入下一个窗口
+        Map<UUID, Set<TitleInfo>> draining = pendingChecks;
+        pendingChecks = drainingChecks;
+        drainingChecks = draining;
+        drainCycles++;
+
+        for (Map.Entry<UUID, Set<TitleInfo>> entry : draining.entrySet()) {
+            Player player = plugin.getServer().getPlayer(entry.getKey());
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+
+            executedChecks++;
+            try {
+                vanillaStatsManager.checkUnlockConditions(player, entry.getValue());
+            } catch (Exception e) {
+                plugin.getLogger().warning("检查玩家 " + player.getName() + " 解锁条件时出错: " + e.getMessage());
+            }
+        }
+
+        draining.clear();
+    }
+
+    /**
+     * 获取合并间隔
+     *
+     * @return 合并间隔（tick）
+     */
+    public int getDrainInterval() {
+        return drainInterval;
+    }
+
+    /**
+     * 获取请求的检查次数（每个相关统计事件计一次）
+     *
+     * @return 请求次数
+     */
+    public long getRequestedChecks() {
+        return requestedChecks;
+    }
+
+    /**
+     * 获取实际执行的检查次数
+     *
+     * @return 执行次数
+     */
+    public long getExecutedChecks() {
+        return executedChecks;
+    }
+
+    /**
+     * 获取被合并掉的检查次数
+     *
+     * @return 合并次数
+     */
+    public long getCoalescedChecks() {
+        return Math.max(0, requestedChecks - executedChecks - getPendingPlayerCount());
+    }
+
+    /**
+     * 获取已执行的处理周期数
+     *
+     * @return 处理周期数
+     */
+    public long getDrainCycles() {
+        return drainCycles;
+    }
+
+    /**
+     * 获取当前待检查的玩家数量
+     *
+     * @return 待检查玩家数量
+     */
+    public int getPendingPlayerCount() {
+        return pendingChecks.size();
+    }
+
+    /**
+     * 重置计数器
+     */
+    public void resetCounters() {
+        requestedChecks = 0;
+        executedChecks = 0;
+        drainCycles = 0;
+    }
+}
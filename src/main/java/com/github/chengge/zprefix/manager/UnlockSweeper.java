@@ -0,0 +1,206 @@
+package com.github.chengge.zprefix.manager;
+
+import com.github.chengge.zprefix.ZPrefix;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+
+/**
+ * 定期解锁检查轮询器
+ * 每隔 check-interval 对所有在线玩家做一次完整的解锁检查，
+ * 检查在主线程按玩家轮询进行，每tick只使用有限的时间预算，未处理完的玩家留到下一tick继续
+ */
+public class UnlockSweeper {
+
+    private final ZPrefix plugin;
+    private final VanillaStatsManager vanillaStatsManager;
+
+    // 本轮尚未检查的玩家（仅在主线程访问）
+    private final Deque<UUID> sweepQueue = new ArrayDeque<>();
+    private int taskId = -1;
+    private long intervalNanos;
+    private long budgetNanos;
+
+    // 本轮状态
+    private boolean sweeping;
+    private long sweepStartNanos;
+    private long sweepWorkNanos;
+    private int sweepTicks;
+    private int sweepPlayers;
+
+    // 上一轮统计
+    private long lastSweepMillis = -1;
+    private long lastSweepWorkMicros;
+    private int lastSweepTicks;
+    private int lastSweepPlayers;
+    private long completedSweeps;
+
+    public UnlockSweeper(ZPrefix plugin, VanillaStatsManager vanillaStatsManager) {
+        this.plugin = plugin;
+        this.vanillaStatsManager = vanillaStatsManager;
+    }
+
+    /**
+     * 启动轮询任务
+     */
+    public void start() {
+        stop();
+
+        int checkInterval = Math.max(1, plugin.getConfigManager().getConfigValue("progress.check-interval", 60));
+        int budgetMicros = Math.max(1, plugin.getConfigManager().getConfigValue("progress.sweep-budget-us", 2000));
+        intervalNanos = checkInterval * 1_000_000_000L;
+        budgetNanos = budgetMicros * 1_000L;
+
+        // 第一轮在一个检查间隔之后开始，与原先的定时检查保持一致
+        sweepStartNanos = System.nanoTime();
+        taskId = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L).getTaskId();
+
+        plugin.getLogger().info("✓ 原版统计检查任务已启动，检查间隔: " + checkInterval + "秒，每tick预算: " + budgetMicros + "微秒");
+    }
+
+    /**
+     * 停止轮询任务
+     */
+    public void stop() {
+        if (taskId != -1) {
+            plugin.getServer().getScheduler().cancelTask(taskId);
+            taskId = -1;
+            plugin.getLogger().info("✓ 原版统计检查任务已停止");
+        }
+        sweepQueue.clear();
+        sweeping = false;
+    }
+
+    /**
+     * 每tick执行一次，在预算内继续本轮检查
+     */
+    private void tick() {
+        long tickStart = System.nanoTime();
+
+        if (!sweeping) {
+            if (tickStart - sweepStartNanos < intervalNanos) {
+                return;
+            }
+            beginSweep(tickStart);
+        }
+
+        // 每tick至少检查一名玩家，保证轮询总能结束
+        do {
+            UUID playerId = sweepQueue.poll();
+            if (playerId == null) {
+                break;
+            }
+
+            Player player = plugin.getServer().getPlayer(playerId);
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+
+            try {
+                vanillaStatsManager.checkAllUnlockConditions(player);
+            } catch (Exception e) {
+                plugin.getLogger().warning("检查玩家 " + player.getName() + " 解锁条件时出错: " + e.getMessage());
+            }
+            sweepPlayers++;
+        } while (System.nanoTime() - tickStart < budgetNanos);
+
+        long now = System.nanoTime();
+        sweepWorkNanos += now - tickStart;
+        sweepTicks++;
+
+        if (sweepQueue.isEmpty()) {
+            finishSweep(now);
+        }
+    }
+
+    private void beginSweep(long now) {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            sweepQueue.add(player.getUniqueId());
+        }
+        sweeping = true;
+        sweepStartNanos = now;
+        sweepWorkNanos = 0;
+        sweepTicks = 0;
+        sweepPlayers = 0;
+    }
+
+    private void finishSweep(long now) {
+        sweeping = false;
+        lastSweepMillis = (now - sweepStartNanos) / 1_000_000L;
+        lastSweepWorkMicros = sweepWorkNanos / 1_000L;
+        lastSweepTicks = sweepTicks;
+        lastSweepPlayers = sweepPlayers;
+        completedSweeps++;
+
+        if (plugin.getConfigManager().getConfigValue("debug", false) &&
+            plugin.getConfigManager().getConfigValue("progress.debug-logging", false)) {
+            plugin.getLogger().info("完成一轮解锁检查: " + lastSweepPlayers + " 名玩家，耗时 " + lastSweepMillis +
+                                  " 毫秒（" + lastSweepTicks + " tick，实际占用 " + lastSweepWorkMicros + " 微秒）");
+        }
+    }
+
+    /**
+     * 获取上一轮完整检查的耗时
+     *
+     * @return 耗时（毫秒），尚未完成过检查时返回-1
+     */
+    public long getLastSweepMillis() {
+        return lastSweepMillis;
+    }
+
+    /**
+     * 获取上一轮完整检查实际占用主线程的时间
+     *
+     * @return 占用时间（微秒）
+     */
+    public long getLastSweepWorkMicros() {
+        return lastSweepWorkMicros;
+    }
+
+    /**
+     * 获取上一轮完整检查跨越的tick数
+     *
+     * @return tick数
+     */
+    public int getLastSweepTicks() {
+        return lastSweepTicks;
+    }
+
+    /**
+     * 获取上一轮完整检查的玩家数
+     *
+     * @return 玩家数
+     */
+    public int getLastSweepPlayers() {
+        return lastSweepPlayers;
+    }
+
+    /**
+     * 获取已完成的轮数
+     *
+     * @return 轮数
+     */
+    public long getCompletedSweeps() {
+        return completedSweeps;
+    }
+
+    /**
+     * 获取本轮尚未检查的玩家数
+     *
+     * @return 玩家数
+     */
+    public int getPendingPlayerCount() {
+        return sweepQueue.size();
+    }
+
+    /**
+     * 获取每tick的时间预算
+     *
+     * @return 预算（微秒）
+     */
+    public long getBudgetMicros() {
+        return budgetNanos / 1_000L;
+    }
+}
@@ -1,6 +1,15 @@
 package com.github.chengge.zprefix.manager;
 
 import com.github.chengge.zprefix.ZPrefix;
+import com.github.chengge.zprefix.condition.EvaluationContext;
+import com.github.chengge.zprefix.condition.StatSlots;
+import com.github.chengge.zprefix.condition.StatisticIndex;
+import com.github.chengge.zprefix.condition.UnlockCondition;
+import com.github.chengge.zprefix.condition.UnlockConditions;
+import com.github.chengge.zprefix.condition.WindowedCondition;
+import com.github.chengge.zprefix.data.PlayerStatAggregates;
+import com.github.chengge.zprefix.data.PlayerUnlockProgress;
+import com.github.chengge.zprefix.data.TitleCatalog;
 import com.github.chengge.zprefix.data.TitleInfo;
 import com.github.chengge.zprefix.util.MessageUtil;
 import org.bukkit.Material;
@@ -8,7 +17,14 @@ import org.bukkit.Statistic;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 /**
@@ -16,16 +32,169 @@ import java.util.logging.Level;
  * 使用Minecraft原版的统计数据来检查称号解锁条件
  */
 public class VanillaStatsManager {
-    
+
+    /**
+     * 计入 kill-mobs 的敌对生物
+     */
+    public static final EntityType[] HOSTILE_MOBS = {
+        EntityType.ZOMBIE, EntityType.SKELETON, EntityType.CREEPER, EntityType.SPIDER,
+        EntityType.ENDERMAN, EntityType.WITCH, EntityType.SLIME, EntityType.MAGMA_CUBE,
+        EntityType.BLAZE, EntityType.GHAST, EntityType.WITHER_SKELETON, EntityType.ZOMBIFIED_PIGLIN,
+        EntityType.PIGLIN, EntityType.PIGLIN_BRUTE, EntityType.HOGLIN, EntityType.ZOGLIN,
+        EntityType.ENDERMITE, EntityType.SILVERFISH, EntityType.GUARDIAN, EntityType.ELDER_GUARDIAN,
+        EntityType.SHULKER, EntityType.VEX, EntityType.VINDICATOR, EntityType.EVOKER,
+        EntityType.RAVAGER, EntityType.PILLAGER, EntityType.DROWNED, EntityType.HUSK,
+        EntityType.STRAY, EntityType.PHANTOM, EntityType.WITHER, EntityType.ENDER_DRAGON
+    };
+
+    /**
+     * 计入 food-eaten 的食物
+     */
+    public static final Material[] FOODS = {
+        Material.BREAD, Material.APPLE, Material.GOLDEN_APPLE, Material.ENCHANTED_GOLDEN_APPLE,
+        Material.COOKED_BEEF, Material.COOKED_PORKCHOP, Material.COOKED_CHICKEN, Material.COOKED_MUTTON,
+        Material.COOKED_RABBIT, Material.COOKED_COD, Material.COOKED_SALMON, Material.BAKED_POTATO,
+        Material.CARROT, Material.POTATO, Material.BEETROOT, Material.MELON_SLICE, Material.SWEET_BERRIES,
+        Material.COOKIE, Material.CAKE, Material.PUMPKIN_PIE, Material.MUSHROOM_STEW, Material.RABBIT_STEW,
+        Material.BEETROOT_SOUP, Material.SUSPICIOUS_STEW, Material.HONEY_BOTTLE
+    };
+
+    /**
+     * 计入 potions-drunk 的饮品
+     */
+    public static final Material[] POTIONS = {
+        Material.POTION, Material.SPLASH_POTION, Material.LINGERING_POTION,
+        Material.MILK_BUCKET, Material.HONEY_BOTTLE
+    };
+
+    /**
+     * 计入 tools-broken 的工具
+     */
+    public static final Material[] TRACKED_TOOLS = {
+        Material.DIAMOND_PICKAXE, Material.DIAMOND_AXE, Material.DIAMOND_SHOVEL,
+        Material.DIAMOND_HOE, Material.DIAMOND_SWORD,
+        Material.IRON_PICKAXE, Material.IRON_AXE, Material.IRON_SHOVEL,
+        Material.IRON_HOE, Material.IRON_SWORD
+    };
+
+    private static final Set<EntityType> HOSTILE_MOB_SET = EnumSet.copyOf(Arrays.asList(HOSTILE_MOBS));
+    private static final Set<Material> FOOD_SET = EnumSet.copyOf(Arrays.asList(FOODS));
+    private static final Set<Material> POTION_SET = EnumSet.copyOf(Arrays.asList(POTIONS));
+
     private final ZPrefix plugin;
     private final ConfigManager configManager;
     private final TitleManager titleManager;
+
+    // 在线玩家的统计聚合缓存
+    private final Map<UUID, PlayerStatAggregates> aggregatesMap = new ConcurrentHashMap<>();
+    // 在线玩家的解锁进度水位线
+    private final Map<UUID, PlayerUnlockProgress> progressMap = new ConcurrentHashMap<>();
+
+    // 未越过水位线而跳过检查的统计事件数
+    private long watermarkSkips;
+    // 玩家已获得全部可解锁称号而跳过的检查数
+    private long completedSkips;
     
     public VanillaStatsManager(ZPrefix plugin, ConfigManager configManager, TitleManager titleManager) {
         this.plugin = plugin;
         this.configManager = configManager;
         this.titleManager = titleManager;
     }
+
+    // ==================== 统计聚合缓存 ====================
+
+    /**
+     * 获取玩家的统计聚合数据，不存在时立即统计一次
+     *
+     * @param player 玩家
+     * @return 统计聚合数据
+     */
+    public PlayerStatAggregates getAggregates(Player player) {
+        return aggregatesMap.computeIfAbsent(player.getUniqueId(), id -> loadAggregates(player));
+    }
+
+    /**
+     * 玩家加入时初始化统计聚合数据
+     *
+     * @param player 玩家
+     */
+    public void initPlayerAggregates(Player player) {
+        aggregatesMap.put(player.getUniqueId(), loadAggregates(player));
+    }
+
+    /**
+     * 清理玩家的统计聚合数据和解锁进度
+     *
+     * @param playerId 玩家UUID
+     */
+    public void cleanupPlayerData(UUID playerId) {
+        aggregatesMap.remove(playerId);
+        progressMap.remove(playerId);
+    }
+
+    /**
+     * 根据统计事件的增量更新聚合数据
+     *
+     * @param player 玩家
+     * @param statistic 统计类型
+     * @param material 统计关联的物品（可为null）
+     * @param entityType 统计关联的实体（可为null）
+     * @param delta 增量
+     */
+    public void applyStatisticIncrement(Player player, Statistic statistic, Material material,
+                                        EntityType entityType, int delta) {
+        if (delta <= 0) {
+            return;
+        }
+
+        // 聚合数据尚未初始化时不处理，首次读取时会从原版统计完整统计
+        PlayerStatAggregates aggregates = aggregatesMap.get(player.getUniqueId());
+        if (aggregates == null) {
+            return;
+        }
+
+        switch (statistic) {
+            case CRAFT_ITEM:
+                aggregates.addItemsCrafted(delta);
+                break;
+            case MINE_BLOCK:
+                aggregates.addBlocksBroken(delta);
+                break;
+            case KILL_ENTITY:
+                if (entityType != null && HOSTILE_MOB_SET.contains(entityType)) {
+                    aggregates.addMobKills(delta);
+                }
+                break;
+            case USE_ITEM:
+                if (material != null) {
+                    if (FOOD_SET.contains(material)) {
+                        aggregates.addFoodEaten(delta);
+                    }
+                    if (POTION_SET.contains(material)) {
+                        aggregates.addPotionsDrunk(delta);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 从原版统计完整统计一次聚合数据
+     *
+     * @param player 玩家
+     * @return 统计聚合数据
+     */
+    private PlayerStatAggregates loadAggregates(Player player) {
+        PlayerStatAggregates aggregates = new PlayerStatAggregates(player.getUniqueId());
+        aggregates.addItemsCrafted(countItemsCrafted(player));
+        aggregates.addBlocksBroken(countBlocksBroken(player));
+        aggregates.addMobKills(countMobKills(player));
+        aggregates.addFoodEaten(countFoodEaten(player));
+        aggregates.addPotionsDrunk(countPotionsDrunk(player));
+        return aggregates;
+    }
     
     // ==================== 原版统计数据获取 ====================
     
@@ -36,22 +205,21 @@ public class VanillaStatsManager {
      * @return 击杀怪物总数
      */
     public int getMobKills(Player player) {
+        return (int) getAggregates(player).getMobKills();
+    }
+
+    /**
+     * 遍历原版统计计算击杀怪物总数
+     *
+     * @param player 玩家
+     * @return 击杀怪物总数
+     */
+    private int countMobKills(Player player) {
         try {
             int totalKills = 0;
             
             // 统计所有敌对生物的击杀数
-            EntityType[] hostileMobs = {
-                EntityType.ZOMBIE, EntityType.SKELETON, EntityType.CREEPER, EntityType.SPIDER,
-                EntityType.ENDERMAN, EntityType.WITCH, EntityType.SLIME, EntityType.MAGMA_CUBE,
-                EntityType.BLAZE, EntityType.GHAST, EntityType.WITHER_SKELETON, EntityType.ZOMBIFIED_PIGLIN,
-                EntityType.PIGLIN, EntityType.PIGLIN_BRUTE, EntityType.HOGLIN, EntityType.ZOGLIN,
-                EntityType.ENDERMITE, EntityType.SILVERFISH, EntityType.GUARDIAN, EntityType.ELDER_GUARDIAN,
-                EntityType.SHULKER, EntityType.VEX, EntityType.VINDICATOR, EntityType.EVOKER,
-                EntityType.RAVAGER, EntityType.PILLAGER, EntityType.DROWNED, EntityType.HUSK,
-                EntityType.STRAY, EntityType.PHANTOM, EntityType.WITHER, EntityType.ENDER_DRAGON
-            };
-            
-            for (EntityType entityType : hostileMobs) {
+            for (EntityType entityType : HOSTILE_MOBS) {
                 try {
                     totalKills += player.getStatistic(Statistic.KILL_ENTITY, entityType);
                 } catch (Exception e) {
@@ -237,6 +405,16 @@ public class VanillaStatsManager {
      * @return 制作物品总数
      */
     public int getItemsCrafted(Player player) {
+        return (int) getAggregates(player).getItemsCrafted();
+    }
+
+    /**
+     * 遍历原版统计计算制作物品总数
+     *
+     * @param player 玩家
+     * @return 制作物品总数
+     */
+    private int countItemsCrafted(Player player) {
         try {
             // 获取所有制作相关的统计
             int totalCrafted = 0;
@@ -298,6 +476,16 @@ public class VanillaStatsManager {
      * @return 破坏方块总数
      */
     public int getBlocksBroken(Player player) {
+        return (int) getAggregates(player).getBlocksBroken();
+    }
+
+    /**
+     * 遍历原版统计计算破坏方块总数
+     *
+     * @param player 玩家
+     * @return 破坏方块总数
+     */
+    private int countBlocksBroken(Player player) {
         try {
             // 获取所有破坏方块的统计
             int totalBroken = 0;
@@ -639,21 +827,22 @@ public class VanillaStatsManager {
      * @return 吃食物总数
      */
     public int getFoodEaten(Player player) {
+        return (int) getAggregates(player).getFoodEaten();
+    }
+
+    /**
+     * 遍历原版统计计算吃食物总数
+     *
+     * @param player 玩家
+     * @return 吃食物总数
+     */
+    private int countFoodEaten(Player player) {
         try {
             // 获取所有食物相关的统计
             int totalEaten = 0;
 
             // 常见食物列表
-            Material[] foods = {
-                Material.BREAD, Material.APPLE, Material.GOLDEN_APPLE, Material.ENCHANTED_GOLDEN_APPLE,
-                Material.COOKED_BEEF, Material.COOKED_PORKCHOP, Material.COOKED_CHICKEN, Material.COOKED_MUTTON,
-                Material.COOKED_RABBIT, Material.COOKED_COD, Material.COOKED_SALMON, Material.BAKED_POTATO,
-                Material.CARROT, Material.POTATO, Material.BEETROOT, Material.MELON_SLICE, Material.SWEET_BERRIES,
-                Material.COOKIE, Material.CAKE, Material.PUMPKIN_PIE, Material.MUSHROOM_STEW, Material.RABBIT_STEW,
-                Material.BEETROOT_SOUP, Material.SUSPICIOUS_STEW, Material.HONEY_BOTTLE
-            };
-
-            for (Material food : foods) {
+            for (Material food : FOODS) {
                 try {
                     totalEaten += player.getStatistic(Statistic.USE_ITEM, food);
                 } catch (Exception e) {
@@ -675,17 +864,22 @@ public class VanillaStatsManager {
      * @return 喝药水次数
      */
     public int getPotionsDrunk(Player player) {
+        return (int) getAggregates(player).getPotionsDrunk();
+    }
+
+    /**
+     * 遍历原版统计计算喝药水次数
+     *
+     * @param player 玩家
+     * @return 喝药水次数
+     */
+    private int countPotionsDrunk(Player player) {
         try {
             // 获取所有药水相关的统计
             int totalDrunk = 0;
 
             // 药水类型列表
-            Material[] potions = {
-                Material.POTION, Material.SPLASH_POTION, Material.LINGERING_POTION,
-                Material.MILK_BUCKET, Material.HONEY_BOTTLE
-            };
-
-            for (Material potion : potions) {
+            for (Material potion : POTIONS) {
                 try {
                     totalDrunk += player.getStatistic(Statistic.USE_ITEM, potion);
                 } catch (Exception e) {
@@ -708,16 +902,11 @@ public class VanillaStatsManager {
      */
     public int getToolsBroken(Player player) {
         try {
-            return player.getStatistic(Statistic.BREAK_ITEM, Material.DIAMOND_PICKAXE) +
-                   player.getStatistic(Statistic.BREAK_ITEM, Material.DIAMOND_AXE) +
-                   player.getStatistic(Statistic.BREAK_ITEM, Material.DIAMOND_SHOVEL) +
-                   player.getStatistic(Statistic.BREAK_ITEM, Material.DIAMOND_HOE) +
-                   player.getStatistic(Statistic.BREAK_ITEM, Material.DIAMOND_SWORD) +
-                   player.getStatistic(Statistic.BREAK_ITEM, Material.IRON_PICKAXE) +
-                   player.getStatistic(Statistic.BREAK_ITEM, Material.IRON_AXE) +
-                   player.getStatistic(Statistic.BREAK_ITEM, Material.IRON_SHOVEL) +
-                   player.getStatistic(Statistic.BREAK_ITEM, Material.IRON_HOE) +
-                   player.getStatistic(Statistic.BREAK_ITEM, Material.IRON_SWORD);
+            int totalBroken = 0;
+            for (Material tool : TRACKED_TOOLS) {
+                totalBroken += player.getStatistic(Statistic.BREAK_ITEM, tool);
+            }
+            return totalBroken;
         } catch (Exception e) {
             plugin.getLogger().log(Level.WARNING, "获取玩家 " + player.getName() + " 工具损坏统计时出错", e);
             return 0;
@@ -734,447 +923,247 @@ public class VanillaStatsManager {
      * @param player 玩家
      */
     public void checkAllUnlockConditions(Player player) {
-        if (!isProgressEnabled()) {
+        if (!isProgressEnabled() || !hasRemainingTitles(player)) {
             return;
         }
 
-        boolean debugEnabled = plugin.getConfigManager().getConfigValue("debug", false) &&
-                              plugin.getConfigManager().getConfigValue("progress.debug-logging", false);
-
-        for (TitleInfo titleInfo : configManager.getAllTitles().values()) {
-            // 跳过已解锁的称号
-            if (titleManager.getPlayerData(player).hasUnlockedTitle(titleInfo.getId())) {
-                continue;
-            }
-
-            if (debugEnabled) {
-                plugin.getLogger().info("检查玩家 " + player.getName() + " 的称号 " + titleInfo.getId() +
-                                      " 解锁条件: " + titleInfo.getUnlockConditions());
-            }
-
-            // 检查是否满足解锁条件
-            boolean canUnlock = checkTitleUnlockConditions(player, titleInfo);
-
-            if (debugEnabled) {
-                plugin.getLogger().info("玩家 " + player.getName() + " 称号 " + titleInfo.getId() +
-                                      " 检查结果: " + (canUnlock ? "可解锁" : "不可解锁"));
-            }
-
-            if (canUnlock) {
-                // 解锁称号
-                titleManager.givePlayerTitle(player, titleInfo.getId());
-
-                // 发送解锁消息
-                MessageUtil.sendPrefixedMessage(player, "title.title-unlocked",
-                    "title", titleInfo.getDisplayName());
+        checkTitles(player, configManager.getAllTitles().values());
+    }
 
-                plugin.getLogger().info("玩家 " + player.getName() + " 通过游戏统计解锁称号: " + titleInfo.getDisplayName());
-            }
-        }
+    /**
+     * 获取受某项统计变化影响的称号
+     * 通过配置加载时构建的统计反向索引定位相关称号，避免全量扫描
+     *
+     * @param statistic 变化的统计
+     * @param material 方块/物品限定（可为null）
+     * @param entityType 实体限定（可为null）
+     * @return 依赖该统计的称号（可能为空）
+     */
+    public List<TitleInfo> getAffectedTitles(Statistic statistic, Material material, EntityType entityType) {
+        return configManager.getStatisticIndex().getAffectedTitles(statistic, material, entityType);
     }
-    
+
     /**
-     * 检查单个称号的解锁条件
+     * 将统计增量累加到玩家的解锁进度水位线上
      *
      * @param player 玩家
-     * @param titleInfo 称号信息
-     * @return 是否满足条件
+     * @param statistic 统计类型
+     * @param material 统计关联的物品（可为null）
+     * @param entityType 统计关联的实体（可为null）
+     * @param delta 增量
+     * @return 是否越过水位线，需要检查相关称号
      */
-    private boolean checkTitleUnlockConditions(Player player, TitleInfo titleInfo) {
-        Map<String, Object> conditions = titleInfo.getUnlockConditions();
-
-        // 首先检查特殊条件
-        if (conditions.containsKey("auto-unlock")) {
-            boolean autoUnlock = (Boolean) conditions.get("auto-unlock");
-            if (!autoUnlock) {
-                // auto-unlock: false 表示不能通过统计自动解锁
-                // 只有在有其他有效条件时才继续检查
-                boolean hasOtherConditions = conditions.entrySet().stream()
-                    .anyMatch(entry -> !entry.getKey().equals("auto-unlock") &&
-                                     !entry.getKey().equals("admin-only") &&
-                                     !entry.getKey().equals("default"));
-                if (!hasOtherConditions) {
-                    return false; // 没有其他解锁条件，不能自动解锁
-                }
-            }
+    public boolean advanceWatermarks(Player player, Statistic statistic, Material material,
+                                     EntityType entityType, int delta) {
+        int[] slots = StatSlots.slotsFor(statistic, material, entityType);
+        if (slots.length == 0) {
+            return false;
         }
 
-        if (conditions.containsKey("admin-only")) {
-            boolean adminOnly = (Boolean) conditions.get("admin-only");
-            if (adminOnly) {
-                return false; // 管理员专用称号，不能通过统计解锁
-            }
+        PlayerUnlockProgress progress = getUnlockProgress(player);
+        progress.recordWindows(slots, delta);
+        if (!progress.hasRemainingTitles()) {
+            completedSkips++;
+            return false;
         }
 
-        // 检查统计相关的解锁条件
-        for (Map.Entry<String, Object> condition : conditions.entrySet()) {
-            String conditionType = condition.getKey();
-            Object conditionValue = condition.getValue();
-
-            switch (conditionType) {
-                case "auto-unlock":
-                case "admin-only":
-                case "default":
-                    // 这些条件已经在上面处理过了
-                    continue;
-                    
-                case "kill-mobs":
-                    int requiredKills = ((Number) conditionValue).intValue();
-                    if (getMobKills(player) < requiredKills) {
-                        return false;
-                    }
-                    break;
-                    
-                case "damage-taken":
-                    double requiredDamage = ((Number) conditionValue).doubleValue();
-                    if (getDamageTaken(player) < requiredDamage) {
-                        return false;
-                    }
-                    break;
-                    
-                case "walk-distance":
-                    double requiredDistance = ((Number) conditionValue).doubleValue();
-                    if (getWalkDistance(player) < requiredDistance) {
-                        return false;
-                    }
-                    break;
-                    
-                case "play-time":
-                    double requiredTime = ((Number) conditionValue).doubleValue();
-                    if (getPlayTime(player) < requiredTime) {
-                        return false;
-                    }
-                    break;
-
-                // 新增基础统计参数
-                case "player-kills":
-                    int requiredPlayerKills = ((Number) conditionValue).intValue();
-                    if (getPlayerKills(player) < requiredPlayerKills) {
-                        return false;
-                    }
-                    break;
-
-                case "deaths":
-                    int requiredDeaths = ((Number) conditionValue).intValue();
-                    if (getDeaths(player) < requiredDeaths) {
-                        return false;
-                    }
-                    break;
-
-                case "jump":
-                    int requiredJumps = ((Number) conditionValue).intValue();
-                    if (getJumps(player) < requiredJumps) {
-                        return false;
-                    }
-                    break;
-
-                case "fish-caught":
-                    int requiredFish = ((Number) conditionValue).intValue();
-                    if (getFishCaught(player) < requiredFish) {
-                        return false;
-                    }
-                    break;
-
-                case "animals-bred":
-                    int requiredBreeding = ((Number) conditionValue).intValue();
-                    if (getAnimalsBred(player) < requiredBreeding) {
-                        return false;
-                    }
-                    break;
-
-                case "items-crafted":
-                    int requiredCrafting = ((Number) conditionValue).intValue();
-                    if (getItemsCrafted(player) < requiredCrafting) {
-                        return false;
-                    }
-                    break;
-
-                case "items-enchanted":
-                    int requiredEnchanting = ((Number) conditionValue).intValue();
-                    if (getItemsEnchanted(player) < requiredEnchanting) {
-                        return false;
-                    }
-                    break;
-
-                case "damage-dealt":
-                    double requiredDamageDealt = ((Number) conditionValue).doubleValue();
-                    if (getDamageDealt(player) < requiredDamageDealt) {
-                        return false;
-                    }
-                    break;
-
-                case "blocks-broken":
-                    int requiredBlocksBroken = ((Number) conditionValue).intValue();
-                    if (getBlocksBroken(player) < requiredBlocksBroken) {
-                        return false;
-                    }
-                    break;
-
-                case "distance-traveled":
-                    double requiredTotalDistance = ((Number) conditionValue).doubleValue();
-                    if (getTotalDistance(player) < requiredTotalDistance) {
-                        return false;
-                    }
-                    break;
-
-                // 矿物挖掘数量统计
-                case "diamonds-mined":
-                    int requiredDiamonds = ((Number) conditionValue).intValue();
-                    if (getDiamondsMined(player) < requiredDiamonds) {
-                        return false;
-                    }
-                    break;
-
-                case "emeralds-mined":
-                    int requiredEmeralds = ((Number) conditionValue).intValue();
-                    if (getEmeraldsMined(player) < requiredEmeralds) {
-                        return false;
-                    }
-                    break;
-
-                case "ancient-debris-mined":
-                    int requiredDebris = ((Number) conditionValue).intValue();
-                    if (getAncientDebrisMined(player) < requiredDebris) {
-                        return false;
-                    }
-                    break;
-
-                case "gold-mined":
-                    int requiredGold = ((Number) conditionValue).intValue();
-                    if (getGoldMined(player) < requiredGold) {
-                        return false;
-                    }
-                    break;
-
-                case "iron-mined":
-                    int requiredIron = ((Number) conditionValue).intValue();
-                    if (getIronMined(player) < requiredIron) {
-                        return false;
-                    }
-                    break;
-
-                case "coal-mined":
-                    int requiredCoal = ((Number) conditionValue).intValue();
-                    if (getCoalMined(player) < requiredCoal) {
-                        return false;
-                    }
-                    break;
-
-                case "copper-mined":
-                    int requiredCopper = ((Number) conditionValue).intValue();
-                    if (getCopperMined(player) < requiredCopper) {
-                        return false;
-                    }
-                    break;
-
-                case "lapis-mined":
-                    int requiredLapis = ((Number) conditionValue).intValue();
-                    if (getLapisMined(player) < requiredLapis) {
-                        return false;
-                    }
-                    break;
-
-                case "redstone-mined":
-                    int requiredRedstone = ((Number) conditionValue).intValue();
-                    if (getRedstoneMined(player) < requiredRedstone) {
-                        return false;
-                    }
-                    break;
-
-                case "quartz-mined":
-                    int requiredQuartz = ((Number) conditionValue).intValue();
-                    if (getQuartzMined(player) < requiredQuartz) {
-                        return false;
-                    }
-                    break;
-
-                // Boss击杀数量统计
-                case "ender-dragons-killed":
-                    int requiredDragons = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.ENDER_DRAGON) < requiredDragons) {
-                        return false;
-                    }
-                    break;
-
-                case "withers-killed":
-                    int requiredWithers = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.WITHER) < requiredWithers) {
-                        return false;
-                    }
-                    break;
-
-                case "elder-guardians-killed":
-                    int requiredElderGuardians = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.ELDER_GUARDIAN) < requiredElderGuardians) {
-                        return false;
-                    }
-                    break;
-
-                case "wardens-killed":
-                    int requiredWardens = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.WARDEN) < requiredWardens) {
-                        return false;
-                    }
-                    break;
-
-                // 怪物击杀数量统计
-                case "zombies-killed":
-                    int requiredZombies = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.ZOMBIE) < requiredZombies) {
-                        return false;
-                    }
-                    break;
-
-                case "skeletons-killed":
-                    int requiredSkeletons = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.SKELETON) < requiredSkeletons) {
-                        return false;
-                    }
-                    break;
+        if (progress.advance(slots, delta)) {
+            return true;
+        }
 
-                case "creepers-killed":
-                    int requiredCreepers = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.CREEPER) < requiredCreepers) {
-                        return false;
-                    }
-                    break;
+        watermarkSkips++;
+        return false;
+    }
 
-                case "spiders-killed":
-                    int requiredSpiders = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.SPIDER) < requiredSpiders) {
-                        return false;
-                    }
-                    break;
+    /**
+     * 获取玩家在时间窗口条件的窗口内累计的统计增量
+     *
+     * @param player 玩家
+     * @param condition 时间窗口条件
+     * @return 累计值（原始统计单位）
+     */
+    public long getWindowTotal(Player player, WindowedCondition condition) {
+        int windowIndex = configManager.getStatisticIndex().getWindowIndex(condition);
+        return getUnlockProgress(player).getWindowTotal(windowIndex);
+    }
 
-                case "endermen-killed":
-                    int requiredEndermen = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.ENDERMAN) < requiredEndermen) {
-                        return false;
-                    }
-                    break;
+    /**
+     * 获取未越过水位线而跳过检查的统计事件数
+     *
+     * @return 跳过次数
+     */
+    public long getWatermarkSkips() {
+        return watermarkSkips;
+    }
 
-                // 动物击杀数量统计
-                case "cows-killed":
-                    int requiredCows = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.COW) < requiredCows) {
-                        return false;
-                    }
-                    break;
+    /**
+     * 获取玩家已获得全部可解锁称号而跳过的检查数
+     *
+     * @return 跳过次数
+     */
+    public long getCompletedSkips() {
+        return completedSkips;
+    }
 
-                case "pigs-killed":
-                    int requiredPigs = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.PIG) < requiredPigs) {
-                        return false;
-                    }
-                    break;
+    /**
+     * 重置跳过计数
+     */
+    public void resetSkipCounters() {
+        watermarkSkips = 0;
+        completedSkips = 0;
+    }
 
-                case "sheep-killed":
-                    int requiredSheep = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.SHEEP) < requiredSheep) {
-                        return false;
-                    }
-                    break;
+    /**
+     * 称号被移除后重新纳入检查范围
+     *
+     * @param playerId 玩家UUID
+     * @param titleId 称号ID
+     */
+    public void onTitleTaken(UUID playerId, String titleId) {
+        PlayerUnlockProgress progress = progressMap.get(playerId);
+        TitleInfo titleInfo = configManager.getTitleInfo(titleId);
+        if (progress == null || titleInfo == null ||
+            progress.getCatalogGeneration() != configManager.getCatalogGeneration()) {
+            return; // 没有进度或进度即将重置
+        }
 
-                case "chickens-killed":
-                    int requiredChickens = ((Number) conditionValue).intValue();
-                    if (getEntityKills(player, EntityType.CHICKEN) < requiredChickens) {
-                        return false;
-                    }
-                    break;
+        int titleIndex = configManager.getStatisticIndex().getUnlockableIndex(titleId);
+        if (titleIndex < 0) {
+            return;
+        }
 
-                // 生活活动数量统计
-                case "villager-trades":
-                    int requiredTrades = ((Number) conditionValue).intValue();
-                    if (getVillagerTrades(player) < requiredTrades) {
-                        return false;
-                    }
-                    break;
+        progress.markRemaining(titleIndex);
+        for (UnlockCondition condition : titleInfo.getCompiledConditions().getConditions()) {
+            progress.setWatermark(condition.getSlot(), 0);
+        }
+    }
 
-                case "food-eaten":
-                    int requiredFoodEaten = ((Number) conditionValue).intValue();
-                    if (getFoodEaten(player) < requiredFoodEaten) {
-                        return false;
-                    }
-                    break;
+    /**
+     * 玩家是否还有可通过统计解锁但尚未获得的称号
+     *
+     * @param player 玩家
+     * @return 是否还有剩余称号
+     */
+    private boolean hasRemainingTitles(Player player) {
+        if (getUnlockProgress(player).hasRemainingTitles()) {
+            return true;
+        }
 
-                case "potions-drunk":
-                    int requiredPotionsDrunk = ((Number) conditionValue).intValue();
-                    if (getPotionsDrunk(player) < requiredPotionsDrunk) {
-                        return false;
-                    }
-                    break;
+        completedSkips++;
+        return false;
+    }
 
-                case "tools-broken":
-                    int requiredToolsBroken = ((Number) conditionValue).intValue();
-                    if (getToolsBroken(player) < requiredToolsBroken) {
-                        return false;
-                    }
-                    break;
+    /**
+     * 获取玩家的解锁进度，称号配置版本变化后会自动重置
+     *
+     * @param player 玩家
+     * @return 解锁进度
+     */
+    private PlayerUnlockProgress getUnlockProgress(Player player) {
+        // 索引和版本号取自同一个目录，重载期间也不会错配
+        TitleCatalog catalog = configManager.getCatalog();
+        StatisticIndex index = catalog.getStatisticIndex();
+        int generation = catalog.getGeneration();
+        PlayerUnlockProgress progress = progressMap.computeIfAbsent(player.getUniqueId(),
+                id -> new PlayerUnlockProgress(id, index, generation));
+        if (progress.getCatalogGeneration() != generation) {
+            progress.reset(index, generation);
+        }
+        return progress;
+    }
 
-                case "special-event":
-                    // 特殊事件需要特殊处理
-                    if (!checkSpecialEvent(player, (String) conditionValue)) {
-                        return false;
-                    }
-                    break;
-                    
-                default:
-                    plugin.getLogger().warning("未知的解锁条件类型: " + conditionType);
-                    continue;
-            }
+    /**
+     * 只检查指定的一组称号
+     *
+     * @param player 玩家
+     * @param titles 待检查的称号
+     */
+    public void checkUnlockConditions(Player player, Collection<TitleInfo> titles) {
+        if (!isProgressEnabled() || !hasRemainingTitles(player)) {
+            return;
         }
-        
-        return true;
+
+        checkTitles(player, titles);
     }
-    
+
     /**
-     * 检查特殊事件条件
-     * 
+     * 检查一组称号的解锁条件并解锁满足条件的称号
+     *
      * @param player 玩家
-     * @param eventId 事件ID
-     * @return 是否满足条件
+     * @param titles 待检查的称号
      */
-    private boolean checkSpecialEvent(Player player, String eventId) {
-        switch (eventId) {
-            // 稀有物品获得事件
-            case "get-diamond":
-                return getItemsPickedUp(player, Material.DIAMOND) > 0;
+    private void checkTitles(Player player, Collection<TitleInfo> titles) {
+        boolean debugEnabled = plugin.getConfigManager().getConfigValue("debug", false) &&
+                              plugin.getConfigManager().getConfigValue("progress.debug-logging", false);
 
-            case "get-emerald":
-                return getItemsPickedUp(player, Material.EMERALD) > 0;
+        StatisticIndex index = configManager.getStatisticIndex();
+        PlayerUnlockProgress progress = getUnlockProgress(player);
+
+        // 同一次检查中每项统计只读取一次，相同的子条件由所有称号共享结果
+        EvaluationContext context = EvaluationContext.online(this, player);
+
+        // 本次检查得到的各槽位最小剩余量，以及本次覆盖了槽位中多少个称号
+        long[] watermarks = new long[StatSlots.COUNT];
+        Arrays.fill(watermarks, Long.MAX_VALUE);
+        int[] coverage = new int[StatSlots.COUNT];
+        // 同一称号在一个槽位上可能有多个条件（如累计条件和时间窗口条件），只计一次
+        int[] lastCovered = new int[StatSlots.COUNT];
+        Arrays.fill(lastCovered, -1);
+        int titleNumber = 0;
+
+        for (TitleInfo titleInfo : titles) {
+            UnlockConditions conditions = titleInfo.getCompiledConditions();
+            if (conditions.isStatUnlockable()) {
+                for (UnlockCondition condition : conditions.getConditions()) {
+                    int slot = condition.getSlot();
+                    if (lastCovered[slot] != titleNumber) {
+                        lastCovered[slot] = titleNumber;
+                        coverage[slot]++;
+                    }
+                }
+            }
+            titleNumber++;
 
-            case "get-netherite":
-                return getItemsPickedUp(player, Material.NETHERITE_INGOT) > 0;
+            // 跳过已解锁的称号
+            if (titleManager.getPlayerData(player).hasUnlockedTitle(titleInfo.getId())) {
+                progress.markObtained(index.getUnlockableIndex(titleInfo.getId()));
+                continue;
+            }
 
-            case "get-totem":
-                return getItemsPickedUp(player, Material.TOTEM_OF_UNDYING) > 0;
+            if (debugEnabled) {
+                plugin.getLogger().info("检查玩家 " + player.getName() + " 的称号 " + titleInfo.getId() +
+                                      " 解锁条件: " + titleInfo.getUnlockConditions());
+            }
 
-            case "get-elytra":
-                return getItemsPickedUp(player, Material.ELYTRA) > 0;
+            // 检查是否满足解锁条件，同时记录未满足条件的剩余量
+            boolean canUnlock = conditions.evaluate(context, watermarks);
 
-            case "get-nether-star":
-                return getItemsPickedUp(player, Material.NETHER_STAR) > 0;
+            if (debugEnabled) {
+                plugin.getLogger().info("玩家 " + player.getName() + " 称号 " + titleInfo.getId() +
+                                      " 检查结果: " + (canUnlock ? "可解锁" : "不可解锁"));
+            }
 
-            case "get-dragon-egg":
-                return getItemsPickedUp(player, Material.DRAGON_EGG) > 0;
+            if (canUnlock) {
+                // 解锁称号
+                titleManager.givePlayerTitle(player, titleInfo.getId());
+                progress.markObtained(index.getUnlockableIndex(titleInfo.getId()));
 
-            // 维度探索事件
-            case "enter-nether":
-                return hasEnteredNether(player);
+                // 发送解锁消息
+                MessageUtil.sendPrefixedMessage(player, "title.title-unlocked",
+                    "title", titleInfo.getDisplayName());
 
-            case "enter-end":
-                return hasEnteredEnd(player);
+                plugin.getLogger().info("玩家 " + player.getName() + " 通过游戏统计解锁称号: " + titleInfo.getDisplayName());
+            }
+        }
 
-            default:
-                plugin.getLogger().warning("未知的特殊事件: " + eventId);
-                return false;
+        // 只更新本次覆盖了全部相关称号的槽位，其余槽位的水位线保持不变
+        for (int slot = 0; slot < StatSlots.COUNT; slot++) {
+            if (coverage[slot] > 0 && coverage[slot] == index.getSlotTitles(slot).size()) {
+                progress.setWatermark(slot, watermarks[slot]);
+            }
         }
     }
-
-
-
-
-
+    
     /**
      * 检查是否启用进度统计功能
      */
@@ -0,0 +1,63 @@
+package com.github.chengge.zprefix.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 原子文件写入
+ * 先写入同目录下的临时文件并刷到磁盘，再重命名覆盖目标文件，
+ * 写入过程中崩溃只会留下临时文件，目标文件要么是旧内容要么是新内容
+ */
+public final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * 原子地替换文件内容
+     *
+     * @param target 目标文件
+     * @param content 新内容
+     * @throws IOException 写入失败，此时目标文件保持原样
+     */
+    public static void write(Path target, byte[] content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * 刷新目录项，使重命名本身也落盘；部分平台不支持打开目录，忽略即可
+     */
+    private static void syncDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            // Windows 等平台无法对目录调用 force
+        }
+    }
+}
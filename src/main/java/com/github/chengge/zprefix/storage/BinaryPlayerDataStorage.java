@@ -0,0 +1,480 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import com.github.chengge.zprefix.data.PlayerTitleData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 二进制存储
+ * 文件结构：文件头 | 称号ID字典 | 按UUID排序的定长索引 | 玩家记录
+ * 每条玩家记录为 当前称号在字典中的序号+1（0表示无） + 已解锁称号位图的 long 数组，均为变长整数编码；
+ * 文件通过内存映射读取，启动时只解析字典，读取玩家时在索引中二分查找，不为每名玩家创建对象；
+ * 重写文件前先把映射内容复制到堆内，重写后直接使用写入的字节，不再持有文件映射，
+ * 否则 Windows 上无法替换仍被映射的文件
+ */
+public class BinaryPlayerDataStorage implements PlayerDataStorage {
+
+    // "ZPTB"
+    private static final int MAGIC = 0x5A505442;
+    private static final int FORMAT_VERSION = 1;
+    // 魔数、版本、玩家数、索引偏移、记录偏移
+    private static final int HEADER_SIZE = 20;
+    // UUID高位、低位、记录偏移
+    private static final int INDEX_ENTRY_SIZE = 20;
+
+    /**
+     * 按两个 long 的有符号顺序比较UUID，与索引中的排序一致
+     */
+    static final Comparator<UUID> UUID_ORDER = Comparator
+            .comparingLong(UUID::getMostSignificantBits)
+            .thenComparingLong(UUID::getLeastSignificantBits);
+
+    private final File dataFile;
+
+    // 当前的文件内容，文件不存在或为空时为null；首次重写前是文件映射，之后是堆内缓冲区
+    private ByteBuffer buffer;
+    private boolean mapped;
+    private String[] dictionary = new String[0];
+    private int playerCount;
+    private boolean closed;
+    private int indexOffset;
+    private int recordsOffset;
+
+    public BinaryPlayerDataStorage(File dataFile) {
+        this.dataFile = dataFile;
+    }
+
+    @Override
+    public String getType() {
+        return "binary";
+    }
+
+    @Override
+    public synchronized void initialize() throws IOException {
+        File parentDir = dataFile.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        map();
+    }
+
+    @Override
+    public synchronized PlayerTitleData load(UUID playerId) throws IOException {
+        int entry = find(playerId);
+        if (entry < 0) {
+            return null;
+        }
+
+        return decode(entry, playerId);
+    }
+
+    @Override
+    public synchronized List<PlayerTitleData> scan(UUID after, int limit) throws IOException {
+        // 按索引顺序（UUID_ORDER）读取
+        int entry = after != null ? upperBound(after) : 0;
+        List<PlayerTitleData> result = new ArrayList<>();
+        for (; entry < playerCount && result.size() < limit; entry++) {
+            result.add(decode(entry, uuidAt(entry)));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized long save(Collection<PlayerDataSnapshot> records) throws IOException {
+        checkOpen();
+        detachMapping();
+        List<PlayerDataSnapshot> updates = new ArrayList<>(records);
+        updates.sort((a, b) -> UUID_ORDER.compare(a.getPlayerId(), b.getPlayerId()));
+
+        // 沿用已有字典，新称号追加在末尾，未修改的记录直接复制原始字节
+        Writer writer = new Writer(Arrays.asList(dictionary));
+        int entry = 0;
+        int update = 0;
+        while (entry < playerCount || update < updates.size()) {
+            UUID existing = entry < playerCount ? uuidAt(entry) : null;
+            PlayerDataSnapshot snapshot = update < updates.size() ? updates.get(update) : null;
+
+            int order = existing == null ? 1 : snapshot == null ? -1 : UUID_ORDER.compare(existing, snapshot.getPlayerId());
+            if (order < 0) {
+                writer.addRaw(existing, recordAt(entry), recordLength(entry));
+                entry++;
+            } else {
+                writer.add(snapshot.getPlayerId(), snapshot.getCurrentTitle(), snapshot.getUnlockedTitles());
+                update++;
+                if (order == 0) {
+                    entry++;
+                }
+            }
+        }
+
+        byte[] content = writer.toByteArray();
+        AtomicFiles.write(dataFile.toPath(), content);
+        parse(ByteBuffer.wrap(content));
+        return content.length;
+    }
+
+    @Override
+    public synchronized int purgeEmptyRecords() throws IOException {
+        checkOpen();
+        detachMapping();
+        Writer writer = new Writer(Arrays.asList(dictionary));
+        int purged = 0;
+        for (int entry = 0; entry < playerCount; entry++) {
+            ByteBuffer record = recordAt(entry);
+            int length = recordLength(entry);
+            // 空记录只有两个字节：当前称号 0 和位图长度 0
+            if (length == 2 && record.get(record.position()) == 0 && record.get(record.position() + 1) == 0) {
+                purged++;
+            } else {
+                writer.addRaw(uuidAt(entry), record, length);
+            }
+        }
+
+        if (purged > 0) {
+            byte[] content = writer.toByteArray();
+            AtomicFiles.write(dataFile.toPath(), content);
+            parse(ByteBuffer.wrap(content));
+        }
+        return purged;
+    }
+
+    /**
+     * 获取文件中的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public synchronized int getRecordCount() {
+        return playerCount;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        buffer = null;
+        mapped = false;
+        dictionary = new String[0];
+        playerCount = 0;
+    }
+
+    /**
+     * 关闭后内存中已没有其他玩家的记录，此时写入会让文件只剩下这一批玩家
+     */
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("玩家数据存储已关闭，不能再写入");
+        }
+    }
+
+    /**
+     * 依次读取文件中的所有玩家（用于格式转换）
+     *
+     * @param consumer 玩家数据处理器
+     * @throws IOException 读取失败
+     */
+    synchronized void forEach(Consumer<PlayerTitleData> consumer) throws IOException {
+        for (int entry = 0; entry < playerCount; entry++) {
+            consumer.accept(decode(entry, uuidAt(entry)));
+        }
+    }
+
+    /**
+     * 写入完整的二进制文件
+     *
+     * @param target 目标文件
+     * @param dictionary 初始字典，出现次数多的称号放在前面可以缩短位图
+     * @param records 玩家快照
+     * @return 写入的字节数
+     * @throws IOException 写入失败
+     */
+    static long write(Path target, List<String> dictionary, Collection<PlayerDataSnapshot> records) throws IOException {
+        List<PlayerDataSnapshot> sorted = new ArrayList<>(records);
+        sorted.sort((a, b) -> UUID_ORDER.compare(a.getPlayerId(), b.getPlayerId()));
+
+        Writer writer = new Writer(dictionary);
+        for (PlayerDataSnapshot snapshot : sorted) {
+            writer.add(snapshot.getPlayerId(), snapshot.getCurrentTitle(), snapshot.getUnlockedTitles());
+        }
+        byte[] content = writer.toByteArray();
+        AtomicFiles.write(target, content);
+        return content.length;
+    }
+
+    /**
+     * 映射数据文件并解析文件头和字典
+     */
+    private void map() throws IOException {
+        buffer = null;
+        mapped = false;
+        dictionary = new String[0];
+        playerCount = 0;
+        if (!dataFile.exists() || dataFile.length() == 0) {
+            return;
+        }
+
+        ByteBuffer content;
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+            // 关闭通道后映射仍然有效
+            content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        parse(content);
+        mapped = true;
+    }
+
+    /**
+     * 把文件映射的内容复制到堆内，之后不再引用映射，重写文件前调用
+     */
+    private void detachMapping() {
+        if (!mapped) {
+            return;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(buffer.capacity());
+        copy.put(buffer.duplicate().clear());
+        buffer = copy;
+        mapped = false;
+    }
+
+    /**
+     * 解析文件头和字典，成功后以该内容作为当前文件内容
+     *
+     * @param content 完整的文件内容
+     * @throws IOException 文件格式错误
+     */
+    private void parse(ByteBuffer content) throws IOException {
+        buffer = null;
+        dictionary = new String[0];
+        playerCount = 0;
+        try {
+            if (content.getInt(0) != MAGIC) {
+                throw new IOException("不是有效的玩家数据文件: " + dataFile);
+            }
+            int version = content.getInt(4);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("不支持的玩家数据文件版本 " + version + ": " + dataFile);
+            }
+
+            ByteBuffer header = content.duplicate();
+            header.position(HEADER_SIZE);
+            int titleCount = (int) readVarLong(header);
+            String[] titles = new String[titleCount];
+            for (int i = 0; i < titleCount; i++) {
+                byte[] bytes = new byte[(int) readVarLong(header)];
+                header.get(bytes);
+                titles[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            dictionary = titles;
+            playerCount = content.getInt(8);
+            indexOffset = content.getInt(12);
+            recordsOffset = content.getInt(16);
+            buffer = content;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("玩家数据文件格式错误: " + dataFile, e);
+        }
+    }
+
+    /**
+     * 在索引中二分查找玩家
+     *
+     * @return 索引序号，不存在时返回-1
+     */
+    private int find(UUID playerId) {
+        long msb = playerId.getMostSignificantBits();
+        long lsb = playerId.getLeastSignificantBits();
+        int low = 0;
+        int high = playerCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int at = indexOffset + mid * INDEX_ENTRY_SIZE;
+            int order = Long.compare(buffer.getLong(at), msb);
+            if (order == 0) {
+                order = Long.compare(buffer.getLong(at + 8), lsb);
+            }
+            if (order < 0) {
+                low = mid + 1;
+            } else if (order > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找第一个大于指定UUID的索引序号
+     */
+    private int upperBound(UUID playerId) {
+        int low = 0;
+        int high = playerCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (UUID_ORDER.compare(uuidAt(mid), playerId) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private PlayerTitleData decode(int entry, UUID playerId) throws IOException {
+        ByteBuffer record = recordAt(entry);
+        try {
+            int current = (int) readVarLong(record);
+            Set<String> unlocked = new HashSet<>();
+            BitSet bits = readBits(record);
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                unlocked.add(title(i));
+            }
+            return new PlayerTitleData(playerId, current > 0 ? title(current - 1) : null, unlocked);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("玩家数据文件格式错误: " + dataFile, e);
+        }
+    }
+
+    private UUID uuidAt(int entry) {
+        int at = indexOffset + entry * INDEX_ENTRY_SIZE;
+        return new UUID(buffer.getLong(at), buffer.getLong(at + 8));
+    }
+
+    private ByteBuffer recordAt(int entry) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(recordsOffset + buffer.getInt(indexOffset + entry * INDEX_ENTRY_SIZE + 16));
+        return record;
+    }
+
+    private int recordLength(int entry) throws IOException {
+        ByteBuffer record = recordAt(entry);
+        int start = record.position();
+        readVarLong(record);
+        long words = readVarLong(record);
+        for (long i = 0; i < words; i++) {
+            readVarLong(record);
+        }
+        return record.position() - start;
+    }
+
+    private String title(int index) throws IOException {
+        if (index < 0 || index >= dictionary.length) {
+            throw new IOException("玩家数据文件中的称号序号超出字典范围: " + index);
+        }
+        return dictionary[index];
+    }
+
+    private static BitSet readBits(ByteBuffer in) throws IOException {
+        long[] words = new long[(int) readVarLong(in)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = readVarLong(in);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数过长");
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * 按UUID顺序追加玩家记录并生成完整文件
+     */
+    private static final class Writer {
+
+        private final List<String> dictionary;
+        private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+        private final List<UUID> playerIds = new ArrayList<>();
+        private final List<Integer> offsets = new ArrayList<>();
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+
+        Writer(List<String> initialDictionary) {
+            this.dictionary = new ArrayList<>(initialDictionary);
+            for (int i = 0; i < dictionary.size(); i++) {
+                dictionaryIndex.put(dictionary.get(i), i);
+            }
+        }
+
+        void add(UUID playerId, String currentTitle, Collection<String> unlockedTitles) {
+            start(playerId);
+            writeVarLong(records, currentTitle != null ? intern(currentTitle) + 1 : 0);
+
+            BitSet bits = new BitSet();
+            for (String titleId : unlockedTitles) {
+                bits.set(intern(titleId));
+            }
+            long[] words = bits.toLongArray();
+            writeVarLong(records, words.length);
+            for (long word : words) {
+                writeVarLong(records, word);
+            }
+        }
+
+        void addRaw(UUID playerId, ByteBuffer record, int length) {
+            start(playerId);
+            byte[] bytes = new byte[length];
+            record.get(bytes);
+            records.write(bytes, 0, length);
+        }
+
+        byte[] toByteArray() {
+            ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+            writeVarLong(dictionaryBytes, dictionary.size());
+            for (String titleId : dictionary) {
+                byte[] bytes = titleId.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(dictionaryBytes, bytes.length);
+                dictionaryBytes.write(bytes, 0, bytes.length);
+            }
+
+            int indexOffset = HEADER_SIZE + dictionaryBytes.size();
+            int recordsOffset = indexOffset + playerIds.size() * INDEX_ENTRY_SIZE;
+            ByteBuffer out = ByteBuffer.allocate(recordsOffset + records.size());
+            out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(playerIds.size()).putInt(indexOffset).putInt(recordsOffset);
+            out.put(dictionaryBytes.toByteArray());
+            for (int i = 0; i < playerIds.size(); i++) {
+                UUID playerId = playerIds.get(i);
+                out.putLong(playerId.getMostSignificantBits()).putLong(playerId.getLeastSignificantBits()).putInt(offsets.get(i));
+            }
+            out.put(records.toByteArray());
+            return out.array();
+        }
+
+        private void start(UUID playerId) {
+            playerIds.add(playerId);
+            offsets.add(records.size());
+        }
+
+        private int intern(String titleId) {
+            Integer index = dictionaryIndex.get(titleId);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.add(titleId);
+                dictionaryIndex.put(titleId, index);
+            }
+            return index;
+        }
+    }
+}
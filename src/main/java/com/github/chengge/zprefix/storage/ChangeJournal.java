@@ -0,0 +1,321 @@
+package com.github.chengge.zprefix.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * 称号修改日志（预写日志）
+ * 解锁、移除和切换称号在发生时追加一条记录，由日志线程按固定间隔把积累的记录一次写入并刷盘（组提交）；
+ * 日志按段存放，每次保存玩家数据前切换到新的段，保存成功后删除之前的段，即把日志合并进存储；
+ * 启动时重放尚未合并的段，恢复上次崩溃前最后一次保存之后的修改
+ */
+public class ChangeJournal {
+
+    /**
+     * 记录类型
+     */
+    public static final byte UNLOCK = 1;
+    public static final byte TAKE = 2;
+    public static final byte SET_CURRENT = 3;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    // 单条记录的最大长度，超出视为损坏
+    private static final int MAX_RECORD_LENGTH = 1 << 16;
+
+    // 切换日志段的标记，与记录按顺序进入同一个队列
+    private static final byte[] ROTATE = new byte[0];
+
+    /**
+     * 重放时接收记录；抛出异常会中止重放，日志段保留在磁盘上
+     */
+    public interface Handler {
+        void apply(byte type, UUID playerId, String titleId) throws IOException;
+    }
+
+    private final Logger logger;
+    private final File directory;
+    private final long flushIntervalMillis;
+    private final ConcurrentLinkedQueue<byte[]> pending = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService executor;
+
+    // 由追加记录的线程维护
+    private volatile long pendingRecords;
+    private long nextSegment;
+
+    // 由日志线程维护
+    private FileChannel channel;
+    private long currentSegment;
+
+    public ChangeJournal(Logger logger, File directory, long flushIntervalMillis) {
+        this.logger = logger;
+        this.directory = directory;
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+    }
+
+    /**
+     * 重放未合并的日志段
+     * 必须在 open 之前调用；损坏或写了一半的记录及其之后的内容会被忽略
+     *
+     * @param handler 记录处理器
+     * @return 重放的记录数
+     * @throws IOException 读取失败
+     */
+    public int replay(Handler handler) throws IOException {
+        int replayed = 0;
+        for (File segment : listSegments()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.toPath())))) {
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    byte[] payload = readPayload(in, length);
+                    if (payload == null) {
+                        logger.warning("称号修改日志 " + segment.getName() + " 末尾有不完整的记录，已忽略");
+                        break;
+                    }
+
+                    DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                    byte type = record.readByte();
+                    UUID playerId = new UUID(record.readLong(), record.readLong());
+                    String titleId = record.readBoolean() ? record.readUTF() : null;
+                    handler.apply(type, playerId, titleId);
+                    replayed++;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * 打开新的日志段并启动日志线程
+     *
+     * @throws IOException 创建日志段失败
+     */
+    public void open() throws IOException {
+        Files.createDirectories(directory.toPath());
+        List<File> segments = listSegments();
+        currentSegment = segments.isEmpty() ? 1 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        nextSegment = currentSegment;
+        channel = openSegment(currentSegment);
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "zPrefix-Journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushSafely, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 追加一条记录，在下一次组提交时写入磁盘
+     *
+     * @param type 记录类型
+     * @param playerId 玩家UUID
+     * @param titleId 称号ID，切换为无称号时为null
+     */
+    public void append(byte type, UUID playerId, String titleId) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeLong(playerId.getMostSignificantBits());
+            out.writeLong(playerId.getLeastSignificantBits());
+            out.writeBoolean(titleId != null);
+            if (titleId != null) {
+                out.writeUTF(titleId);
+            }
+            pending.add(bytes.toByteArray());
+            pendingRecords++;
+        } catch (IOException e) {
+            // 写入内存流不会失败
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 切换到新的日志段，之前追加的记录都留在旧段中
+     * 在为保存创建快照之前调用，保存成功后把返回值传给 release
+     *
+     * @return 新日志段的编号
+     */
+    public long rotate() {
+        pending.add(ROTATE);
+        pendingRecords = 0;
+        return ++nextSegment;
+    }
+
+    /**
+     * 删除编号小于指定值的日志段，它们的修改已经写入存储
+     *
+     * @param segment rotate 返回的编号
+     */
+    public void release(long segment) {
+        // 确保切换标记已被处理，旧段不再写入
+        flushSafely();
+        for (File file : listSegments()) {
+            if (segmentNumber(file) < segment && !file.delete()) {
+                logger.warning("无法删除已合并的称号修改日志: " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * 获取上次切换日志段以来追加的记录数
+     *
+     * @return 记录数
+     */
+    public long getPendingRecords() {
+        return pendingRecords;
+    }
+
+    /**
+     * 写入剩余记录并关闭日志
+     */
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "关闭称号修改日志时出错", e);
+        }
+    }
+
+    private synchronized void flushSafely() {
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "写入称号修改日志时出错", e);
+        }
+    }
+
+    /**
+     * 组提交：一次写入队列中的所有记录并刷盘
+     */
+    private void flush() throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(batch);
+        byte[] record;
+        while ((record = pending.poll()) != null) {
+            if (record == ROTATE) {
+                writeAndForce(batch);
+                channel.close();
+                currentSegment++;
+                channel = openSegment(currentSegment);
+                continue;
+            }
+            out.writeInt(record.length);
+            out.writeInt((int) checksum(record));
+            out.write(record);
+        }
+        writeAndForce(batch);
+    }
+
+    private void writeAndForce(ByteArrayOutputStream batch) throws IOException {
+        if (batch.size() == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        batch.reset();
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        Path path = new File(directory, SEGMENT_PREFIX + String.format("%08d", number) + SEGMENT_SUFFIX).toPath();
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<File> listSegments() {
+        List<File> segments = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                if (segmentNumber(file) >= 0) {
+                    segments.add(file);
+                }
+            }
+        }
+        segments.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+        return segments;
+    }
+
+    private static long segmentNumber(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 读取并校验一条记录的内容，记录不完整或校验失败时返回null
+     */
+    private static byte[] readPayload(DataInputStream in, int length) throws IOException {
+        if (length <= 0 || length > MAX_RECORD_LENGTH) {
+            return null;
+        }
+        byte[] header = new byte[4];
+        byte[] payload = new byte[length];
+        if (!readFully(in, header) || !readFully(in, payload)) {
+            return null;
+        }
+        long expected = ByteBuffer.wrap(header).getInt() & 0xFFFFFFFFL;
+        return checksum(payload) == expected ? payload : null;
+    }
+
+    private static boolean readFully(InputStream in, byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = in.read(buffer, offset, buffer.length - offset);
+            if (read < 0) {
+                return false;
+            }
+            offset += read;
+        }
+        return true;
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
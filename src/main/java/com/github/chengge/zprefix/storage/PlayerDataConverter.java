@@ -0,0 +1,74 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 玩家数据格式转换
+ * 在单文件YAML（player_titles.yml）与二进制文件之间互相转换
+ */
+public final class PlayerDataConverter {
+
+    private PlayerDataConverter() {
+    }
+
+    /**
+     * 把YAML文件转换为二进制文件，字典按称号出现次数从多到少排列
+     *
+     * @param yamlFile YAML文件
+     * @param binaryFile 二进制文件
+     * @return 转换的玩家数量
+     * @throws IOException 读写失败
+     */
+    public static int yamlToBinary(File yamlFile, File binaryFile) throws IOException {
+        List<PlayerDataSnapshot> records = new ArrayList<>();
+        Map<String, Integer> frequency = new HashMap<>();
+        YamlPlayerDataStream.read(yamlFile, (playerId, currentTitle, unlockedTitles) -> {
+            Set<String> titles = new HashSet<>(unlockedTitles);
+            for (String titleId : titles) {
+                frequency.merge(titleId, 1, Integer::sum);
+            }
+            records.add(new PlayerDataSnapshot(playerId, currentTitle, titles, 0));
+        });
+
+        List<String> dictionary = new ArrayList<>(frequency.keySet());
+        dictionary.sort((a, b) -> Integer.compare(frequency.get(b), frequency.get(a)));
+
+        File parentDir = binaryFile.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        BinaryPlayerDataStorage.write(binaryFile.toPath(), dictionary, records);
+        return records.size();
+    }
+
+    /**
+     * 把二进制文件转换为YAML文件
+     *
+     * @param binaryFile 二进制文件
+     * @param yamlFile YAML文件
+     * @return 转换的玩家数量
+     * @throws IOException 读写失败
+     */
+    public static int binaryToYaml(File binaryFile, File yamlFile) throws IOException {
+        BinaryPlayerDataStorage storage = new BinaryPlayerDataStorage(binaryFile);
+        storage.initialize();
+
+        List<PlayerDataSnapshot> records = new ArrayList<>();
+        try {
+            storage.forEach(playerData -> records.add(playerData.snapshot()));
+        } finally {
+            storage.close();
+        }
+
+        File parentDir = yamlFile.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        AtomicFiles.write(yamlFile.toPath(), YamlPlayerDataStream.write(records));
+        return records.size();
+    }
+}
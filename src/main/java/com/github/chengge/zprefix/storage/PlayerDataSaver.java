@@ -0,0 +1,298 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.ZPrefix;
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import com.github.chengge.zprefix.data.PlayerTitleData;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * 玩家数据保存流水线
+ * 在主线程为有修改的玩家创建快照，交给专用的存储线程写盘，主线程不会等待磁盘；
+ * 同一时间只有一次保存在进行，上一次未完成时新的保存请求会被跳过，修改留到下一次保存；
+ * 启用修改日志时，保存成功后删除快照之前的日志段
+ */
+public class PlayerDataSaver {
+
+    private final ZPrefix plugin;
+    private final PlayerDataStorage storage;
+    private final ChangeJournal journal;
+    private final ExecutorService executor;
+    private final AtomicBoolean saving = new AtomicBoolean();
+
+    // 保存统计
+    private volatile int lastSaveRecords;
+    private volatile long lastSaveBytes;
+    private volatile long lastSaveMillis = -1;
+    private volatile long totalSavedRecords;
+    private volatile long totalSavedBytes;
+    private volatile long skippedSaves;
+
+    public PlayerDataSaver(ZPrefix plugin, PlayerDataStorage storage, ChangeJournal journal) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.journal = journal;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "zPrefix-DataSaver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 异步保存有修改的玩家数据，必须在主线程调用
+     *
+     * @param candidates 所有已加载的玩家数据
+     * @return 是否提交了保存，上一次保存尚未完成时返回false
+     */
+    public boolean saveAsync(Collection<PlayerTitleData> candidates) {
+        if (!saving.compareAndSet(false, true)) {
+            skippedSaves++;
+            return false;
+        }
+
+        List<PlayerTitleData> records = new ArrayList<>();
+        List<PlayerDataSnapshot> snapshots = new ArrayList<>();
+        long segment = collectDirty(candidates, records, snapshots);
+
+        try {
+            executor.execute(() -> {
+                try {
+                    write(records, snapshots, segment);
+                } finally {
+                    saving.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            saving.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * 同步保存有修改的玩家数据，等待进行中的保存完成后再写入（用于关闭插件）
+     *
+     * @param candidates 所有已加载的玩家数据
+     */
+    public void saveNow(Collection<PlayerTitleData> candidates) {
+        List<PlayerTitleData> records = new ArrayList<>();
+        List<PlayerDataSnapshot> snapshots = new ArrayList<>();
+        long segment = collectDirty(candidates, records, snapshots);
+
+        try {
+            executor.submit(() -> write(records, snapshots, segment)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getLogger().log(Level.SEVERE, "保存玩家数据时出错", e.getCause());
+        }
+    }
+
+    /**
+     * 保存有修改的玩家数据并返回可等待的结果，必须在主线程调用
+     * 与 saveAsync 不同，上一次保存未完成时不会跳过，而是排在其后执行
+     *
+     * @param candidates 所有已加载的玩家数据
+     * @return 保存结果，写入失败时以 IOException 失败
+     */
+    public CompletableFuture<Void> flush(Collection<PlayerTitleData> candidates) {
+        List<PlayerTitleData> records = new ArrayList<>();
+        List<PlayerDataSnapshot> snapshots = new ArrayList<>();
+        long segment = collectDirty(candidates, records, snapshots);
+
+        return submit(() -> {
+            writeChecked(records, snapshots, segment);
+            return null;
+        });
+    }
+
+    /**
+     * 在存储线程删除没有任何称号数据的记录，与保存按顺序执行
+     *
+     * @return 删除的记录数
+     */
+    public CompletableFuture<Integer> purgeEmptyRecords() {
+        return submit(storage::purgeEmptyRecords);
+    }
+
+    /**
+     * 在存储线程执行一项存储操作，与保存按顺序执行，不会和保存同时写入存储
+     * 插件关闭时 shutdown 会等待已提交的操作完成后才关闭存储
+     *
+     * @param task 存储操作
+     * @return 操作结果，存储线程已停止时以 RejectedExecutionException 失败
+     */
+    public <T> CompletableFuture<T> submit(StorageTask<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.run();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 停止存储线程，等待已提交的保存完成
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("等待玩家数据保存超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 为有修改的玩家创建快照
+     *
+     * @return 快照之后的日志段编号，未启用日志时返回-1
+     */
+    private long collectDirty(Collection<PlayerTitleData> candidates, List<PlayerTitleData> records,
+                              List<PlayerDataSnapshot> snapshots) {
+        // 先切换日志段，之前的修改都包含在快照中
+        long segment = journal != null ? journal.rotate() : -1;
+        for (PlayerTitleData playerData : candidates) {
+            if (playerData.isDirty()) {
+                records.add(playerData);
+                snapshots.add(playerData.snapshot());
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * 存储线程：写入快照，出错时记录日志
+     */
+    private void write(List<PlayerTitleData> records, List<PlayerDataSnapshot> snapshots, long segment) {
+        try {
+            writeChecked(records, snapshots, segment);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "保存玩家数据时出错", e);
+        }
+    }
+
+    /**
+     * 存储线程：写入快照，标记已保存的版本并合并日志
+     *
+     * @throws IOException 写入失败
+     */
+    private void writeChecked(List<PlayerTitleData> records, List<PlayerDataSnapshot> snapshots, long segment)
+            throws IOException {
+        long startTime = System.currentTimeMillis();
+        if (snapshots.isEmpty()) {
+            lastSaveRecords = 0;
+            lastSaveBytes = 0;
+            lastSaveMillis = 0;
+            releaseJournal(segment);
+            return;
+        }
+
+        long bytes = storage.save(snapshots);
+
+        // 写入期间的新修改版本号更大，仍会保持未保存状态
+        for (int i = 0; i < records.size(); i++) {
+            records.get(i).markSaved(snapshots.get(i).getVersion());
+        }
+        releaseJournal(segment);
+
+        lastSaveRecords = snapshots.size();
+        lastSaveBytes = bytes;
+        lastSaveMillis = System.currentTimeMillis() - startTime;
+        totalSavedRecords += lastSaveRecords;
+        totalSavedBytes += lastSaveBytes;
+
+        plugin.getLogger().info("保存玩家数据完成: 写入 " + lastSaveRecords + " 条记录, " +
+                              lastSaveBytes + " 字节, 耗时 " + lastSaveMillis + " 毫秒");
+    }
+
+    private void releaseJournal(long segment) {
+        if (journal != null) {
+            journal.release(segment);
+        }
+    }
+
+    /**
+     * 在存储线程执行的存储操作
+     *
+     * @param <T> 结果类型
+     */
+    @FunctionalInterface
+    public interface StorageTask<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * 获取上次保存写入的记录数
+     *
+     * @return 记录数
+     */
+    public int getLastSaveRecords() {
+        return lastSaveRecords;
+    }
+
+    /**
+     * 获取上次保存写入的字节数
+     *
+     * @return 字节数
+     */
+    public long getLastSaveBytes() {
+        return lastSaveBytes;
+    }
+
+    /**
+     * 获取上次保存的耗时
+     *
+     * @return 耗时（毫秒），尚未保存过时返回-1
+     */
+    public long getLastSaveMillis() {
+        return lastSaveMillis;
+    }
+
+    /**
+     * 获取累计写入的记录数
+     *
+     * @return 记录数
+     */
+    public long getTotalSavedRecords() {
+        return totalSavedRecords;
+    }
+
+    /**
+     * 获取累计写入的字节数
+     *
+     * @return 字节数
+     */
+    public long getTotalSavedBytes() {
+        return totalSavedBytes;
+    }
+
+    /**
+     * 获取因上一次保存未完成而跳过的保存次数
+     *
+     * @return 跳过次数
+     */
+    public long getSkippedSaves() {
+        return skippedSaves;
+    }
+}
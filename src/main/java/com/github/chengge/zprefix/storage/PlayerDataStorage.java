@@ -0,0 +1,73 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import com.github.chengge.zprefix.data.PlayerTitleData;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 玩家称号数据存储
+ * 由 database.type 选择具体实现，TitleManager 只通过此接口读写玩家数据
+ */
+public interface PlayerDataStorage {
+
+    /**
+     * 获取存储类型名称
+     *
+     * @return 类型名称，与 database.type 的取值一致
+     */
+    String getType();
+
+    /**
+     * 初始化存储（创建目录、打开文件等）
+     *
+     * @throws IOException 初始化失败
+     */
+    void initialize() throws IOException;
+
+    /**
+     * 读取单个玩家的数据
+     *
+     * @param playerId 玩家UUID
+     * @return 玩家数据，没有记录时返回null
+     * @throws IOException 读取失败
+     */
+    PlayerTitleData load(UUID playerId) throws IOException;
+
+    /**
+     * 写入一批玩家数据快照，在存储线程调用
+     * 实现需保证写入中途失败或崩溃时不会留下损坏的数据文件；存储关闭后调用会抛出 IOException
+     *
+     * @param records 需要写入的玩家数据快照
+     * @return 写入的字节数
+     * @throws IOException 写入失败
+     */
+    long save(Collection<PlayerDataSnapshot> records) throws IOException;
+
+    /**
+     * 按存储自身的稳定顺序分页读取记录（用于迁移）
+     * 同一存储多次调用的顺序一致，可以用上一页最后一名玩家继续读取
+     *
+     * @param after 从该玩家之后开始读取，为null时从头开始
+     * @param limit 最多读取的记录数
+     * @return 玩家数据，没有更多记录时为空列表
+     * @throws IOException 读取失败
+     */
+    List<PlayerTitleData> scan(UUID after, int limit) throws IOException;
+
+    /**
+     * 删除没有任何称号数据的记录，在存储线程调用；存储关闭后调用会抛出 IOException
+     *
+     * @return 删除的记录数
+     * @throws IOException 读写失败
+     */
+    int purgeEmptyRecords() throws IOException;
+
+    /**
+     * 关闭存储，释放资源，之后不再接受写入
+     */
+    void close();
+}
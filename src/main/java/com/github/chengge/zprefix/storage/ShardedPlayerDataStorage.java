@@ -0,0 +1,172 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import com.github.chengge.zprefix.data.PlayerTitleData;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 分片存储
+ * 每名玩家一个小文件，按UUID前两位十六进制分到256个子目录：&lt;根目录&gt;/ab/&lt;uuid&gt;.yml，
+ * 读写只涉及对应玩家的文件，启动时不读取任何玩家数据
+ */
+public class ShardedPlayerDataStorage implements PlayerDataStorage {
+
+    private final File rootDir;
+    private volatile boolean closed;
+
+    public ShardedPlayerDataStorage(File rootDir) {
+        this.rootDir = rootDir;
+    }
+
+    @Override
+    public String getType() {
+        return "sharded";
+    }
+
+    @Override
+    public void initialize() throws IOException {
+        if (!rootDir.exists() && !rootDir.mkdirs()) {
+            throw new IOException("无法创建分片存储目录: " + rootDir.getPath());
+        }
+    }
+
+    @Override
+    public PlayerTitleData load(UUID playerId) throws IOException {
+        Path file = shardFile(playerId);
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.loadFromString(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } catch (InvalidConfigurationException e) {
+            throw new IOException("玩家数据文件格式错误: " + file, e);
+        }
+
+        String currentTitle = config.getString("current-title");
+        List<String> unlockedTitles = config.getStringList("unlocked-titles");
+        return new PlayerTitleData(playerId, currentTitle, new HashSet<>(unlockedTitles));
+    }
+
+    @Override
+    public long save(Collection<PlayerDataSnapshot> records) throws IOException {
+        checkOpen();
+        long bytes = 0;
+        for (PlayerDataSnapshot snapshot : records) {
+            YamlConfiguration config = new YamlConfiguration();
+            config.set("current-title", snapshot.getCurrentTitle());
+            config.set("unlocked-titles", new ArrayList<>(snapshot.getUnlockedTitles()));
+            byte[] content = config.saveToString().getBytes(StandardCharsets.UTF_8);
+
+            Path file = shardFile(snapshot.getPlayerId());
+            Files.createDirectories(file.getParent());
+            AtomicFiles.write(file, content);
+            bytes += content.length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public List<PlayerTitleData> scan(UUID after, int limit) throws IOException {
+        // 分片目录和文件名都是UUID字符串的前缀，按名称排序即为UUID字符串顺序
+        String afterName = after != null ? after + ".yml" : null;
+        String afterShard = afterName != null ? afterName.substring(0, 2) : null;
+        List<PlayerTitleData> result = new ArrayList<>();
+
+        File[] shards = rootDir.listFiles(File::isDirectory);
+        if (shards == null) {
+            return result;
+        }
+        Arrays.sort(shards, Comparator.comparing(File::getName));
+        for (File shard : shards) {
+            if (afterShard != null && shard.getName().compareTo(afterShard) < 0) {
+                continue;
+            }
+            String[] names = shard.list((dir, name) -> name.endsWith(".yml"));
+            if (names == null) {
+                continue;
+            }
+            Arrays.sort(names);
+            for (String name : names) {
+                if (afterName != null && name.compareTo(afterName) <= 0) {
+                    continue;
+                }
+                UUID playerId;
+                try {
+                    playerId = UUID.fromString(name.substring(0, name.length() - ".yml".length()));
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                PlayerTitleData playerData = load(playerId);
+                if (playerData != null) {
+                    result.add(playerData);
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int purgeEmptyRecords() throws IOException {
+        checkOpen();
+        int purged = 0;
+        File[] shards = rootDir.listFiles(File::isDirectory);
+        if (shards == null) {
+            return 0;
+        }
+        for (File shard : shards) {
+            File[] files = shard.listFiles((dir, name) -> name.endsWith(".yml"));
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                YamlConfiguration config = new YamlConfiguration();
+                try {
+                    config.loadFromString(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+                } catch (InvalidConfigurationException e) {
+                    continue; // 格式错误的文件留给人工处理
+                }
+                if (config.getString("current-title") == null && config.getStringList("unlocked-titles").isEmpty()) {
+                    Files.deleteIfExists(file.toPath());
+                    purged++;
+                }
+            }
+        }
+        return purged;
+    }
+
+    @Override
+    public void close() {
+        // 每次读写独立打开文件，没有需要释放的资源
+        closed = true;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("玩家数据存储已关闭，不能再写入");
+        }
+    }
+
+    /**
+     * 获取玩家对应的分片文件
+     *
+     * @param playerId 玩家UUID
+     * @return 文件路径
+     */
+    Path shardFile(UUID playerId) {
+        String uuid = playerId.toString();
+        return rootDir.toPath().resolve(uuid.substring(0, 2)).resolve(uuid + ".yml");
+    }
+}
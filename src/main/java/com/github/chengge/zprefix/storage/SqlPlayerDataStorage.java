@@ -0,0 +1,200 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import com.github.chengge.zprefix.data.PlayerTitleData;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * 数据库存储
+ * 每名玩家一行：uuid、当前称号、以逗号分隔的已解锁称号；
+ * 连接由外部传入的连接池提供，保存时在一个事务中批量执行 upsert；
+ * 只依赖标准JDBC，可以直接使用嵌入式数据库（H2 的 MySQL 模式或 SQLite）的 DataSource 验证
+ */
+public class SqlPlayerDataStorage implements PlayerDataStorage {
+
+    /**
+     * 数据库方言，只有 upsert 语句不同
+     */
+    public enum Dialect {
+        MYSQL("mysql",
+              "INSERT INTO %s (uuid, current_title, unlocked_titles) VALUES (?, ?, ?) " +
+              "ON DUPLICATE KEY UPDATE current_title = VALUES(current_title), unlocked_titles = VALUES(unlocked_titles)"),
+        SQLITE("sqlite",
+               "INSERT INTO %s (uuid, current_title, unlocked_titles) VALUES (?, ?, ?) " +
+               "ON CONFLICT(uuid) DO UPDATE SET current_title = excluded.current_title, unlocked_titles = excluded.unlocked_titles");
+
+        private final String type;
+        private final String upsertTemplate;
+
+        Dialect(String type, String upsertTemplate) {
+            this.type = type;
+            this.upsertTemplate = upsertTemplate;
+        }
+    }
+
+    private static final String TITLE_SEPARATOR = ",";
+
+    private final Dialect dialect;
+    private final DataSource dataSource;
+    private final String table;
+    private final String selectSql;
+    private final String upsertSql;
+    private final String scanSql;
+    private volatile boolean closed;
+
+    /**
+     * 构造函数
+     *
+     * @param dialect 数据库方言
+     * @param dataSource 连接池
+     * @param tablePrefix 表名前缀
+     */
+    public SqlPlayerDataStorage(Dialect dialect, DataSource dataSource, String tablePrefix) {
+        this.dialect = dialect;
+        this.dataSource = dataSource;
+        this.table = tablePrefix + "players";
+        this.selectSql = "SELECT current_title, unlocked_titles FROM " + table + " WHERE uuid = ?";
+        this.upsertSql = String.format(dialect.upsertTemplate, table);
+        this.scanSql = "SELECT uuid, current_title, unlocked_titles FROM " + table + " WHERE uuid > ? ORDER BY uuid LIMIT ?";
+    }
+
+    @Override
+    public String getType() {
+        return dialect.type;
+    }
+
+    @Override
+    public void initialize() throws IOException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                    "uuid CHAR(36) NOT NULL PRIMARY KEY, " +
+                    "current_title VARCHAR(128) NULL, " +
+                    "unlocked_titles TEXT NOT NULL)");
+        } catch (SQLException e) {
+            throw new IOException("创建数据表失败: " + table, e);
+        }
+    }
+
+    @Override
+    public PlayerTitleData load(UUID playerId) throws IOException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            statement.setString(1, playerId.toString());
+            try (ResultSet result = statement.executeQuery()) {
+                if (!result.next()) {
+                    return null;
+                }
+                String currentTitle = result.getString("current_title");
+                return new PlayerTitleData(playerId, currentTitle, splitTitles(result.getString("unlocked_titles")));
+            }
+        } catch (SQLException e) {
+            throw new IOException("读取玩家 " + playerId + " 的称号数据失败", e);
+        }
+    }
+
+    @Override
+    public long save(Collection<PlayerDataSnapshot> records) throws IOException {
+        checkOpen();
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        long bytes = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(upsertSql)) {
+                for (PlayerDataSnapshot snapshot : records) {
+                    String uuid = snapshot.getPlayerId().toString();
+                    String currentTitle = snapshot.getCurrentTitle();
+                    String unlockedTitles = String.join(TITLE_SEPARATOR, snapshot.getUnlockedTitles());
+
+                    statement.setString(1, uuid);
+                    statement.setString(2, currentTitle);
+                    statement.setString(3, unlockedTitles);
+                    statement.addBatch();
+
+                    bytes += uuid.length() + unlockedTitles.getBytes(StandardCharsets.UTF_8).length
+                            + (currentTitle != null ? currentTitle.getBytes(StandardCharsets.UTF_8).length : 0);
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IOException("批量写入玩家称号数据失败", e);
+        }
+        return bytes;
+    }
+
+    @Override
+    public List<PlayerTitleData> scan(UUID after, int limit) throws IOException {
+        List<PlayerTitleData> result = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(scanSql)) {
+            statement.setString(1, after != null ? after.toString() : "");
+            statement.setInt(2, limit);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    UUID playerId = UUID.fromString(rows.getString("uuid"));
+                    result.add(new PlayerTitleData(playerId, rows.getString("current_title"),
+                                                   splitTitles(rows.getString("unlocked_titles"))));
+                }
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            throw new IOException("分页读取玩家称号数据失败", e);
+        }
+        return result;
+    }
+
+    @Override
+    public int purgeEmptyRecords() throws IOException {
+        checkOpen();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            return statement.executeUpdate("DELETE FROM " + table + " WHERE current_title IS NULL AND unlocked_titles = ''");
+        } catch (SQLException e) {
+            throw new IOException("删除空的玩家称号数据失败", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                // 关闭连接池失败时没有其他可做的处理
+            }
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("玩家数据存储已关闭，不能再写入");
+        }
+    }
+
+    private static Set<String> splitTitles(String value) {
+        Set<String> titles = new HashSet<>();
+        if (value != null && !value.isEmpty()) {
+            Collections.addAll(titles, value.split(TITLE_SEPARATOR));
+        }
+        return titles;
+    }
+}
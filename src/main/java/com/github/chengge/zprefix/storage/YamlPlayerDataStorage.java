@@ -0,0 +1,201 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import com.github.chengge.zprefix.data.PlayerTitleData;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+
+/**
+ * 单文件YAML存储
+ * 所有玩家保存在同一个 player_titles.yml 中，启动时流式解析为紧凑的内存记录，有修改时整个文件重写
+ */
+public class YamlPlayerDataStorage implements PlayerDataStorage {
+
+    private final File dataFile;
+    // 按文件中的顺序保存，重写文件时保持原有顺序
+    private final Map<UUID, PlayerDataSnapshot> records = new LinkedHashMap<>();
+    // 写文件的锁，先于 this 获取；同一时间只有一个线程写临时文件，重命名顺序与序列化顺序一致
+    private final Object writeLock = new Object();
+    private volatile boolean closed;
+
+    // 启动时的读取统计
+    private long loadMillis = -1;
+    private long loadAllocatedBytes = -1;
+
+    public YamlPlayerDataStorage(File dataFile) {
+        this.dataFile = dataFile;
+    }
+
+    @Override
+    public String getType() {
+        return "file";
+    }
+
+    @Override
+    public synchronized void initialize() throws IOException {
+        // 确保目录存在
+        File parentDir = dataFile.getParentFile();
+        if (!parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+
+        // 创建文件（如果不存在）
+        if (!dataFile.exists()) {
+            dataFile.createNewFile();
+        }
+
+        long startTime = System.currentTimeMillis();
+        long startAllocated = allocatedBytes();
+
+        // 相同的称号ID共用同一个字符串
+        Map<String, String> interned = new HashMap<>();
+        records.clear();
+        YamlPlayerDataStream.read(dataFile, (playerId, currentTitle, unlockedTitles) -> {
+            Set<String> titles = new HashSet<>(unlockedTitles.size() * 2);
+            for (String titleId : unlockedTitles) {
+                titles.add(interned.computeIfAbsent(titleId, key -> key));
+            }
+            String current = currentTitle != null ? interned.computeIfAbsent(currentTitle, key -> key) : null;
+            records.put(playerId, new PlayerDataSnapshot(playerId, current, Collections.unmodifiableSet(titles), 0));
+        });
+
+        loadMillis = System.currentTimeMillis() - startTime;
+        loadAllocatedBytes = startAllocated >= 0 ? allocatedBytes() - startAllocated : -1;
+    }
+
+    @Override
+    public synchronized PlayerTitleData load(UUID playerId) {
+        PlayerDataSnapshot record = records.get(playerId);
+        if (record == null) {
+            return null;
+        }
+        return new PlayerTitleData(playerId, record.getCurrentTitle(), record.getUnlockedTitles());
+    }
+
+    @Override
+    public long save(Collection<PlayerDataSnapshot> snapshots) throws IOException {
+        // 数据锁只在序列化期间持有，写盘时主线程的读取不会被阻塞；
+        // 写文件的锁覆盖序列化和写盘，较旧的内容不会在较新的内容之后覆盖文件
+        synchronized (writeLock) {
+            checkOpen();
+            byte[] content;
+            synchronized (this) {
+                for (PlayerDataSnapshot snapshot : snapshots) {
+                    records.put(snapshot.getPlayerId(), snapshot);
+                }
+                content = YamlPlayerDataStream.write(records.values());
+            }
+
+            AtomicFiles.write(dataFile.toPath(), content);
+            return content.length;
+        }
+    }
+
+    @Override
+    public synchronized List<PlayerTitleData> scan(UUID after, int limit) {
+        // 按UUID字符串顺序，只保留 after 之后最小的 limit 条
+        String afterKey = after != null ? after.toString() : null;
+        TreeMap<String, PlayerDataSnapshot> page = new TreeMap<>();
+        for (PlayerDataSnapshot record : records.values()) {
+            String key = record.getPlayerId().toString();
+            if (afterKey != null && key.compareTo(afterKey) <= 0) {
+                continue;
+            }
+            page.put(key, record);
+            if (page.size() > limit) {
+                page.pollLastEntry();
+            }
+        }
+
+        List<PlayerTitleData> result = new ArrayList<>(page.size());
+        for (PlayerDataSnapshot record : page.values()) {
+            result.add(new PlayerTitleData(record.getPlayerId(), record.getCurrentTitle(), record.getUnlockedTitles()));
+        }
+        return result;
+    }
+
+    @Override
+    public int purgeEmptyRecords() throws IOException {
+        synchronized (writeLock) {
+            checkOpen();
+            byte[] content;
+            int purged = 0;
+            synchronized (this) {
+                Iterator<PlayerDataSnapshot> iterator = records.values().iterator();
+                while (iterator.hasNext()) {
+                    PlayerDataSnapshot record = iterator.next();
+                    if (record.getCurrentTitle() == null && record.getUnlockedTitles().isEmpty()) {
+                        iterator.remove();
+                        purged++;
+                    }
+                }
+                if (purged == 0) {
+                    return 0;
+                }
+                content = YamlPlayerDataStream.write(records.values());
+            }
+
+            AtomicFiles.write(dataFile.toPath(), content);
+            return purged;
+        }
+    }
+
+    /**
+     * 获取文件中的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public synchronized int getRecordCount() {
+        return records.size();
+    }
+
+    /**
+     * 获取启动时读取文件的耗时
+     *
+     * @return 耗时（毫秒），尚未读取时返回-1
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    /**
+     * 获取启动时读取文件期间分配的内存
+     *
+     * @return 分配的字节数，JVM不支持统计时返回-1
+     */
+    public long getLoadAllocatedBytes() {
+        return loadAllocatedBytes;
+    }
+
+    @Override
+    public void close() {
+        // 等待进行中的写入完成，之后的写入会被拒绝
+        synchronized (writeLock) {
+            closed = true;
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("玩家数据存储已关闭，不能再写入");
+        }
+    }
+
+    /**
+     * 当前线程累计分配的字节数
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
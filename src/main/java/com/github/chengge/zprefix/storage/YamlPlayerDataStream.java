@@ -0,0 +1,256 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * player_titles.yml 的流式读写
+ * 读取时按 SnakeYAML 解析事件逐个处理，直接得到每名玩家的数据，不构建完整的配置树；
+ * 写入时按相同的结构逐行输出，格式与 YamlConfiguration 保存的文件兼容
+ */
+public final class YamlPlayerDataStream {
+
+    // 可以不加引号输出的称号ID，数字和YAML关键字需要加引号
+    private static final Pattern PLAIN_SCALAR = Pattern.compile("[A-Za-z_][A-Za-z0-9_.\\-]*");
+    private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+            "y", "n", "yes", "no", "true", "false", "on", "off", "null"));
+
+    /**
+     * 接收读取到的玩家数据
+     */
+    public interface Handler {
+        void accept(UUID playerId, String currentTitle, List<String> unlockedTitles);
+    }
+
+    private YamlPlayerDataStream() {
+    }
+
+    /**
+     * 流式读取玩家数据文件
+     *
+     * @param file 数据文件
+     * @param handler 玩家数据处理器
+     * @return 读取的玩家数量
+     * @throws IOException 读取或解析失败
+     */
+    public static int read(File file, Handler handler) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return 0;
+        }
+
+        // 与 YamlConfiguration 一样取消默认的文件大小限制
+        LoaderOptions options = new LoaderOptions();
+        options.setCodePointLimit(Integer.MAX_VALUE);
+
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            Iterator<Event> events = new Yaml(options).parse(reader).iterator();
+            return readRoot(events, handler);
+        } catch (RuntimeException e) {
+            // SnakeYAML 的解析错误都是运行时异常
+            throw new IOException("玩家数据文件格式错误: " + file, e);
+        }
+    }
+
+    /**
+     * 把玩家数据输出为YAML文本
+     *
+     * @param records 玩家数据
+     * @return UTF-8 编码的文件内容
+     */
+    public static byte[] write(Collection<PlayerDataSnapshot> records) {
+        if (records.isEmpty()) {
+            return new byte[0];
+        }
+        StringBuilder out = new StringBuilder(64 + records.size() * 96);
+
+        out.append("players:\n");
+        for (PlayerDataSnapshot record : records) {
+            out.append("  ").append(record.getPlayerId()).append(":\n");
+            if (record.getCurrentTitle() != null) {
+                out.append("    current-title: ");
+                appendScalar(out, record.getCurrentTitle());
+                out.append('\n');
+            }
+            if (record.getUnlockedTitles().isEmpty()) {
+                out.append("    unlocked-titles: []\n");
+            } else {
+                out.append("    unlocked-titles:\n");
+                for (String titleId : record.getUnlockedTitles()) {
+                    out.append("    - ");
+                    appendScalar(out, titleId);
+                    out.append('\n');
+                }
+            }
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int readRoot(Iterator<Event> events, Handler handler) {
+        // 跳到根节点，空文档直接返回
+        Event event;
+        do {
+            event = events.next();
+            if (event instanceof StreamEndEvent) {
+                return 0;
+            }
+        } while (!(event instanceof MappingStartEvent) && !(event instanceof ScalarEvent));
+        if (event instanceof ScalarEvent) {
+            return 0;
+        }
+
+        int count = 0;
+        while (!((event = events.next()) instanceof MappingEndEvent)) {
+            String key = scalarValue(event);
+            Event value = events.next();
+            if ("players".equals(key) && value instanceof MappingStartEvent) {
+                count += readPlayers(events, handler);
+            } else {
+                skip(events, value);
+            }
+        }
+        return count;
+    }
+
+    private static int readPlayers(Iterator<Event> events, Handler handler) {
+        int count = 0;
+        Event event;
+        while (!((event = events.next()) instanceof MappingEndEvent)) {
+            String key = scalarValue(event);
+            Event value = events.next();
+            UUID playerId = parseUuid(key);
+            if (playerId == null || !(value instanceof MappingStartEvent)) {
+                skip(events, value);
+                continue;
+            }
+            readPlayer(events, playerId, handler);
+            count++;
+        }
+        return count;
+    }
+
+    private static void readPlayer(Iterator<Event> events, UUID playerId, Handler handler) {
+        String currentTitle = null;
+        List<String> unlockedTitles = new ArrayList<>();
+
+        Event event;
+        while (!((event = events.next()) instanceof MappingEndEvent)) {
+            String key = scalarValue(event);
+            Event value = events.next();
+            if ("current-title".equals(key) && value instanceof ScalarEvent) {
+                currentTitle = scalarValue(value);
+            } else if ("unlocked-titles".equals(key) && value instanceof SequenceStartEvent) {
+                Event item;
+                while (!((item = events.next()) instanceof SequenceEndEvent)) {
+                    if (item instanceof ScalarEvent) {
+                        String titleId = scalarValue(item);
+                        if (titleId != null) {
+                            unlockedTitles.add(titleId);
+                        }
+                    } else {
+                        skip(events, item);
+                    }
+                }
+            } else {
+                skip(events, value);
+            }
+        }
+
+        handler.accept(playerId, currentTitle, unlockedTitles);
+    }
+
+    /**
+     * 跳过一个值，值为映射或序列时跳过其中的全部内容
+     */
+    private static void skip(Iterator<Event> events, Event value) {
+        if (!(value instanceof MappingStartEvent) && !(value instanceof SequenceStartEvent)) {
+            return;
+        }
+        int depth = 1;
+        while (depth > 0) {
+            Event event = events.next();
+            if (event instanceof MappingStartEvent || event instanceof SequenceStartEvent) {
+                depth++;
+            } else if (event instanceof MappingEndEvent || event instanceof SequenceEndEvent) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * 获取标量的值，不加引号的空值（~、null 或空）返回null
+     */
+    private static String scalarValue(Event event) {
+        if (!(event instanceof ScalarEvent)) {
+            return null;
+        }
+        ScalarEvent scalar = (ScalarEvent) event;
+        String value = scalar.getValue();
+        if (scalar.getScalarStyle() == DumperOptions.ScalarStyle.PLAIN
+                && (value.isEmpty() || "~".equals(value) || "null".equalsIgnoreCase(value))) {
+            return null;
+        }
+        return value;
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void appendScalar(StringBuilder out, String value) {
+        if (PLAIN_SCALAR.matcher(value).matches() && !RESERVED.contains(value.toLowerCase(Locale.ROOT))) {
+            out.append(value);
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        out.append('"');
+    }
+}
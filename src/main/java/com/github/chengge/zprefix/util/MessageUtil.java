@@ -8,8 +8,13 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 消息工具类
@@ -19,7 +24,8 @@ public class MessageUtil {
     
     private static ZPrefix plugin;
     private static FileConfiguration messageConfig;
-    private static final Map<String, String> messageCache = new HashMap<>();
+    // 登录前事件等异步线程也会读取消息
+    private static final Map<String, String> messageCache = new ConcurrentHashMap<>();
     
     /**
      * 初始化消息工具
@@ -41,6 +47,12 @@ public class MessageUtil {
         }
         
         messageConfig = YamlConfiguration.loadConfiguration(messageFile);
+        // 旧版本生成的消息文件缺少新增的消息时使用插件内置的默认消息
+        InputStream defaults = plugin.getResource("messages.yml");
+        if (defaults != null) {
+            messageConfig.setDefaults(YamlConfiguration.loadConfiguration(
+                    new InputStreamReader(defaults, StandardCharsets.UTF_8)));
+        }
         messageCache.clear();
         
         // 预加载常用消息到缓存
@@ -57,8 +69,18 @@ public class MessageUtil {
      * @param path 消息路径
      */
     private static void cacheMessage(String path) {
-        String message = messageConfig.getString(path, "§c消息配置错误: " + path);
-        messageCache.put(path, ChatColor.translateAlternateColorCodes('&', message));
+        messageCache.put(path, ChatColor.translateAlternateColorCodes('&', readMessage(path)));
+    }
+
+    /**
+     * 读取消息配置，文件中没有时使用默认消息
+     *
+     * @param path 消息路径
+     * @return 未格式化的消息
+     */
+    private static String readMessage(String path) {
+        String message = messageConfig.getString(path);
+        return message != null ? message : "§c消息配置错误: " + path;
     }
     
     /**
@@ -74,7 +96,7 @@ public class MessageUtil {
         }
         
         // 从配置文件获取
-        String message = messageConfig.getString(path, "§c消息配置错误: " + path);
+        String message = readMessage(path);
         String formattedMessage = ChatColor.translateAlternateColorCodes('&', message);
         
         // 添加到缓存
@@ -118,6 +140,28 @@ public class MessageUtil {
         return getMessage(path, placeholders);
     }
     
+    /**
+     * 获取带多个占位符替换的消息
+     *
+     * @param path 消息路径
+     * @param placeholders 依次排列的占位符名称和替换值
+     * @return 格式化后的消息
+     */
+    public static String getMessage(String path, String... placeholders) {
+        return getMessage(path, toPlaceholderMap(placeholders));
+    }
+
+    private static Map<String, String> toPlaceholderMap(String... placeholders) {
+        if (placeholders.length % 2 != 0) {
+            throw new IllegalArgumentException("占位符名称和替换值必须成对出现: " + Arrays.toString(placeholders));
+        }
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < placeholders.length; i += 2) {
+            map.put(placeholders[i], placeholders[i + 1]);
+        }
+        return map;
+    }
+
     /**
      * 发送消息给命令发送者
      * 
@@ -190,6 +234,28 @@ public class MessageUtil {
         sender.sendMessage(prefix + message);
     }
     
+    /**
+     * 发送带多个占位符的消息
+     *
+     * @param sender 命令发送者
+     * @param path 消息路径
+     * @param placeholders 依次排列的占位符名称和替换值
+     */
+    public static void sendMessage(CommandSender sender, String path, String... placeholders) {
+        sender.sendMessage(getMessage(path, placeholders));
+    }
+
+    /**
+     * 发送带前缀和多个占位符的消息
+     *
+     * @param sender 命令发送者
+     * @param path 消息路径
+     * @param placeholders 依次排列的占位符名称和替换值
+     */
+    public static void sendPrefixedMessage(CommandSender sender, String path, String... placeholders) {
+        sendPrefixedMessage(sender, path, toPlaceholderMap(placeholders));
+    }
+
     /**
      * 检查是否为玩家并发送错误消息
      * 
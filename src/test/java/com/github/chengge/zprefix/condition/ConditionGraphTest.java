@@ -0,0 +1,133 @@
+package com.github.chengge.zprefix.condition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 条件图的 all/any/not 求值、节点共享和剩余量记录测试
+ */
+class ConditionGraphTest {
+
+    @Test
+    void allRequiresEveryChild() {
+        ConditionGraph graph = new ConditionGraph();
+        ConditionNode all = graph.all(List.of(leaf(graph, "a", 0, 0), leaf(graph, "b", 0, 1)));
+        assertTrue(evaluate(all));
+
+        ConditionNode partial = graph.all(List.of(leaf(graph, "a", 0, 0), leaf(graph, "c", 5, 1)));
+        assertFalse(evaluate(partial));
+    }
+
+    @Test
+    void anyRequiresOneChild() {
+        ConditionGraph graph = new ConditionGraph();
+        assertTrue(evaluate(graph.any(List.of(leaf(graph, "a", 3, 0), leaf(graph, "b", 0, 1)))));
+        assertFalse(evaluate(graph.any(List.of(leaf(graph, "c", 3, 0), leaf(graph, "d", 1, 1)))));
+    }
+
+    @Test
+    void notInvertsChild() {
+        ConditionGraph graph = new ConditionGraph();
+        assertFalse(evaluate(graph.not(leaf(graph, "a", 0, 0))));
+        assertTrue(evaluate(graph.not(leaf(graph, "b", 4, 0))));
+        assertTrue(evaluate(graph.all(List.of(leaf(graph, "a", 0, 0), graph.not(leaf(graph, "b", 4, 0))))));
+    }
+
+    @Test
+    void emptyAllIsAlwaysSatisfiedAndSingleChildIsReturnedDirectly() {
+        ConditionGraph graph = new ConditionGraph();
+        assertSame(ConditionNode.TRUE, graph.all(List.of()));
+        assertTrue(evaluate(ConditionNode.TRUE));
+
+        ConditionNode leaf = leaf(graph, "a", 1, 0);
+        assertSame(leaf, graph.all(List.of(leaf)));
+        assertSame(leaf, graph.any(List.of(leaf, leaf)));
+    }
+
+    @Test
+    void identicalConditionsShareNodes() {
+        ConditionGraph graph = new ConditionGraph();
+        ConditionNode a = leaf(graph, "a", 0, 0);
+        ConditionNode b = leaf(graph, "b", 0, 1);
+
+        assertSame(a, leaf(graph, "a", 99, 0));
+        assertSame(graph.all(List.of(a, b)), graph.all(List.of(b, a)));
+        assertNotSame(graph.all(List.of(a, b)), graph.any(List.of(a, b)));
+        assertSame(graph.not(a), graph.not(a));
+
+        assertEquals(2, graph.getLeafCount());
+        // a、b、all(a,b)、any(a,b)、not(a)
+        assertEquals(5, graph.getNodeCount());
+        assertTrue(graph.getSharedCount() > 0);
+    }
+
+    @Test
+    void sharedNodeIsEvaluatedOncePerContext() {
+        ConditionGraph graph = new ConditionGraph();
+        CountingCondition condition = new CountingCondition(0, 0);
+        ConditionNode shared = graph.leaf("shared", () -> condition);
+        ConditionNode first = graph.all(List.of(shared, leaf(graph, "b", 0, 1)));
+        ConditionNode second = graph.any(List.of(shared, leaf(graph, "c", 2, 2)));
+
+        EvaluationContext context = EvaluationContext.offline(new long[StatSlots.COUNT]);
+        assertTrue(first.evaluate(context, null, false));
+        assertTrue(second.evaluate(context, null, false));
+        assertEquals(1, condition.calls);
+    }
+
+    @Test
+    void unsatisfiedLeavesRecordSmallestRemainingPerSlot() {
+        ConditionGraph graph = new ConditionGraph();
+        ConditionNode node = graph.all(Arrays.asList(
+                leaf(graph, "a", 7, 0),
+                leaf(graph, "b", 3, 0),
+                leaf(graph, "c", 5, 1),
+                graph.not(leaf(graph, "d", 2, 2))));
+
+        long[] watermarks = new long[StatSlots.COUNT];
+        Arrays.fill(watermarks, Long.MAX_VALUE);
+        assertFalse(node.evaluate(EvaluationContext.offline(new long[StatSlots.COUNT]), watermarks, false));
+
+        // all 不短路，每个未满足的叶子都记录；取反分支中的条件不记录
+        assertEquals(3, watermarks[0]);
+        assertEquals(5, watermarks[1]);
+        assertEquals(Long.MAX_VALUE, watermarks[2]);
+    }
+
+    private static ConditionNode leaf(ConditionGraph graph, String key, long remaining, int slot) {
+        return graph.leaf(key, () -> new CountingCondition(remaining, slot));
+    }
+
+    private static boolean evaluate(ConditionNode node) {
+        return node.evaluate(EvaluationContext.offline(new long[StatSlots.COUNT]), null, false);
+    }
+
+    /**
+     * 返回固定剩余量并记录求值次数的条件
+     */
+    private static final class CountingCondition implements UnlockCondition {
+        private final long remaining;
+        private final int slot;
+        int calls;
+
+        CountingCondition(long remaining, int slot) {
+            this.remaining = remaining;
+            this.slot = slot;
+        }
+
+        @Override
+        public long remaining(EvaluationContext context) {
+            calls++;
+            return remaining;
+        }
+
+        @Override
+        public int getSlot() {
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.chengge.zprefix.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 称号位集合的修改操作和换索引（remap）测试
+ */
+class TitleBitSetTest {
+
+    @Test
+    void remapKeepsSameTitlesUnderNewIndex() {
+        TitleIndex oldIndex = new TitleIndex();
+        oldIndex.indexOf("warrior");
+        oldIndex.indexOf("miner");
+        oldIndex.indexOf("fisher");
+        TitleBitSet titles = TitleBitSet.of(List.of("fisher", "warrior"), oldIndex);
+
+        // 新索引中称号顺序不同，并且缺少 fisher（已从配置中删除的称号）
+        TitleIndex newIndex = new TitleIndex();
+        newIndex.indexOf("miner");
+        newIndex.indexOf("warrior");
+        TitleBitSet remapped = titles.remap(newIndex);
+
+        assertTrue(remapped.usesIndex(newIndex));
+        assertFalse(remapped.usesIndex(oldIndex));
+        assertEquals(Set.of("fisher", "warrior"), new HashSet<>(remapped));
+        assertTrue(remapped.contains("fisher"));
+        assertFalse(remapped.contains("miner"));
+        assertEquals(1, newIndex.find("warrior"));
+        assertTrue(remapped.containsIndex(newIndex.find("warrior")));
+        // 原集合不受影响
+        assertEquals(Set.of("fisher", "warrior"), new HashSet<>(titles));
+        assertTrue(titles.usesIndex(oldIndex));
+    }
+
+    @Test
+    void remapToSameIndexReturnsSameInstance() {
+        TitleIndex index = new TitleIndex();
+        TitleBitSet titles = TitleBitSet.of(List.of("warrior"), index);
+        assertSame(titles, titles.remap(index));
+        assertSame(TitleBitSet.EMPTY, TitleBitSet.EMPTY.remap(index));
+    }
+
+    @Test
+    void remapCrossesWordBoundaries() {
+        TitleIndex oldIndex = new TitleIndex();
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            all.add("title" + i);
+            oldIndex.indexOf("title" + i);
+        }
+        Set<String> selected = new HashSet<>(List.of("title0", "title63", "title64", "title149"));
+        TitleBitSet titles = TitleBitSet.of(selected, oldIndex);
+
+        TitleIndex newIndex = new TitleIndex();
+        for (int i = all.size() - 1; i >= 0; i--) {
+            newIndex.indexOf(all.get(i));
+        }
+        TitleBitSet remapped = titles.remap(newIndex);
+        assertEquals(4, remapped.size());
+        assertEquals(selected, new HashSet<>(remapped));
+    }
+
+    @Test
+    void withAndWithoutReturnNewSets() {
+        TitleIndex index = new TitleIndex();
+        TitleBitSet titles = TitleBitSet.of(List.of("warrior"), index);
+
+        TitleBitSet added = titles.with("miner");
+        assertNotSame(titles, added);
+        assertEquals(Set.of("warrior", "miner"), new HashSet<>(added));
+        assertSame(added, added.with("miner"));
+        assertEquals(1, titles.size());
+
+        TitleBitSet removed = added.without("warrior");
+        assertEquals(Set.of("miner"), new HashSet<>(removed));
+        assertSame(removed, removed.without("unknown"));
+        assertSame(TitleBitSet.EMPTY, removed.without("miner"));
+    }
+}
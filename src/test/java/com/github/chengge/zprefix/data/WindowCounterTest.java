@@ -0,0 +1,78 @@
+package com.github.chengge.zprefix.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间窗口计数器的累加和时间桶过期测试
+ */
+class WindowCounterTest {
+
+    // 60 秒窗口，每个桶 1 秒
+    private static final long WINDOW_SECONDS = 60;
+
+    @Test
+    void sumsDeltasInsideWindow() {
+        WindowCounter counter = new WindowCounter(7, WINDOW_SECONDS, 0);
+        counter.add(0, 5);
+        counter.add(500, 2);
+        counter.add(30_000, 3);
+
+        assertEquals(7, counter.getWindowKey());
+        assertEquals(10, counter.getTotal(30_000));
+        assertEquals(10, counter.getTotal(59_999));
+    }
+
+    @Test
+    void oldestBucketExpiresWhenWindowMovesPastIt() {
+        WindowCounter counter = new WindowCounter(1, WINDOW_SECONDS, 0);
+        counter.add(0, 5);
+        counter.add(30_000, 3);
+
+        // 第 60 秒时第 0 秒的桶移出窗口，第 30 秒的桶仍在窗口内
+        assertEquals(3, counter.getTotal(60_000));
+        assertEquals(3, counter.getTotal(89_999));
+        assertEquals(0, counter.getTotal(90_000));
+    }
+
+    @Test
+    void longIdleGapClearsEveryBucket() {
+        WindowCounter counter = new WindowCounter(1, WINDOW_SECONDS, 0);
+        for (long t = 0; t < 60_000; t += 1_000) {
+            counter.add(t, 1);
+        }
+        assertEquals(60, counter.getTotal(59_999));
+
+        assertEquals(0, counter.getTotal(10 * 60_000));
+        counter.add(10 * 60_000, 4);
+        assertEquals(4, counter.getTotal(10 * 60_000 + 1));
+    }
+
+    @Test
+    void bucketsAreReusedAfterWrappingAround() {
+        WindowCounter counter = new WindowCounter(1, WINDOW_SECONDS, 0);
+        counter.add(1_000, 2);
+        // 同一个环形位置在一圈之后重新使用，旧值不能残留
+        counter.add(61_000, 7);
+        assertEquals(7, counter.getTotal(61_000));
+        assertEquals(7, counter.getTotal(120_999));
+        assertEquals(0, counter.getTotal(121_000));
+    }
+
+    @Test
+    void earlierTimestampDoesNotExpireBuckets() {
+        WindowCounter counter = new WindowCounter(1, WINDOW_SECONDS, 10_000);
+        counter.add(10_000, 4);
+        counter.add(9_000, 1);
+        assertEquals(5, counter.getTotal(5_000));
+    }
+
+    @Test
+    void sessionCounterNeverExpires() {
+        WindowCounter counter = new WindowCounter(1, 0, 0);
+        counter.add(0, 5);
+        counter.add(Long.MAX_VALUE / 2, 3);
+        assertEquals(8, counter.getTotal(Long.MAX_VALUE));
+    }
+}
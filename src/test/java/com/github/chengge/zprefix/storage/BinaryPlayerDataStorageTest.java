@@ -0,0 +1,158 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import com.github.chengge.zprefix.data.PlayerTitleData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 二进制存储的读写往返、合并写入和空记录清理测试
+ */
+class BinaryPlayerDataStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File dataFile;
+    private BinaryPlayerDataStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dataFile = tempDir.resolve("players.bin").toFile();
+        storage = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    void saveThenLoadReturnsSameData() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        storage.save(List.of(snapshot(playerId, "warrior", "warrior", "miner")));
+
+        PlayerTitleData loaded = storage.load(playerId);
+        assertNotNull(loaded);
+        assertEquals("warrior", loaded.getCurrentTitle());
+        assertEquals(Set.of("warrior", "miner"), new HashSet<>(loaded.getUnlockedTitles()));
+        assertNull(storage.load(UUID.randomUUID()));
+    }
+
+    @Test
+    void reopenedFileReturnsSameData() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        storage.save(List.of(snapshot(playerId, null, "miner")));
+        storage.close();
+
+        storage = open();
+        assertEquals(1, storage.getRecordCount());
+        PlayerTitleData loaded = storage.load(playerId);
+        assertNull(loaded.getCurrentTitle());
+        assertEquals(Set.of("miner"), new HashSet<>(loaded.getUnlockedTitles()));
+    }
+
+    @Test
+    void saveMergesWithExistingRecords() throws IOException {
+        UUID unchanged = UUID.randomUUID();
+        UUID updated = UUID.randomUUID();
+        UUID added = UUID.randomUUID();
+        storage.save(List.of(snapshot(unchanged, "warrior", "warrior"), snapshot(updated, null, "miner")));
+        storage.close();
+
+        // 重新打开后文件是内存映射，合并写入要在替换文件前复制原有记录
+        storage = open();
+        storage.save(List.of(snapshot(updated, "explorer", "miner", "explorer"), snapshot(added, null, "fisher")));
+
+        assertEquals(3, storage.getRecordCount());
+        assertEquals("warrior", storage.load(unchanged).getCurrentTitle());
+        assertEquals(Set.of("warrior"), new HashSet<>(storage.load(unchanged).getUnlockedTitles()));
+        assertEquals("explorer", storage.load(updated).getCurrentTitle());
+        assertEquals(Set.of("miner", "explorer"), new HashSet<>(storage.load(updated).getUnlockedTitles()));
+        assertEquals(Set.of("fisher"), new HashSet<>(storage.load(added).getUnlockedTitles()));
+
+        storage.close();
+        storage = open();
+        assertEquals(3, storage.getRecordCount());
+        assertEquals("explorer", storage.load(updated).getCurrentTitle());
+    }
+
+    @Test
+    void scanPagesThroughAllRecordsInOrder() throws IOException {
+        List<PlayerDataSnapshot> records = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            records.add(snapshot(UUID.randomUUID(), null, "title" + i));
+        }
+        storage.save(records);
+
+        List<UUID> scanned = new ArrayList<>();
+        UUID after = null;
+        List<PlayerTitleData> page;
+        while (!(page = storage.scan(after, 10)).isEmpty()) {
+            assertTrue(page.size() <= 10);
+            for (PlayerTitleData playerData : page) {
+                scanned.add(playerData.getPlayerId());
+            }
+            after = page.get(page.size() - 1).getPlayerId();
+        }
+
+        assertEquals(25, scanned.size());
+        List<UUID> expected = new ArrayList<>(scanned);
+        expected.sort(BinaryPlayerDataStorage.UUID_ORDER);
+        assertEquals(expected, scanned);
+    }
+
+    @Test
+    void purgeRemovesOnlyEmptyRecords() throws IOException {
+        UUID emptyPlayer = UUID.randomUUID();
+        UUID titledPlayer = UUID.randomUUID();
+        storage.save(List.of(snapshot(emptyPlayer, null), snapshot(titledPlayer, null, "miner")));
+
+        assertEquals(1, storage.purgeEmptyRecords());
+        assertNull(storage.load(emptyPlayer));
+        assertNotNull(storage.load(titledPlayer));
+        assertEquals(0, storage.purgeEmptyRecords());
+
+        storage.close();
+        storage = open();
+        assertEquals(1, storage.getRecordCount());
+        assertNull(storage.load(emptyPlayer));
+    }
+
+    @Test
+    void writesAreRejectedAfterClose() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        storage.save(List.of(snapshot(playerId, null, "miner")));
+        storage.close();
+
+        assertThrows(IOException.class, () -> storage.save(List.of(snapshot(UUID.randomUUID(), null, "fisher"))));
+        assertThrows(IOException.class, () -> storage.purgeEmptyRecords());
+
+        storage = open();
+        assertEquals(1, storage.getRecordCount());
+    }
+
+    private BinaryPlayerDataStorage open() throws IOException {
+        BinaryPlayerDataStorage opened = new BinaryPlayerDataStorage(dataFile);
+        opened.initialize();
+        return opened;
+    }
+
+    private static PlayerDataSnapshot snapshot(UUID playerId, String currentTitle, String... unlockedTitles) {
+        return new PlayerDataSnapshot(playerId, currentTitle, new HashSet<>(Arrays.asList(unlockedTitles)), 1);
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.chengge.zprefix.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 称号修改日志的重放、损坏记录处理和日志段合并测试
+ */
+class ChangeJournalTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ChangeJournalTest.class.getName());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replayReturnsRecordsInOrder() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        ChangeJournal journal = open();
+        journal.append(ChangeJournal.UNLOCK, playerId, "warrior");
+        journal.append(ChangeJournal.SET_CURRENT, playerId, "warrior");
+        journal.append(ChangeJournal.SET_CURRENT, playerId, null);
+        journal.append(ChangeJournal.TAKE, playerId, "warrior");
+        journal.close();
+
+        List<String> replayed = replay();
+        assertEquals(List.of(
+                ChangeJournal.UNLOCK + " " + playerId + " warrior",
+                ChangeJournal.SET_CURRENT + " " + playerId + " warrior",
+                ChangeJournal.SET_CURRENT + " " + playerId + " null",
+                ChangeJournal.TAKE + " " + playerId + " warrior"), replayed);
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        ChangeJournal journal = open();
+        journal.append(ChangeJournal.UNLOCK, playerId, "warrior");
+        journal.append(ChangeJournal.UNLOCK, playerId, "miner");
+        journal.close();
+
+        // 模拟写到一半时崩溃：截掉最后一条记录的末尾
+        try (RandomAccessFile file = new RandomAccessFile(lastSegment(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        assertEquals(List.of(ChangeJournal.UNLOCK + " " + playerId + " warrior"), replay());
+    }
+
+    @Test
+    void recordWithBadChecksumAndEverythingAfterIsIgnored() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        ChangeJournal journal = open();
+        journal.append(ChangeJournal.UNLOCK, playerId, "warrior");
+        journal.close();
+
+        journal = open();
+        journal.append(ChangeJournal.UNLOCK, playerId, "miner");
+        journal.append(ChangeJournal.UNLOCK, playerId, "fisher");
+        journal.close();
+
+        // 第二段第一条记录的内容（长度和校验和之后）被改坏，校验失败后该段剩余的记录都不可信
+        File second = lastSegment();
+        try (RandomAccessFile file = new RandomAccessFile(second, "rw")) {
+            file.seek(8);
+            int b = file.read();
+            file.seek(8);
+            file.write(b ^ 0xFF);
+        }
+
+        assertEquals(List.of(ChangeJournal.UNLOCK + " " + playerId + " warrior"), replay());
+    }
+
+    @Test
+    void releaseDeletesSegmentsBeforeRotation() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        ChangeJournal journal = open();
+        journal.append(ChangeJournal.UNLOCK, playerId, "warrior");
+        long segment = journal.rotate();
+        assertEquals(0, journal.getPendingRecords());
+        journal.append(ChangeJournal.UNLOCK, playerId, "miner");
+        assertEquals(1, journal.getPendingRecords());
+
+        // 保存成功后合并：旋转之前的记录已写入存储
+        journal.release(segment);
+        journal.close();
+
+        assertEquals(List.of(ChangeJournal.UNLOCK + " " + playerId + " miner"), replay());
+    }
+
+    @Test
+    void segmentsSurviveUntilReleased() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        ChangeJournal journal = open();
+        journal.append(ChangeJournal.UNLOCK, playerId, "warrior");
+        journal.rotate();
+        journal.append(ChangeJournal.UNLOCK, playerId, "miner");
+        journal.close();
+
+        assertEquals(List.of(
+                ChangeJournal.UNLOCK + " " + playerId + " warrior",
+                ChangeJournal.UNLOCK + " " + playerId + " miner"), replay());
+    }
+
+    private ChangeJournal open() throws IOException {
+        // 刷盘间隔足够长，记录只在 release 和 close 时写入，测试结果不依赖日志线程的时机
+        ChangeJournal journal = new ChangeJournal(LOGGER, tempDir.toFile(), 60_000);
+        journal.open();
+        return journal;
+    }
+
+    private List<String> replay() throws IOException {
+        List<String> records = new ArrayList<>();
+        new ChangeJournal(LOGGER, tempDir.toFile(), 60_000)
+                .replay((type, playerId, titleId) -> records.add(type + " " + playerId + " " + titleId));
+        return records;
+    }
+
+    private File lastSegment() {
+        File[] files = tempDir.toFile().listFiles((dir, name) -> name.endsWith(".log"));
+        assertNotNull(files);
+        File last = null;
+        for (File file : files) {
+            if (last == null || file.getName().compareTo(last.getName()) > 0) {
+                last = file;
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import com.github.chengge.zprefix.data.PlayerTitleData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 数据库存储在嵌入式 SQLite 上的读写往返测试
+ */
+class SqlPlayerDataStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SqlPlayerDataStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("players.db"));
+        storage = new SqlPlayerDataStorage(SqlPlayerDataStorage.Dialect.SQLITE, dataSource, "test_");
+        storage.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    void saveThenLoadReturnsSameData() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        storage.save(List.of(snapshot(playerId, "warrior", "warrior", "miner")));
+
+        PlayerTitleData loaded = storage.load(playerId);
+        assertNotNull(loaded);
+        assertEquals("warrior", loaded.getCurrentTitle());
+        assertEquals(new HashSet<>(Arrays.asList("warrior", "miner")), new HashSet<>(loaded.getUnlockedTitles()));
+        assertNull(storage.load(UUID.randomUUID()));
+    }
+
+    @Test
+    void saveOverwritesExistingRow() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        storage.save(List.of(snapshot(playerId, "warrior", "warrior")));
+        storage.save(List.of(snapshot(playerId, null, "miner")));
+
+        PlayerTitleData loaded = storage.load(playerId);
+        assertNull(loaded.getCurrentTitle());
+        assertEquals(Set.of("miner"), new HashSet<>(loaded.getUnlockedTitles()));
+    }
+
+    @Test
+    void scanPagesThroughAllRecordsInOrder() throws IOException {
+        List<PlayerDataSnapshot> records = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            records.add(snapshot(UUID.randomUUID(), null, "title" + i));
+        }
+        storage.save(records);
+
+        List<UUID> scanned = new ArrayList<>();
+        UUID after = null;
+        List<PlayerTitleData> page;
+        while (!(page = storage.scan(after, 10)).isEmpty()) {
+            assertTrue(page.size() <= 10);
+            for (PlayerTitleData playerData : page) {
+                scanned.add(playerData.getPlayerId());
+            }
+            after = page.get(page.size() - 1).getPlayerId();
+        }
+
+        assertEquals(25, scanned.size());
+        List<String> sorted = new ArrayList<>();
+        for (UUID playerId : scanned) {
+            sorted.add(playerId.toString());
+        }
+        List<String> expected = new ArrayList<>(sorted);
+        Collections.sort(expected);
+        assertEquals(expected, sorted);
+    }
+
+    @Test
+    void purgeRemovesOnlyEmptyRecords() throws IOException {
+        UUID emptyPlayer = UUID.randomUUID();
+        UUID titledPlayer = UUID.randomUUID();
+        storage.save(List.of(snapshot(emptyPlayer, null), snapshot(titledPlayer, null, "miner")));
+
+        assertEquals(1, storage.purgeEmptyRecords());
+        assertNull(storage.load(emptyPlayer));
+        assertNotNull(storage.load(titledPlayer));
+    }
+
+    private static PlayerDataSnapshot snapshot(UUID playerId, String currentTitle, String... unlockedTitles) {
+        return new PlayerDataSnapshot(playerId, currentTitle, new HashSet<>(Arrays.asList(unlockedTitles)), 1);
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.chengge.zprefix.storage;
+
+import com.github.chengge.zprefix.data.PlayerDataSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * player_titles.yml 流式读写的往返测试
+ */
+class YamlPlayerDataStreamTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeThenReadReturnsSameData() throws IOException {
+        UUID titled = UUID.randomUUID();
+        UUID empty = UUID.randomUUID();
+        List<PlayerDataSnapshot> records = new ArrayList<>();
+        records.add(snapshot(titled, "warrior", "warrior", "miner"));
+        records.add(snapshot(empty, null));
+
+        Map<UUID, Record> read = roundTrip(records);
+        assertEquals(2, read.size());
+        assertEquals("warrior", read.get(titled).currentTitle);
+        assertEquals(Set.of("warrior", "miner"), read.get(titled).unlockedTitles);
+        assertNull(read.get(empty).currentTitle);
+        assertTrue(read.get(empty).unlockedTitles.isEmpty());
+    }
+
+    @Test
+    void titlesThatNeedQuotingSurviveRoundTrip() throws IOException {
+        UUID playerId = UUID.randomUUID();
+        String[] titles = {"123", "yes", "null", "with space", "称号", "quote\"and\\slash", "a: b", "#hash"};
+
+        Map<UUID, Record> read = roundTrip(List.of(snapshot(playerId, "null", titles)));
+        assertEquals("null", read.get(playerId).currentTitle);
+        assertEquals(new HashSet<>(Arrays.asList(titles)), read.get(playerId).unlockedTitles);
+    }
+
+    @Test
+    void readsFilesSavedByYamlConfigurationAndSkipsUnknownKeys() throws IOException {
+        UUID playerId = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        String content = "version: 2\n" +
+                         "players:\n" +
+                         "  '00000000-0000-0000-0000-000000000001':\n" +
+                         "    current-title: 'warrior'\n" +
+                         "    last-seen: {world: lobby, x: 1}\n" +
+                         "    unlocked-titles:\n" +
+                         "    - warrior\n" +
+                         "    - - nested\n" +
+                         "    - ~\n" +
+                         "  not-a-uuid:\n" +
+                         "    unlocked-titles: [ignored]\n" +
+                         "other:\n" +
+                         "  - 1\n";
+        File file = tempDir.resolve("player_titles.yml").toFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        Map<UUID, Record> read = read(file);
+        assertEquals(1, read.size());
+        assertEquals("warrior", read.get(playerId).currentTitle);
+        assertEquals(Set.of("warrior"), read.get(playerId).unlockedTitles);
+    }
+
+    @Test
+    void missingOrEmptyFileHasNoPlayers() throws IOException {
+        File file = tempDir.resolve("player_titles.yml").toFile();
+        assertEquals(0, YamlPlayerDataStream.read(file, (playerId, currentTitle, unlockedTitles) -> fail("unexpected player")));
+
+        Files.write(file.toPath(), new byte[0]);
+        assertEquals(0, YamlPlayerDataStream.read(file, (playerId, currentTitle, unlockedTitles) -> fail("unexpected player")));
+        assertEquals(0, YamlPlayerDataStream.write(List.of()).length);
+    }
+
+    @Test
+    void malformedFileIsReportedAsIOException() throws IOException {
+        File file = tempDir.resolve("player_titles.yml").toFile();
+        Files.write(file.toPath(), "players:\n  - [unclosed\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> YamlPlayerDataStream.read(file, (playerId, currentTitle, unlockedTitles) -> { }));
+    }
+
+    private Map<UUID, Record> roundTrip(List<PlayerDataSnapshot> records) throws IOException {
+        File file = tempDir.resolve("player_titles.yml").toFile();
+        Files.write(file.toPath(), YamlPlayerDataStream.write(records));
+        return read(file);
+    }
+
+    private static Map<UUID, Record> read(File file) throws IOException {
+        Map<UUID, Record> read = new HashMap<>();
+        int count = YamlPlayerDataStream.read(file, (playerId, currentTitle, unlockedTitles) ->
+                read.put(playerId, new Record(currentTitle, new HashSet<>(unlockedTitles))));
+        assertEquals(read.size(), count);
+        return read;
+    }
+
+    private static PlayerDataSnapshot snapshot(UUID playerId, String currentTitle, String... unlockedTitles) {
+        return new PlayerDataSnapshot(playerId, currentTitle, new HashSet<>(Arrays.asList(unlockedTitles)), 1);
+    }
+
+    private static final class Record {
+        final String currentTitle;
+        final Set<String> unlockedTitles;
+
+        Record(String currentTitle, Set<String> unlockedTitles) {
+            this.currentTitle = currentTitle;
+            this.unlockedTitles = unlockedTitles;
+        }
+    }
+}